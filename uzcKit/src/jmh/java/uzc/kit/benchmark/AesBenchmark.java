@@ -0,0 +1,52 @@
+package uzc.kit.benchmark;
+
+import uzc.kit.crypto.UzcCrypto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AesBenchmark {
+    @Param({"64", "1024"})
+    private int plaintextSize;
+
+    private final UzcCrypto uzcCrypto = UzcCrypto.getInstance();
+    private byte[] plaintext;
+    private byte[] key;
+    private byte[] nonce;
+    private byte[] encrypted;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        plaintext = new byte[plaintextSize];
+        key = new byte[32];
+        nonce = new byte[32];
+        random.nextBytes(plaintext);
+        random.nextBytes(key);
+        random.nextBytes(nonce);
+        encrypted = uzcCrypto.aesEncrypt(plaintext, key.clone(), nonce);
+    }
+
+    // The key is copied every time because encryption and decryption modify it
+
+    @Benchmark
+    public byte[] aesEncrypt() {
+        return uzcCrypto.aesEncrypt(plaintext, key.clone(), nonce);
+    }
+
+    @Benchmark
+    public byte[] aesDecrypt() {
+        return uzcCrypto.aesDecrypt(encrypted, key.clone(), nonce);
+    }
+}
@@ -0,0 +1,72 @@
+package uzc.kit.benchmark;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.ec.Curve25519;
+import uzc.kit.crypto.ec.Curve25519Impl;
+import uzc.kit.crypto.ec.SigningKey;
+import uzc.kit.entity.SignedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Curve25519Benchmark {
+    private final Curve25519 curve25519 = new Curve25519Impl(UzcCrypto.getInstance()::getSha256);
+    private byte[] privateKey;
+    private byte[] publicKey;
+    private SigningKey signingKey;
+    private byte[] message;
+    private byte[] signature;
+    private List<SignedMessage> block;
+
+    @Setup
+    public void setUp() {
+        privateKey = UzcCrypto.getInstance().getPrivateKey("benchmark");
+        publicKey = curve25519.getPublicKey(privateKey);
+        signingKey = curve25519.getSigningKey(privateKey);
+        message = new byte[176]; // The size of a typical unsigned transaction
+        new Random(0).nextBytes(message);
+        signature = curve25519.sign(message, privateKey);
+        block = new ArrayList<>();
+        for (int i = 0; i < 255; i++) { // A full block of transactions
+            block.add(new SignedMessage(message, signature, publicKey));
+        }
+    }
+
+    @Benchmark
+    public byte[] getPublicKey() {
+        return curve25519.getPublicKey(privateKey);
+    }
+
+    @Benchmark
+    public byte[] sign() {
+        return curve25519.sign(message, privateKey);
+    }
+
+    @Benchmark
+    public byte[] signWithSigningKey() {
+        return curve25519.sign(message, signingKey);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return curve25519.verify(message, signature, publicKey, true);
+    }
+
+    @Benchmark
+    public BitSet verifyBlock() {
+        return curve25519.verifyBatch(block, true);
+    }
+}
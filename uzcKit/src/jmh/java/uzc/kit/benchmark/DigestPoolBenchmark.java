@@ -0,0 +1,51 @@
+package uzc.kit.benchmark;
+
+import uzc.kit.crypto.UzcCrypto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking a digest up in the provider registry with the pooled digests of UzcCrypto, on every core at once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(Threads.MAX)
+public class DigestPoolBenchmark {
+    private final UzcCrypto uzcCrypto = UzcCrypto.getInstance();
+    private final byte[] data = new byte[32]; // The size of a public key
+
+    @Benchmark
+    public byte[] sha256GetInstance() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+
+    @Benchmark
+    public byte[] sha256Create() {
+        return uzcCrypto.getSha256().digest(data);
+    }
+
+    @Benchmark
+    public byte[] sha256Borrow() {
+        return uzcCrypto.withSha256(digest -> digest.digest(data));
+    }
+
+    @Benchmark
+    public byte[] shabal256GetInstance() throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("Shabal-256").digest(data);
+    }
+
+    @Benchmark
+    public byte[] shabal256Borrow() {
+        return uzcCrypto.withShabal256(digest -> digest.digest(data));
+    }
+}
@@ -0,0 +1,38 @@
+package uzc.kit.benchmark;
+
+import uzc.kit.crypto.rs.ReedSolomon;
+import uzc.kit.crypto.rs.ReedSolomonImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReedSolomonBenchmark {
+    private static final long ID = 7009665667967103287L;
+
+    private final ReedSolomon reedSolomon = new ReedSolomonImpl();
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        encoded = reedSolomon.encode(ID);
+    }
+
+    @Benchmark
+    public String encode() {
+        return reedSolomon.encode(ID);
+    }
+
+    @Benchmark
+    public long decode() throws ReedSolomon.DecodeException {
+        return reedSolomon.decode(encoded);
+    }
+}
@@ -0,0 +1,51 @@
+package uzc.kit.benchmark;
+
+import uzc.kit.crypto.hash.shabal.Shabal256;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Shabal256Benchmark {
+    @Param({"64", "4096"})
+    private int inputSize;
+
+    private final Shabal256 shabal256 = new Shabal256();
+    private final byte[] digest = new byte[32];
+    private byte[] input;
+
+    @Setup
+    public void setUp() {
+        input = new byte[inputSize];
+        new Random(0).nextBytes(input);
+    }
+
+    @Benchmark
+    public byte[] digest() {
+        shabal256.update(input);
+        return shabal256.digest();
+    }
+
+    @Benchmark
+    public byte[] digestInto() {
+        shabal256.update(input);
+        shabal256.digestInto(digest, 0);
+        return digest;
+    }
+
+    @Benchmark
+    public long digestToLong() {
+        shabal256.update(input);
+        return shabal256.digestToLong();
+    }
+}
@@ -0,0 +1,60 @@
+package uzc.kit.benchmark;
+
+import uzc.kit.entity.UzcValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UzcValueBenchmark {
+    private static final String PLANCK = "123456789012";
+    private static final String UZC = "1234.56789012";
+
+    private final UzcValue value = UzcValue.fromPlanck(PLANCK);
+
+    @Benchmark
+    public UzcValue fromPlanck() {
+        return UzcValue.fromPlanck(PLANCK);
+    }
+
+    @Benchmark
+    public UzcValue fromUzc() {
+        return UzcValue.fromUzc(UZC);
+    }
+
+    @Benchmark
+    public String toPlanckString() {
+        return value.toPlanck().toString();
+    }
+
+    @Benchmark
+    public UzcValue add() {
+        return value.add(value);
+    }
+
+    @Benchmark
+    public long longValue() {
+        return value.longValue();
+    }
+
+    /**
+     * Sums 1000 amounts, as when reconciling the balance of an account
+     */
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public UzcValue sum() {
+        UzcValue sum = UzcValue.ZERO;
+        for (int i = 0; i < 1000; i++) {
+            sum = sum.add(value);
+        }
+        return sum;
+    }
+}
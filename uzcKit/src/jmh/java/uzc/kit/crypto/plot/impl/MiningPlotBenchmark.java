@@ -0,0 +1,64 @@
+package uzc.kit.crypto.plot.impl;
+
+import uzc.kit.crypto.hash.shabal.Shabal256;
+import uzc.kit.crypto.hash.shabal.Shabal256Lanes;
+import uzc.kit.crypto.plot.PlotCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lives in the package of {@link MiningPlot} so that nonce generation can be measured on its own
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MiningPlotBenchmark {
+    private static final long ACCOUNT_ID = 7009665667967103287L;
+    private static final byte[] GEN_SIG = new byte[32];
+    private static final int LANES = 8;
+
+    private final Shabal256 shabal256 = new Shabal256();
+    private final Shabal256Lanes shabal256Lanes = new Shabal256Lanes(LANES);
+    private final MiningPlot[] plots = new MiningPlot[LANES];
+    private final PlotCalculator plotCalculator = new PlotCalculatorImpl(Shabal256::new, ForkJoinPool.commonPool(), LANES);
+    private long nonce;
+
+    public MiningPlotBenchmark() {
+        for (int i = 0; i < LANES; i++) {
+            plots[i] = new MiningPlot();
+        }
+    }
+
+    @Benchmark
+    public MiningPlot generate() {
+        plots[0].generate(shabal256, ACCOUNT_ID, nonce++);
+        return plots[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LANES)
+    public MiningPlot[] generateLanes() {
+        MiningPlot.generate(shabal256Lanes, plots, ACCOUNT_ID, nonce);
+        nonce += LANES;
+        return plots;
+    }
+
+    @Benchmark
+    public BigInteger calculateHit() {
+        return plotCalculator.calculateHit(ACCOUNT_ID, nonce++, GEN_SIG, 0, 2);
+    }
+
+    @Benchmark
+    public long calculateHitLong() {
+        return plotCalculator.calculateHitLong(ACCOUNT_ID, nonce++, GEN_SIG, 0, 2);
+    }
+}
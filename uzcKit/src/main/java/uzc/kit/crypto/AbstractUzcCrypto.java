@@ -1,11 +1,19 @@
 package uzc.kit.crypto;
 
 
+import uzc.kit.crypto.ec.SigningKey;
+import uzc.kit.crypto.plot.MiningRound;
+import uzc.kit.entity.SignedMessage;
 import uzc.kit.entity.UzcAddress;
 import uzc.kit.entity.UzcEncryptedMessage;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.List;
 
 @SuppressWarnings("WeakerAccess")
 abstract class AbstractUzcCrypto implements UzcCrypto {
@@ -48,11 +56,26 @@ abstract class AbstractUzcCrypto implements UzcCrypto {
         return sign(stringToBytes(message), privateKey);
     }
 
+    @Override
+    public SigningKey getSigningKey(String passphrase) {
+        return getSigningKey(getPrivateKey(passphrase));
+    }
+
+    @Override
+    public byte[] sign(String message, SigningKey signingKey) {
+        return sign(stringToBytes(message), signingKey);
+    }
+
     @Override
     public byte[] signTransaction(String passphrase, byte[] unsignedTransaction) {
         return signTransaction(getPrivateKey(passphrase), unsignedTransaction);
     }
 
+    @Override
+    public BitSet verifyBatch(List<SignedMessage> signedMessages) {
+        return verifyBatch(signedMessages, true);
+    }
+
     @Override
     public byte[] aesEncrypt(byte[] plaintext, byte[] signingKey) throws IllegalArgumentException {
         return aesEncrypt(plaintext, signingKey, new byte[32]);
@@ -178,6 +201,16 @@ abstract class AbstractUzcCrypto implements UzcCrypto {
         return decryptMessage(message, getPrivateKey(myPassphrase), theirPublicKey);
     }
 
+    @Override
+    public byte[] encryptMessage(InputStream message, OutputStream encryptedData, String myPassphrase, byte[] theirPublicKey) throws IOException {
+        return encryptMessage(message, encryptedData, getPrivateKey(myPassphrase), theirPublicKey);
+    }
+
+    @Override
+    public void decryptMessage(InputStream encryptedData, byte[] nonce, OutputStream message, String myPassphrase, byte[] theirPublicKey) throws IOException {
+        decryptMessage(encryptedData, nonce, message, getPrivateKey(myPassphrase), theirPublicKey);
+    }
+
     @Override
     public byte[] calculateGenerationSignature(byte[] lastGenSig, UzcAddress lastGenerator) {
         return calculateGenerationSignature(lastGenSig, lastGenerator.getSignedLongId());
@@ -197,4 +230,49 @@ abstract class AbstractUzcCrypto implements UzcCrypto {
     public BigInteger calculateDeadline(UzcAddress accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
         return calculateDeadline(accountId.getSignedLongId(), nonce, genSig, scoop, baseTarget, pocVersion);
     }
+
+    @Override
+    public BigInteger calculateHit(UzcAddress accountId, long nonce, MiningRound round, int pocVersion) {
+        return calculateHit(accountId.getSignedLongId(), nonce, round, pocVersion);
+    }
+
+    @Override
+    public BigInteger calculateHit(UzcAddress accountId, long nonce, MiningRound round, byte[] scoopData) {
+        return calculateHit(accountId.getSignedLongId(), nonce, round, scoopData);
+    }
+
+    @Override
+    public BigInteger calculateDeadline(UzcAddress accountId, long nonce, MiningRound round, int pocVersion) {
+        return calculateDeadline(accountId.getSignedLongId(), nonce, round, pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(UzcAddress accountId, long nonce, byte[] genSig, int scoop, int pocVersion) {
+        return calculateHitLong(accountId.getSignedLongId(), nonce, genSig, scoop, pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(UzcAddress accountId, long nonce, byte[] genSig, byte[] scoopData) {
+        return calculateHitLong(accountId.getSignedLongId(), nonce, genSig, scoopData);
+    }
+
+    @Override
+    public long calculateDeadlineLong(UzcAddress accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
+        return calculateDeadlineLong(accountId.getSignedLongId(), nonce, genSig, scoop, baseTarget, pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(UzcAddress accountId, long nonce, MiningRound round, int pocVersion) {
+        return calculateHitLong(accountId.getSignedLongId(), nonce, round, pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(UzcAddress accountId, long nonce, MiningRound round, byte[] scoopData) {
+        return calculateHitLong(accountId.getSignedLongId(), nonce, round, scoopData);
+    }
+
+    @Override
+    public long calculateDeadlineLong(UzcAddress accountId, long nonce, MiningRound round, int pocVersion) {
+        return calculateDeadlineLong(accountId.getSignedLongId(), nonce, round, pocVersion);
+    }
 }
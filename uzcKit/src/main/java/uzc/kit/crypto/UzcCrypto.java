@@ -1,13 +1,24 @@
 package uzc.kit.crypto;
 
+import uzc.kit.crypto.ec.SharedSecretCache;
+import uzc.kit.crypto.ec.SigningKey;
+import uzc.kit.crypto.plot.Deadlines;
+import uzc.kit.crypto.plot.MiningRound;
+import uzc.kit.entity.SignedMessage;
 import uzc.kit.entity.UzcAddress;
 import uzc.kit.entity.UzcEncryptedMessage;
 import uzc.kit.entity.UzcID;
 import uzc.kit.entity.UzcValue;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.security.MessageDigest;
+import java.util.BitSet;
 import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
 
 public interface UzcCrypto {
 
@@ -26,6 +37,27 @@ public interface UzcCrypto {
      */
     MessageDigest getRipeMD160();
 
+    /**
+     * Run a function with a SHA-256 MessageDigest borrowed from this thread's pool, without creating one
+     * @param function The function. It must not keep the digest or use it after returning.
+     * @return The result of the function
+     */
+    <T> T withSha256(Function<MessageDigest, T> function);
+
+    /**
+     * Run a function with a Shabal-256 MessageDigest borrowed from this thread's pool, without creating one
+     * @param function The function. It must not keep the digest or use it after returning.
+     * @return The result of the function
+     */
+    <T> T withShabal256(Function<MessageDigest, T> function);
+
+    /**
+     * Run a function with a RIPEMD-160 MessageDigest borrowed from this thread's pool, without creating one
+     * @param function The function. It must not keep the digest or use it after returning.
+     * @return The result of the function
+     */
+    <T> T withRipeMD160(Function<MessageDigest, T> function);
+
     /**
      * Derive the private key of the passphrase
      * @param passphrase The passphrase
@@ -92,6 +124,26 @@ public interface UzcCrypto {
      */
     byte[] getSharedSecret(byte[] myPrivateKey, byte[] theirPublicKey);
 
+    /**
+     * Derive the shared secret between two public/private key combinations
+     * @param mySigningKey Your signing key
+     * @param theirPublicKey Their public key
+     * @return The shared secret between you and them
+     */
+    byte[] getSharedSecret(SigningKey mySigningKey, byte[] theirPublicKey);
+
+    /**
+     * Cache shared secrets, so that repeatedly encrypting or decrypting with the same counterparty derives the
+     * shared secret once. Disabled by default.
+     * @param sharedSecretCache The cache to use, or null to stop caching
+     */
+    void setSharedSecretCache(SharedSecretCache sharedSecretCache);
+
+    /**
+     * @return The shared secret cache in use, or null if shared secrets are not cached
+     */
+    SharedSecretCache getSharedSecretCache();
+
     /**
      * Generate the signature of a message
      * @param message The message to sign
@@ -124,6 +176,36 @@ public interface UzcCrypto {
      */
     byte[] sign(String message, byte[] privateKey);
 
+    /**
+     * Derive the signing key of the passphrase, for signing many messages without deriving it each time
+     * @param passphrase The passphrase
+     * @return The signing key
+     */
+    SigningKey getSigningKey(String passphrase);
+
+    /**
+     * Derive the signing key of the private key, for signing many messages without deriving it each time
+     * @param privateKey The private key
+     * @return The signing key
+     */
+    SigningKey getSigningKey(byte[] privateKey);
+
+    /**
+     * Generate the signature of a message
+     * @param message The message to sign
+     * @param signingKey The signing key to sign with
+     * @return The signature
+     */
+    byte[] sign(byte[] message, SigningKey signingKey);
+
+    /**
+     * Generate the signature of a message
+     * @param message The message to sign
+     * @param signingKey The signing key to sign with
+     * @return The signature
+     */
+    byte[] sign(String message, SigningKey signingKey);
+
     /**
      * Sign an unsigned transaction
      * @param passphrase Passphrase to sign with
@@ -140,6 +222,14 @@ public interface UzcCrypto {
      */
     byte[] signTransaction(byte[] privateKey, byte[] unsignedTransaction);
 
+    /**
+     * Sign an unsigned transaction
+     * @param signingKey Signing key to sign with
+     * @param unsignedTransaction The unsigned transaction bytes
+     * @return The signed transaction bytes
+     */
+    byte[] signTransaction(SigningKey signingKey, byte[] unsignedTransaction);
+
     /**
      * Verify is a signature is valid
      * @param signature The signature
@@ -150,6 +240,21 @@ public interface UzcCrypto {
      */
     boolean verify(byte[] signature, byte[] message, byte[] publicKey, boolean enforceCanonical);
 
+    /**
+     * Verify many signatures in parallel, insisting that they are canonical
+     * @param signedMessages The signed messages to verify
+     * @return A set with bit i set if signedMessages[i] has a valid signature
+     */
+    BitSet verifyBatch(List<SignedMessage> signedMessages);
+
+    /**
+     * Verify many signatures in parallel
+     * @param signedMessages The signed messages to verify
+     * @param enforceCanonical Whether to insist that the signatures are canonical
+     * @return A set with bit i set if signedMessages[i] has a valid signature
+     */
+    BitSet verifyBatch(List<SignedMessage> signedMessages, boolean enforceCanonical);
+
     /**
      * Encrypt a message using AES
      * @param plaintext The message to encrypt
@@ -378,6 +483,14 @@ public interface UzcCrypto {
      */
     byte[] aesSharedDecrypt(String encrypted, byte[] myPrivateKey, byte[] theirPublicKey, byte[] nonce);
 
+    /**
+     * Use the JDK's AES implementation, which is usually hardware accelerated, instead of Bouncy Castle's for
+     * aesEncrypt and aesDecrypt. The output is identical. Disabled by default.
+     * @param useJdkAes Whether to use the JDK's AES implementation
+     * @return Whether the JDK's AES implementation is now used, which is false if the JDK does not provide it or does not allow 256-bit keys
+     */
+    boolean setUseJdkAes(boolean useJdkAes);
+
     /**
      * Encrypt the bytes as a non-text encrypted message (to be included in a transaction)
      * @param message The message to encrypt
@@ -396,6 +509,15 @@ public interface UzcCrypto {
      */
     UzcEncryptedMessage encryptBytesMessage(byte[] message, byte[] myPrivateKey, byte[] theirPublicKey);
 
+    /**
+     * Encrypt the bytes as a non-text encrypted message (to be included in a transaction)
+     * @param message The message to encrypt
+     * @param mySigningKey Your signing key (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The encrypted message
+     */
+    UzcEncryptedMessage encryptBytesMessage(byte[] message, SigningKey mySigningKey, byte[] theirPublicKey);
+
     /**
      * Encrypt the text as a text encrypted message (to be included in a transaction)
      * @param message The message to encrypt
@@ -414,6 +536,15 @@ public interface UzcCrypto {
      */
     UzcEncryptedMessage encryptTextMessage(String message, byte[] myPrivateKey, byte[] theirPublicKey);
 
+    /**
+     * Encrypt the text as a text encrypted message (to be included in a transaction)
+     * @param message The message to encrypt
+     * @param mySigningKey Your signing key (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The encrypted message
+     */
+    UzcEncryptedMessage encryptTextMessage(String message, SigningKey mySigningKey, byte[] theirPublicKey);
+
     /**
      * Decrypt an encrypted message (such as one included in a transaction)
      * @param message The encrypted message
@@ -432,6 +563,84 @@ public interface UzcCrypto {
      */
     byte[] decryptMessage(UzcEncryptedMessage message, byte[] myPrivateKey, byte[] theirPublicKey);
 
+    /**
+     * Decrypt an encrypted message (such as one included in a transaction)
+     * @param message The encrypted message
+     * @param mySigningKey Your signing key (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The plaintext message
+     */
+    byte[] decryptMessage(UzcEncryptedMessage message, SigningKey mySigningKey, byte[] theirPublicKey);
+
+    /**
+     * Compress and encrypt a message in one pass, writing the same encrypted data that
+     * {@link #encryptBytesMessage(byte[], byte[], byte[])} would produce, without holding the message in memory
+     * @param message The message to encrypt. It is read to the end but not closed.
+     * @param encryptedData Where to write the encrypted data. It is not closed.
+     * @param myPassphrase Your passphrase (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The nonce of the encrypted message, which is empty if the message was empty
+     * @throws IOException If reading the message or writing the encrypted data fails
+     */
+    byte[] encryptMessage(InputStream message, OutputStream encryptedData, String myPassphrase, byte[] theirPublicKey) throws IOException;
+
+    /**
+     * Compress and encrypt a message in one pass, writing the same encrypted data that
+     * {@link #encryptBytesMessage(byte[], byte[], byte[])} would produce, without holding the message in memory
+     * @param message The message to encrypt. It is read to the end but not closed.
+     * @param encryptedData Where to write the encrypted data. It is not closed.
+     * @param myPrivateKey Your private key (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The nonce of the encrypted message, which is empty if the message was empty
+     * @throws IOException If reading the message or writing the encrypted data fails
+     */
+    byte[] encryptMessage(InputStream message, OutputStream encryptedData, byte[] myPrivateKey, byte[] theirPublicKey) throws IOException;
+
+    /**
+     * Compress and encrypt a message in one pass, writing the same encrypted data that
+     * {@link #encryptBytesMessage(byte[], byte[], byte[])} would produce, without holding the message in memory
+     * @param message The message to encrypt. It is read to the end but not closed.
+     * @param encryptedData Where to write the encrypted data. It is not closed.
+     * @param mySigningKey Your signing key (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The nonce of the encrypted message, which is empty if the message was empty
+     * @throws IOException If reading the message or writing the encrypted data fails
+     */
+    byte[] encryptMessage(InputStream message, OutputStream encryptedData, SigningKey mySigningKey, byte[] theirPublicKey) throws IOException;
+
+    /**
+     * Decrypt and decompress an encrypted message in one pass, without holding it in memory
+     * @param encryptedData The encrypted data. It is read to the end but not closed.
+     * @param nonce The nonce of the encrypted message
+     * @param message Where to write the plaintext message. It is not closed.
+     * @param myPassphrase Your passphrase (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @throws IOException If reading the encrypted data or writing the message fails, or the encrypted data is invalid
+     */
+    void decryptMessage(InputStream encryptedData, byte[] nonce, OutputStream message, String myPassphrase, byte[] theirPublicKey) throws IOException;
+
+    /**
+     * Decrypt and decompress an encrypted message in one pass, without holding it in memory
+     * @param encryptedData The encrypted data. It is read to the end but not closed.
+     * @param nonce The nonce of the encrypted message
+     * @param message Where to write the plaintext message. It is not closed.
+     * @param myPrivateKey Your private key (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @throws IOException If reading the encrypted data or writing the message fails, or the encrypted data is invalid
+     */
+    void decryptMessage(InputStream encryptedData, byte[] nonce, OutputStream message, byte[] myPrivateKey, byte[] theirPublicKey) throws IOException;
+
+    /**
+     * Decrypt and decompress an encrypted message in one pass, without holding it in memory
+     * @param encryptedData The encrypted data. It is read to the end but not closed.
+     * @param nonce The nonce of the encrypted message
+     * @param message Where to write the plaintext message. It is not closed.
+     * @param mySigningKey Your signing key (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @throws IOException If reading the encrypted data or writing the message fails, or the encrypted data is invalid
+     */
+    void decryptMessage(InputStream encryptedData, byte[] nonce, OutputStream message, SigningKey mySigningKey, byte[] theirPublicKey) throws IOException;
+
     /**
      * Get the Reed-Solomon encoding of a Uzc address. Does not include the "UZC-" prefix.
      * @param uzcID The Uzc ID
@@ -586,6 +795,202 @@ public interface UzcCrypto {
      */
     BigInteger calculateDeadline(UzcAddress accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
 
+    /**
+     * Get the mining round of a block, which holds its scoop and can be passed to the hit and deadline calculations.
+     * Recent rounds are cached, so the scoop of a block is only calculated once.
+     * @param genSig The generation signature of the block
+     * @param height The height of the block
+     * @param baseTarget The base target of the block
+     * @return The mining round of the block
+     */
+    MiningRound getMiningRound(byte[] genSig, long height, long baseTarget);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop)
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The hit of that scoop
+     */
+    BigInteger calculateHit(long accountId, long nonce, MiningRound round, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop)
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The hit of that scoop
+     */
+    BigInteger calculateHit(UzcAddress accountId, long nonce, MiningRound round, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop)
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param scoopData The scoop data, usually read from a disk.
+     * @return The hit of that scoop
+     */
+    BigInteger calculateHit(long accountId, long nonce, MiningRound round, byte[] scoopData);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop)
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param scoopData The scoop data, usually read from a disk.
+     * @return The hit of that scoop
+     */
+    BigInteger calculateHit(UzcAddress accountId, long nonce, MiningRound round, byte[] scoopData);
+
+    /**
+     * Calculate the deadline (hit / baseTarget)
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The deadline of that nonce
+     */
+    BigInteger calculateDeadline(long accountId, long nonce, MiningRound round, int pocVersion);
+
+    /**
+     * Calculate the deadline (hit / baseTarget)
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The deadline of that nonce
+     */
+    BigInteger calculateDeadline(UzcAddress accountId, long nonce, MiningRound round, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoop The scoop
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The hit of that scoop as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateHitLong(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoop The scoop
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The hit of that scoop as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateHitLong(UzcAddress accountId, long nonce, byte[] genSig, int scoop, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoopData The scoop data, usually read from a disk.
+     * @return The hit of that scoop as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateHitLong(long accountId, long nonce, byte[] genSig, byte[] scoopData);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoopData The scoop data, usually read from a disk.
+     * @return The hit of that scoop as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateHitLong(UzcAddress accountId, long nonce, byte[] genSig, byte[] scoopData);
+
+    /**
+     * Calculate the deadline (hit / baseTarget) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoop The scoop
+     * @param baseTarget The base target
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The deadline of that nonce as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateDeadlineLong(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
+
+    /**
+     * Calculate the deadline (hit / baseTarget) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoop The scoop
+     * @param baseTarget The base target
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The deadline of that nonce as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateDeadlineLong(UzcAddress accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The hit of that scoop as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateHitLong(long accountId, long nonce, MiningRound round, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The hit of that scoop as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateHitLong(UzcAddress accountId, long nonce, MiningRound round, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param scoopData The scoop data, usually read from a disk.
+     * @return The hit of that scoop as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateHitLong(long accountId, long nonce, MiningRound round, byte[] scoopData);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param scoopData The scoop data, usually read from a disk.
+     * @return The hit of that scoop as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateHitLong(UzcAddress accountId, long nonce, MiningRound round, byte[] scoopData);
+
+    /**
+     * Calculate the deadline (hit / baseTarget) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The deadline of that nonce as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateDeadlineLong(long accountId, long nonce, MiningRound round, int pocVersion);
+
+    /**
+     * Calculate the deadline (hit / baseTarget) without allocating
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param round The mining round
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The deadline of that nonce as an unsigned 64-bit value. Use {@link Deadlines} to compare it.
+     */
+    long calculateDeadlineLong(UzcAddress accountId, long nonce, MiningRound round, int pocVersion);
+
     /**
      * TODO javadoc
      * @param atVersion
@@ -2,12 +2,17 @@ package uzc.kit.crypto;
 
 import uzc.kit.crypto.ec.Curve25519;
 import uzc.kit.crypto.ec.Curve25519Impl;
+import uzc.kit.crypto.ec.SharedSecretCache;
+import uzc.kit.crypto.ec.SigningKey;
+import uzc.kit.crypto.hash.DigestPool;
 import uzc.kit.crypto.hash.UzcHashProvider;
 import uzc.kit.crypto.hash.shabal.Shabal256;
+import uzc.kit.crypto.plot.MiningRound;
 import uzc.kit.crypto.plot.PlotCalculator;
 import uzc.kit.crypto.plot.impl.PlotCalculatorImpl;
 import uzc.kit.crypto.rs.ReedSolomon;
 import uzc.kit.crypto.rs.ReedSolomonImpl;
+import uzc.kit.entity.SignedMessage;
 import uzc.kit.entity.UzcAddress;
 import uzc.kit.entity.UzcEncryptedMessage;
 import uzc.kit.entity.UzcID;
@@ -15,6 +20,8 @@ import uzc.kit.entity.UzcValue;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.io.CipherInputStream;
+import org.bouncycastle.crypto.io.CipherOutputStream;
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
 import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
 import org.bouncycastle.crypto.params.KeyParameter;
@@ -23,19 +30,30 @@ import org.bouncycastle.jcajce.provider.digest.RIPEMD160;
 import org.bouncycastle.jcajce.provider.digest.SHA256;
 import org.bouncycastle.util.encoders.Hex;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -43,18 +61,30 @@ class UzcCryptoImpl extends AbstractUzcCrypto {
 
     static final UzcCryptoImpl INSTANCE = new UzcCryptoImpl();
 
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
     private final ThreadLocal<SecureRandom> secureRandom = ThreadLocal.withInitial(SecureRandom::new);
     private final Curve25519 curve25519;
     private final ReedSolomon reedSolomon;
     private final PlotCalculator plotCalculator;
     private final long epochBeginning;
+    private final DigestPool sha256;
+    private final DigestPool shabal256;
+    private final DigestPool ripeMD160;
+    private volatile SharedSecretCache sharedSecretCache;
+    private final ThreadLocal<PaddedBufferedBlockCipher> aesCiphers = ThreadLocal.withInitial(UzcCryptoImpl::newAesCipher);
+    private final ThreadLocal<Cipher> jdkAesCiphers = ThreadLocal.withInitial(UzcCryptoImpl::newJdkAesCipher);
+    private volatile boolean useJdkAes;
 
     private UzcCryptoImpl() {
+        UzcHashProvider.init();
+        this.sha256 = new DigestPool("SHA-256", SHA256.Digest::new); // Fallback to Bouncy Castle's implementation
+        this.shabal256 = new DigestPool("Shabal-256", Shabal256::new);
+        this.ripeMD160 = new DigestPool("RIPEMD-160", RIPEMD160.Digest::new); // Fallback to Bouncy Castle's implementation
         this.curve25519 = new Curve25519Impl(this::getSha256);
         this.reedSolomon = new ReedSolomonImpl();
         this.plotCalculator = new PlotCalculatorImpl(this::getShabal256);
         this.epochBeginning = calculateEpochBeginning();
-        UzcHashProvider.init();
     }
 
     private long calculateEpochBeginning() {
@@ -71,34 +101,37 @@ class UzcCryptoImpl extends AbstractUzcCrypto {
 
     @Override
     public MessageDigest getSha256() {
-        try {
-            return MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            return new SHA256.Digest(); // Fallback to Bouncy Castle's implementation
-        }
+        return sha256.create();
     }
 
     @Override
     public MessageDigest getShabal256() {
-        try {
-            return MessageDigest.getInstance("Shabal-256");
-        } catch (NoSuchAlgorithmException e) {
-            return new Shabal256();
-        }
+        return shabal256.create();
     }
 
     @Override
     public MessageDigest getRipeMD160() {
-        try {
-            return MessageDigest.getInstance("RIPEMD-160");
-        } catch (NoSuchAlgorithmException e) {
-            return new RIPEMD160.Digest(); // Fallback to Bouncy Castle's implementation
-        }
+        return ripeMD160.create();
+    }
+
+    @Override
+    public <T> T withSha256(Function<MessageDigest, T> function) {
+        return sha256.apply(function);
+    }
+
+    @Override
+    public <T> T withShabal256(Function<MessageDigest, T> function) {
+        return shabal256.apply(function);
+    }
+
+    @Override
+    public <T> T withRipeMD160(Function<MessageDigest, T> function) {
+        return ripeMD160.apply(function);
     }
 
     @Override
     public byte[] getPrivateKey(String passphrase) {
-        byte[] privateKey = getSha256().digest(stringToBytes(passphrase));
+        byte[] privateKey = withSha256(digest -> digest.digest(stringToBytes(passphrase)));
         curve25519.clampPrivateKey(privateKey);
         return privateKey;
     }
@@ -110,7 +143,7 @@ class UzcCryptoImpl extends AbstractUzcCrypto {
 
     @Override
     public UzcAddress getUzcAddressFromPublic(byte[] publicKey) {
-        return UzcAddress.fromId(hashToId(getSha256().digest(publicKey)));
+        return UzcAddress.fromId(hashToId(withSha256(digest -> digest.digest(publicKey))));
     }
 
     @Override
@@ -123,7 +156,31 @@ class UzcCryptoImpl extends AbstractUzcCrypto {
 
     @Override
     public byte[] getSharedSecret(byte[] myPrivateKey, byte[] theirPublicKey) {
-        return curve25519.getSharedSecret(myPrivateKey, theirPublicKey);
+        SharedSecretCache cache = sharedSecretCache;
+        if (cache == null) {
+            return curve25519.getSharedSecret(myPrivateKey, theirPublicKey);
+        }
+        // Deriving the public key clamps the private key, so give it a copy
+        return cache.get(curve25519.getPublicKey(myPrivateKey.clone()), theirPublicKey, () -> curve25519.getSharedSecret(myPrivateKey, theirPublicKey));
+    }
+
+    @Override
+    public byte[] getSharedSecret(SigningKey mySigningKey, byte[] theirPublicKey) {
+        SharedSecretCache cache = sharedSecretCache;
+        if (cache == null) {
+            return curve25519.getSharedSecret(mySigningKey.getPrivateKey(), theirPublicKey);
+        }
+        return cache.get(mySigningKey.getPublicKey(), theirPublicKey, () -> curve25519.getSharedSecret(mySigningKey.getPrivateKey(), theirPublicKey));
+    }
+
+    @Override
+    public void setSharedSecretCache(SharedSecretCache sharedSecretCache) {
+        this.sharedSecretCache = sharedSecretCache;
+    }
+
+    @Override
+    public SharedSecretCache getSharedSecretCache() {
+        return sharedSecretCache;
     }
 
     @Override
@@ -131,9 +188,27 @@ class UzcCryptoImpl extends AbstractUzcCrypto {
         return curve25519.sign(message, privateKey);
     }
 
+    @Override
+    public SigningKey getSigningKey(byte[] privateKey) {
+        return curve25519.getSigningKey(privateKey);
+    }
+
+    @Override
+    public byte[] sign(byte[] message, SigningKey signingKey) {
+        return curve25519.sign(message, signingKey);
+    }
+
     @Override
     public byte[] signTransaction(byte[] privateKey, byte[] unsignedTransaction) {
-        byte[] signature = sign(unsignedTransaction, privateKey);
+        return insertSignature(unsignedTransaction, sign(unsignedTransaction, privateKey));
+    }
+
+    @Override
+    public byte[] signTransaction(SigningKey signingKey, byte[] unsignedTransaction) {
+        return insertSignature(unsignedTransaction, sign(unsignedTransaction, signingKey));
+    }
+
+    private byte[] insertSignature(byte[] unsignedTransaction, byte[] signature) {
         byte[] signedTransaction = new byte[unsignedTransaction.length];
         System.arraycopy(unsignedTransaction, 0, signedTransaction, 0, unsignedTransaction.length); // Duplicate the transaction
         System.arraycopy(signature, 0, signedTransaction, 96, 64); // Insert the signature
@@ -145,35 +220,50 @@ class UzcCryptoImpl extends AbstractUzcCrypto {
         return curve25519.verify(message, signature, publicKey, enforceCanonical);
     }
 
+    @Override
+    public BitSet verifyBatch(List<SignedMessage> signedMessages, boolean enforceCanonical) {
+        return curve25519.verifyBatch(signedMessages, enforceCanonical);
+    }
+
     @Override
     public byte[] aesEncrypt(byte[] plaintext, byte[] signingKey, byte[] nonce) throws IllegalArgumentException {
         if (signingKey.length != 32) {
             throw new IllegalArgumentException("Key length must be 32 bytes");
         }
         try {
-            for (int i = 0; i < 32; i++) {
-                signingKey[i] ^= nonce[i];
-            }
-            byte[] key = getSha256().digest(signingKey);
+            applyNonce(signingKey, nonce);
             byte[] iv = new byte[16];
             secureRandom.get().nextBytes(iv);
-            PaddedBufferedBlockCipher aes = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
-            CipherParameters ivAndKey = new ParametersWithIV(new KeyParameter(key), iv);
-            aes.init(true, ivAndKey);
-            byte[] output = new byte[aes.getOutputSize(plaintext.length)];
-            int ciphertextLength = aes.processBytes(plaintext, 0, plaintext.length, output, 0);
-            ciphertextLength += aes.doFinal(output, ciphertextLength);
-            byte[] result = new byte[iv.length + ciphertextLength];
+            if (useJdkAes) {
+                Cipher aes = jdkAesCiphers.get();
+                aes.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(aesKey(signingKey), "AES"), new IvParameterSpec(iv));
+                byte[] result = new byte[iv.length + aes.getOutputSize(plaintext.length)];
+                System.arraycopy(iv, 0, result, 0, iv.length);
+                int ciphertextLength = aes.doFinal(plaintext, 0, plaintext.length, result, iv.length);
+                return iv.length + ciphertextLength == result.length ? result : Arrays.copyOf(result, iv.length + ciphertextLength);
+            }
+            PaddedBufferedBlockCipher aes = aesCiphers.get();
+            initAesCipher(aes, true, signingKey, iv);
+            byte[] result = new byte[iv.length + aes.getOutputSize(plaintext.length)];
             System.arraycopy(iv, 0, result, 0, iv.length);
-            System.arraycopy(output, 0, result, iv.length, ciphertextLength);
-            return result;
-        } catch (InvalidCipherTextException e) {
+            int ciphertextLength = aes.processBytes(plaintext, 0, plaintext.length, result, iv.length);
+            ciphertextLength += aes.doFinal(result, iv.length + ciphertextLength);
+            return iv.length + ciphertextLength == result.length ? result : Arrays.copyOf(result, iv.length + ciphertextLength);
+        } catch (InvalidCipherTextException | GeneralSecurityException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
     @Override
     public byte[] aesDecrypt(byte[] encrypted, byte[] signingKey, byte[] nonce) throws IllegalArgumentException {
+        ByteBuffer plaintext = aesDecryptToBuffer(encrypted, signingKey, nonce);
+        return plaintext.limit() == plaintext.capacity() ? plaintext.array() : Arrays.copyOf(plaintext.array(), plaintext.limit());
+    }
+
+    /**
+     * @return The plaintext, in a buffer wrapping the cipher's output array, which may be longer than the plaintext
+     */
+    private ByteBuffer aesDecryptToBuffer(byte[] encrypted, byte[] signingKey, byte[] nonce) throws IllegalArgumentException {
         if (signingKey.length != 32) {
             throw new IllegalArgumentException("Key length must be 32 bytes");
         }
@@ -181,73 +271,237 @@ class UzcCryptoImpl extends AbstractUzcCrypto {
             if (encrypted.length < 16 || encrypted.length % 16 != 0) {
                 throw new InvalidCipherTextException("invalid ciphertext"); // TODO
             }
-            byte[] iv = Arrays.copyOfRange(encrypted, 0, 16);
-            byte[] ciphertext = Arrays.copyOfRange(encrypted, 16, encrypted.length);
-            for (int i = 0; i < 32; i++) {
-                signingKey[i] ^= nonce[i];
+            applyNonce(signingKey, nonce);
+            int ciphertextLength = encrypted.length - 16;
+            if (useJdkAes) {
+                Cipher aes = jdkAesCiphers.get();
+                aes.init(Cipher.DECRYPT_MODE, new SecretKeySpec(aesKey(signingKey), "AES"), new IvParameterSpec(encrypted, 0, 16));
+                byte[] output = new byte[aes.getOutputSize(ciphertextLength)];
+                int plaintextLength = aes.doFinal(encrypted, 16, ciphertextLength, output, 0);
+                return ByteBuffer.wrap(output, 0, plaintextLength);
             }
-            byte[] key = getSha256().digest(signingKey);
-            PaddedBufferedBlockCipher aes = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
-            CipherParameters ivAndKey = new ParametersWithIV(new KeyParameter(key), iv);
-            aes.init(false, ivAndKey);
-            byte[] output = new byte[aes.getOutputSize(ciphertext.length)];
-            int plaintextLength = aes.processBytes(ciphertext, 0, ciphertext.length, output, 0);
+            PaddedBufferedBlockCipher aes = aesCiphers.get();
+            initAesCipher(aes, false, signingKey, Arrays.copyOf(encrypted, 16));
+            byte[] output = new byte[aes.getOutputSize(ciphertextLength)];
+            int plaintextLength = aes.processBytes(encrypted, 16, ciphertextLength, output, 0);
             plaintextLength += aes.doFinal(output, plaintextLength);
-            byte[] result = new byte[plaintextLength];
-            System.arraycopy(output, 0, result, 0, result.length);
-            return result;
-        } catch (InvalidCipherTextException e) {
+            return ByteBuffer.wrap(output, 0, plaintextLength);
+        } catch (InvalidCipherTextException | GeneralSecurityException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
+    @Override
+    public boolean setUseJdkAes(boolean useJdkAes) {
+        if (useJdkAes) {
+            try {
+                // Check that the JDK has AES and allows 256-bit keys before switching, as older JREs limit the key length
+                jdkAesCiphers.get().init(Cipher.ENCRYPT_MODE, new SecretKeySpec(new byte[32], "AES"), new IvParameterSpec(new byte[16]));
+            } catch (IllegalStateException | GeneralSecurityException e) {
+                return this.useJdkAes = false;
+            }
+        }
+        return this.useJdkAes = useJdkAes;
+    }
+
+    private static void applyNonce(byte[] signingKey, byte[] nonce) {
+        for (int i = 0; i < 32; i++) {
+            signingKey[i] ^= nonce[i];
+        }
+    }
+
+    /**
+     * @param signingKey The signing key, with the nonce already applied
+     */
+    private byte[] aesKey(byte[] signingKey) {
+        return withSha256(digest -> digest.digest(signingKey));
+    }
+
+    private static PaddedBufferedBlockCipher newAesCipher() {
+        return new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
+    }
+
+    private static Cipher newJdkAesCipher() {
+        try {
+            return Cipher.getInstance("AES/CBC/PKCS5Padding"); // PKCS5 padding with 16 byte blocks is Bouncy Castle's PKCS7 padding
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param signingKey The signing key, with the nonce already applied
+     */
+    private void initAesCipher(PaddedBufferedBlockCipher aes, boolean forEncryption, byte[] signingKey, byte[] iv) {
+        CipherParameters ivAndKey = new ParametersWithIV(new KeyParameter(aesKey(signingKey)), iv);
+        aes.init(forEncryption, ivAndKey);
+    }
+
     @Override
     public UzcEncryptedMessage encryptBytesMessage(byte[] message, byte[] myPrivateKey, byte[] theirPublicKey) {
-        return encryptPlainMessage(message, false, myPrivateKey, theirPublicKey);
+        return encryptPlainMessage(message, false, () -> getSharedSecret(myPrivateKey, theirPublicKey));
+    }
+
+    @Override
+    public UzcEncryptedMessage encryptBytesMessage(byte[] message, SigningKey mySigningKey, byte[] theirPublicKey) {
+        return encryptPlainMessage(message, false, () -> getSharedSecret(mySigningKey, theirPublicKey));
     }
 
     @Override
     public UzcEncryptedMessage encryptTextMessage(String message, byte[] myPrivateKey, byte[] theirPublicKey) {
-        return encryptPlainMessage(stringToBytes(message), true, myPrivateKey, theirPublicKey);
+        return encryptPlainMessage(stringToBytes(message), true, () -> getSharedSecret(myPrivateKey, theirPublicKey));
     }
 
-    private UzcEncryptedMessage encryptPlainMessage(byte[] message, boolean isText, byte[] myPrivateKey, byte[] theirPublicKey) {
-        if (message.length == 0) {
-            return new UzcEncryptedMessage(new byte[0], new byte[0], isText);
-        }
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream(); GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
-            gzip.write(message);
-            gzip.flush();
-            gzip.close();
-            byte[] compressedPlaintext = bos.toByteArray();
-            byte[] nonce = new byte[32];
-            secureRandom.get().nextBytes(nonce);
-            byte[] data = aesSharedEncrypt(compressedPlaintext, myPrivateKey, theirPublicKey, nonce);
-            return new UzcEncryptedMessage(data, nonce, isText);
+    @Override
+    public UzcEncryptedMessage encryptTextMessage(String message, SigningKey mySigningKey, byte[] theirPublicKey) {
+        return encryptPlainMessage(stringToBytes(message), true, () -> getSharedSecret(mySigningKey, theirPublicKey));
+    }
+
+    private UzcEncryptedMessage encryptPlainMessage(byte[] message, boolean isText, Supplier<byte[]> sharedSecret) {
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream(message.length / 2 + 64);
+            byte[] nonce = encryptMessage(new ByteArrayInputStream(message), data, sharedSecret);
+            return new UzcEncryptedMessage(data.toByteArray(), nonce, isText);
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
+    @Override
+    public byte[] encryptMessage(InputStream message, OutputStream encryptedData, byte[] myPrivateKey, byte[] theirPublicKey) throws IOException {
+        return encryptMessage(message, encryptedData, () -> getSharedSecret(myPrivateKey, theirPublicKey));
+    }
+
+    @Override
+    public byte[] encryptMessage(InputStream message, OutputStream encryptedData, SigningKey mySigningKey, byte[] theirPublicKey) throws IOException {
+        return encryptMessage(message, encryptedData, () -> getSharedSecret(mySigningKey, theirPublicKey));
+    }
+
+    /**
+     * Compress the message straight into the cipher, which writes straight to the output, so nothing is buffered
+     * beyond the compressor's and the cipher's own buffers.
+     */
+    private byte[] encryptMessage(InputStream message, OutputStream encryptedData, Supplier<byte[]> sharedSecret) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        int read = message.read(buffer);
+        if (read < 0) {
+            return new byte[0]; // Empty messages are not encrypted
+        }
+        byte[] nonce = new byte[32];
+        secureRandom.get().nextBytes(nonce);
+        byte[] iv = new byte[16];
+        secureRandom.get().nextBytes(iv);
+        byte[] signingKey = sharedSecret.get();
+        applyNonce(signingKey, nonce);
+        PaddedBufferedBlockCipher aes = newAesCipher(); // Not the thread's cipher, as writing to the caller's stream could use that
+        initAesCipher(aes, true, signingKey, iv);
+        encryptedData.write(iv);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new CipherOutputStream(new ShieldedOutputStream(encryptedData), aes), STREAM_BUFFER_SIZE)) {
+            do {
+                gzip.write(buffer, 0, read);
+            } while ((read = message.read(buffer)) >= 0);
+        }
+        return nonce;
+    }
+
     @Override
     public byte[] decryptMessage(UzcEncryptedMessage message, byte[] myPrivateKey, byte[] theirPublicKey) {
+        return decryptMessage(message, () -> getSharedSecret(myPrivateKey, theirPublicKey));
+    }
+
+    @Override
+    public byte[] decryptMessage(UzcEncryptedMessage message, SigningKey mySigningKey, byte[] theirPublicKey) {
+        return decryptMessage(message, () -> getSharedSecret(mySigningKey, theirPublicKey));
+    }
+
+    /**
+     * The whole message is already in memory, so decrypt it in one go with the thread's cipher rather than streaming it.
+     */
+    private byte[] decryptMessage(UzcEncryptedMessage message, Supplier<byte[]> sharedSecret) {
         if (message.getData().length == 0) {
             return message.getData();
         }
-        byte[] compressedPlaintext = aesSharedDecrypt(message.getData(), myPrivateKey, theirPublicKey, message.getNonce());
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(compressedPlaintext); GZIPInputStream gzip = new GZIPInputStream(bis); ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            byte[] buffer = new byte[1024];
-            int nRead;
-            while((nRead = gzip.read(buffer, 0, buffer.length)) > 0) {
-                bos.write(buffer, 0, nRead);
+        ByteBuffer compressedPlaintext = aesDecryptToBuffer(message.getData(), sharedSecret.get(), message.getNonce());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressedPlaintext.array(), 0, compressedPlaintext.limit()), STREAM_BUFFER_SIZE)) {
+            ByteArrayOutputStream plaintext = new ByteArrayOutputStream(compressedPlaintext.limit() * 2);
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            int read;
+            while ((read = gzip.read(buffer)) >= 0) {
+                plaintext.write(buffer, 0, read);
             }
-            bos.flush();
-            return bos.toByteArray();
+            return plaintext.toByteArray();
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
+    @Override
+    public void decryptMessage(InputStream encryptedData, byte[] nonce, OutputStream message, byte[] myPrivateKey, byte[] theirPublicKey) throws IOException {
+        decryptMessage(encryptedData, nonce, message, () -> getSharedSecret(myPrivateKey, theirPublicKey));
+    }
+
+    @Override
+    public void decryptMessage(InputStream encryptedData, byte[] nonce, OutputStream message, SigningKey mySigningKey, byte[] theirPublicKey) throws IOException {
+        decryptMessage(encryptedData, nonce, message, () -> getSharedSecret(mySigningKey, theirPublicKey));
+    }
+
+    private void decryptMessage(InputStream encryptedData, byte[] nonce, OutputStream message, Supplier<byte[]> sharedSecret) throws IOException {
+        byte[] iv = new byte[16];
+        int ivLength = 0;
+        int read;
+        while (ivLength < iv.length && (read = encryptedData.read(iv, ivLength, iv.length - ivLength)) >= 0) {
+            ivLength += read;
+        }
+        if (ivLength == 0) {
+            return; // Empty messages are not encrypted
+        }
+        if (ivLength < iv.length) {
+            throw new IOException("invalid ciphertext");
+        }
+        byte[] signingKey = sharedSecret.get();
+        applyNonce(signingKey, nonce);
+        PaddedBufferedBlockCipher aes = newAesCipher(); // Not the thread's cipher, as reading the caller's stream could use that
+        initAesCipher(aes, false, signingKey, iv);
+        try (GZIPInputStream gzip = new GZIPInputStream(new CipherInputStream(new ShieldedInputStream(encryptedData), aes), STREAM_BUFFER_SIZE)) {
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            while ((read = gzip.read(buffer)) >= 0) {
+                message.write(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Keeps the caller's stream open when the streams wrapping it are closed
+     */
+    private static final class ShieldedInputStream extends FilterInputStream {
+        private ShieldedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Keeps the caller's stream open when the streams wrapping it are closed
+     */
+    private static final class ShieldedOutputStream extends FilterOutputStream {
+        private ShieldedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
     @Override
     public String rsEncode(UzcID uzcID) {
         return reedSolomon.encode(uzcID.getSignedLongId());
@@ -345,6 +599,56 @@ class UzcCryptoImpl extends AbstractUzcCrypto {
         return plotCalculator.calculateDeadline(accountId, nonce, genSig, scoop, baseTarget, pocVersion);
     }
 
+    @Override
+    public MiningRound getMiningRound(byte[] genSig, long height, long baseTarget) {
+        return plotCalculator.getMiningRound(genSig, height, baseTarget);
+    }
+
+    @Override
+    public BigInteger calculateHit(long accountId, long nonce, MiningRound round, int pocVersion) {
+        return plotCalculator.calculateHit(accountId, nonce, round, pocVersion);
+    }
+
+    @Override
+    public BigInteger calculateHit(long accountId, long nonce, MiningRound round, byte[] scoopData) {
+        return plotCalculator.calculateHit(accountId, nonce, round, scoopData);
+    }
+
+    @Override
+    public BigInteger calculateDeadline(long accountId, long nonce, MiningRound round, int pocVersion) {
+        return plotCalculator.calculateDeadline(accountId, nonce, round, pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion) {
+        return plotCalculator.calculateHitLong(accountId, nonce, genSig, scoop, pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(long accountId, long nonce, byte[] genSig, byte[] scoopData) {
+        return plotCalculator.calculateHitLong(accountId, nonce, genSig, scoopData);
+    }
+
+    @Override
+    public long calculateDeadlineLong(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
+        return plotCalculator.calculateDeadlineLong(accountId, nonce, genSig, scoop, baseTarget, pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(long accountId, long nonce, MiningRound round, int pocVersion) {
+        return plotCalculator.calculateHitLong(accountId, nonce, round, pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(long accountId, long nonce, MiningRound round, byte[] scoopData) {
+        return plotCalculator.calculateHitLong(accountId, nonce, round, scoopData);
+    }
+
+    @Override
+    public long calculateDeadlineLong(long accountId, long nonce, MiningRound round, int pocVersion) {
+        return plotCalculator.calculateDeadlineLong(accountId, nonce, round, pocVersion);
+    }
+
     private void putLength(int nPages, int length, ByteBuffer buffer) {
         if (nPages * 256 <= 256) {
             buffer.put((byte) length);
@@ -1,10 +1,38 @@
 package uzc.kit.crypto.ec;
 
+import uzc.kit.entity.SignedMessage;
+
+import java.util.BitSet;
+import java.util.List;
+
 public interface Curve25519 {
     void clampPrivateKey(byte[] privateKey);
     byte[] getPublicKey(byte[] privateKey);
     byte[] getSharedSecret(byte[] privateKey, byte[] publicKey);
 
     byte[] sign(byte[] message, byte[] privateKey);
+
+    /**
+     * Derive the public key and signing scalar of a private key once, for signing many messages
+     * @param privateKey The private key. It is copied and clamped.
+     * @return The signing key
+     */
+    SigningKey getSigningKey(byte[] privateKey);
+
+    /**
+     * Sign a message without deriving the public key and signing scalar again
+     * @param message The message to sign
+     * @param signingKey The signing key to sign with
+     * @return The signature
+     */
+    byte[] sign(byte[] message, SigningKey signingKey);
     boolean verify(byte[] message, byte[] signature, byte[] publicKey, boolean enforceCanonical);
+
+    /**
+     * Verify many signatures in parallel
+     * @param signedMessages The signed messages to verify
+     * @param enforceCanonical Whether to insist that the signatures are canonical
+     * @return A set with bit i set if signedMessages[i] has a valid signature
+     */
+    BitSet verifyBatch(List<SignedMessage> signedMessages, boolean enforceCanonical);
 }
@@ -1,15 +1,38 @@
 package uzc.kit.crypto.ec;
 
+import uzc.kit.entity.SignedMessage;
+
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Supplier;
 
 public class Curve25519Impl implements Curve25519 {
 
+    /**
+     * Below this many signatures, a batch is verified on one thread
+     */
+    private static final int SIGNATURES_PER_TASK = 8;
+
     private final Supplier<MessageDigest> sha256Supplier;
+    private final ForkJoinPool forkJoinPool;
+    private final ThreadLocal<VerifyScratch> verifyScratch;
 
     public Curve25519Impl(Supplier<MessageDigest> sha256Supplier) {
+        this(sha256Supplier, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param forkJoinPool The pool to verify batches of signatures in
+     */
+    public Curve25519Impl(Supplier<MessageDigest> sha256Supplier, ForkJoinPool forkJoinPool) {
         this.sha256Supplier = sha256Supplier;
+        this.forkJoinPool = forkJoinPool;
+        this.verifyScratch = ThreadLocal.withInitial(() -> new VerifyScratch(sha256Supplier.get()));
     }
 
     @Override
@@ -35,8 +58,26 @@ public class Curve25519Impl implements Curve25519 {
     public byte[] sign(byte[] message, byte[] privateKey) {
         byte[] publicKey = new byte[32];
         byte[] sharedKey = new byte[32];
-        MessageDigest digest = sha256Supplier.get();
         Curve25519.keygen(publicKey, sharedKey, privateKey);
+        return signWithSharedKey(message, sharedKey);
+    }
+
+    @Override
+    public SigningKey getSigningKey(byte[] privateKey) {
+        byte[] clampedPrivateKey = privateKey.clone();
+        byte[] publicKey = new byte[32];
+        byte[] sharedKey = new byte[32];
+        Curve25519.keygen(publicKey, sharedKey, clampedPrivateKey);
+        return new SigningKey(clampedPrivateKey, publicKey, sharedKey);
+    }
+
+    @Override
+    public byte[] sign(byte[] message, SigningKey signingKey) {
+        return signWithSharedKey(message, signingKey.getSharedKey());
+    }
+
+    private byte[] signWithSharedKey(byte[] message, byte[] sharedKey) {
+        MessageDigest digest = sha256Supplier.get();
         byte[] messageDigest = digest.digest(message);
 
         digest.update(messageDigest);
@@ -57,6 +98,25 @@ public class Curve25519Impl implements Curve25519 {
 
     @Override
     public boolean verify(byte[] message, byte[] signature, byte[] publicKey, boolean enforceCanonical) {
+        return verify(message, signature, publicKey, enforceCanonical, verifyScratch.get());
+    }
+
+    @Override
+    public BitSet verifyBatch(List<SignedMessage> signedMessages, boolean enforceCanonical) {
+        SignedMessage[] batch = signedMessages.toArray(new SignedMessage[0]);
+        boolean[] valid = new boolean[batch.length];
+        forkJoinPool.invoke(new VerifyTask(batch, enforceCanonical, valid, 0, batch.length));
+        BitSet result = new BitSet(batch.length);
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) result.set(i);
+        }
+        return result;
+    }
+
+    /**
+     * Verify a signature using this thread's scratch buffers and digest
+     */
+    private static boolean verify(byte[] message, byte[] signature, byte[] publicKey, boolean enforceCanonical, VerifyScratch scratch) {
         if (enforceCanonical && !Curve25519.isCanonicalSignature(signature)) {
             return false;
         }
@@ -65,19 +125,81 @@ public class Curve25519Impl implements Curve25519 {
             return false;
         }
 
-        byte[] Y = new byte[32];
-        byte[] v = new byte[32];
+        byte[] Y = scratch.Y;
+        byte[] v = scratch.v;
         System.arraycopy(signature, 0, v, 0, 32);
-        byte[] h = new byte[32];
+        byte[] h = scratch.h;
         System.arraycopy(signature, 32, h, 0, 32);
         Curve25519.verify(Y, v, h, publicKey);
 
-        MessageDigest digest = sha256Supplier.get();
-        byte[] m = digest.digest(message);
+        MessageDigest digest = scratch.sha256;
+        byte[] m = scratch.m;
+        digest.update(message);
+        digestInto(digest, m);
         digest.update(m);
-        byte[] h2 = digest.digest(Y);
+        digest.update(Y);
+        digestInto(digest, m); /* m = h2  */
+
+        return Arrays.equals(h, m);
+    }
+
+    private static void digestInto(MessageDigest digest, byte[] buffer) {
+        try {
+            digest.digest(buffer, 0, buffer.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static final class VerifyScratch {
+        private final MessageDigest sha256;
+        private final byte[] Y = new byte[32];
+        private final byte[] v = new byte[32];
+        private final byte[] h = new byte[32];
+        private final byte[] m = new byte[32];
 
-        return Arrays.equals(h, h2);
+        private VerifyScratch(MessageDigest sha256) {
+            this.sha256 = sha256;
+        }
+    }
+
+    private static boolean isWellFormed(SignedMessage signedMessage) {
+        return signedMessage != null && signedMessage.getMessage() != null
+                && signedMessage.getSignature() != null && signedMessage.getSignature().length == 64
+                && signedMessage.getPublicKey() != null && signedMessage.getPublicKey().length == 32;
+    }
+
+    @SuppressWarnings("serial") // Never serialized
+    private class VerifyTask extends RecursiveAction {
+        private final SignedMessage[] batch;
+        private final boolean enforceCanonical;
+        private final boolean[] valid;
+        private final int from;
+        private final int to;
+
+        private VerifyTask(SignedMessage[] batch, boolean enforceCanonical, boolean[] valid, int from, int to) {
+            this.batch = batch;
+            this.enforceCanonical = enforceCanonical;
+            this.valid = valid;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SIGNATURES_PER_TASK) {
+                VerifyScratch scratch = verifyScratch.get();
+                for (int i = from; i < to; i++) {
+                    SignedMessage signedMessage = batch[i];
+                    // A malformed entry is invalid rather than failing the whole batch
+                    valid[i] = isWellFormed(signedMessage) && verify(signedMessage.getMessage(), signedMessage.getSignature(), signedMessage.getPublicKey(), enforceCanonical, scratch);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new VerifyTask(batch, enforceCanonical, valid, from, mid),
+                        new VerifyTask(batch, enforceCanonical, valid, mid, to));
+            }
+        }
     }
 
     /* Ported from C to Java by Dmitry Skiba [sahn0], 23/02/08.
@@ -127,7 +249,7 @@ public class Curve25519Impl implements Curve25519 {
          * WARNING: if s is not NULL, this function has data-dependent timing */
         public static void keygen(byte[] P, byte[] s, byte[] k) {
             clamp(k);
-            core(P, s, k, null);
+            core_base(P, s, k);
         }
 
         /* Key agreement
@@ -904,23 +1026,237 @@ public class Curve25519Impl implements Curve25519 {
                 sub(dx, dx, t1); /* dx = t2 (Px - Gx)^2 - Py^2  */
                 dx._0 -= 39420360; /* dx = t2 (Px - Gx)^2 - Py^2 - Gy^2  */
                 mul(t1, dx, BASE_R2Y); /* t1 = -Py  */
-                if (is_negative(t1) != 0) /* sign is 1, so just copy  */
-                    cpy32(s, k);
-                else /* sign is -1, so negate  */
-                    mula_small(s, ORDER_TIMES_8, 0, k, 32, -1);
-
-                /* reduce s mod q
-                 * (is this needed?  do it just in case, it's fast anyway) */
-                //divmod((dstptr) t1, s, 32, order25519, 32);
-
-                /* take reciprocal of s mod q */
-                byte[] temp1 = new byte[32];
-                byte[] temp2 = new byte[64];
-                byte[] temp3 = new byte[64];
-                cpy32(temp1, ORDER);
-                cpy32(s, egcd32(temp2, temp3, s, temp1));
-                if ((s[31] & 0x80) != 0)
-                    mula_small(s, s, 0, ORDER, 32, 1);
+                signing_key(s, k, t1);
+            }
+        }
+
+        /* s = sign(P)/k, given -Py of P = kG  */
+        private static void signing_key(byte[] s, byte[] k, long10 minusPy) {
+            if (is_negative(minusPy) != 0) /* sign is 1, so just copy  */
+                cpy32(s, k);
+            else /* sign is -1, so negate  */
+                mula_small(s, ORDER_TIMES_8, 0, k, 32, -1);
+
+            /* reduce s mod q
+             * (is this needed?  do it just in case, it's fast anyway) */
+            //divmod((dstptr) t1, s, 32, order25519, 32);
+
+            /* take reciprocal of s mod q */
+            byte[] temp1 = new byte[32];
+            byte[] temp2 = new byte[64];
+            byte[] temp3 = new byte[64];
+            cpy32(temp1, ORDER);
+            cpy32(s, egcd32(temp2, temp3, s, temp1));
+            if ((s[31] & 0x80) != 0)
+                mula_small(s, s, 0, ORDER, 32, 1);
+        }
+
+        /********************* Fixed-base scalar multiplication *********************/
+
+        /* keygen always multiplies the base point, so rather than running the ladder it works on the
+         * birationally equivalent twisted Edwards curve  -x^2 + y^2 = 1 + d x^2 y^2  (Ed25519), where points
+         * can be added, using a table of multiples of the base point built once (as in ref10's
+         * ge_scalarmult_base). k is split into 64 signed 4-bit digits, so kG is 64 table additions and
+         * 4 doublings instead of 255 ladder steps. Table entries are selected without secret-dependent
+         * branches or indices. The Montgomery u = (1 + y)/(1 - y) of the result is the public key.  */
+
+        /* Extended coordinates: x = X/Z, y = Y/Z, xy = T/Z  */
+        private static final class ge_p3 {
+            final long10 X = new long10(), Y = new long10(), Z = new long10(), T = new long10();
+        }
+
+        /* Affine point as (y + x, y - x, 2dxy)  */
+        private static final class ge_precomp {
+            final long10 ypx = new long10(), ymx = new long10(), xy2d = new long10();
+        }
+
+        /* BASE_TABLE[i][j] = (j + 1) 256^i G, built on first use  */
+        private static final class BaseTable {
+            private static final ge_precomp[][] BASE_TABLE = build();
+
+            private static ge_precomp[][] build() {
+                ge_precomp[][] table = new ge_precomp[32][8];
+                long10[] t = temps();
+                ge_p3 base = new ge_p3(), acc = new ge_p3();
+                ge_precomp baseNiels = new ge_precomp();
+                cpy(base.X, ED_BASE_X);
+                cpy(base.Y, ED_BASE_Y);
+                set(base.Z, 1);
+                mul(base.T, ED_BASE_X, ED_BASE_Y);
+                for (int i = 0; i < 32; i++) {
+                    to_precomp(baseNiels, base, t);
+                    ge_identity(acc);
+                    for (int j = 0; j < 8; j++) {
+                        ge_madd(acc, acc, baseNiels, t);
+                        table[i][j] = new ge_precomp();
+                        to_precomp(table[i][j], acc, t);
+                    }
+                    for (int j = 0; j < 8; j++) {
+                        ge_dbl(base, base, t);
+                    }
+                }
+                return table;
+            }
+        }
+
+        private static long10[] temps() {
+            return new long10[] { new long10(), new long10(), new long10(), new long10(), new long10() };
+        }
+
+        private static void ge_identity(ge_p3 p) {
+            set(p.X, 0);
+            set(p.Y, 1);
+            set(p.Z, 1);
+            set(p.T, 0);
+        }
+
+        /* r = affine form of p. t holds 3 temporaries  */
+        private static void to_precomp(ge_precomp r, ge_p3 p, long10[] t) {
+            long10 zi = t[0], x = t[1], y = t[2];
+            recip(zi, p.Z, 0);
+            mul(x, p.X, zi);
+            mul(y, p.Y, zi);
+            add(r.ypx, y, x);
+            mul_small(r.ypx, r.ypx, 1);
+            sub(r.ymx, y, x);
+            mul_small(r.ymx, r.ymx, 1);
+            mul(zi, x, y);
+            mul(r.xy2d, zi, ED_2D);
+        }
+
+        /* r = p + q. r may be p. t holds 5 temporaries  */
+        private static void ge_madd(ge_p3 r, ge_p3 p, ge_precomp q, long10[] t) {
+            long10 a = t[0], b = t[1], c = t[2], d = t[3], e = t[4];
+            add(a, p.Y, p.X);
+            sub(b, p.Y, p.X);
+            mul(a, a, q.ypx); /* A = (Y + X)(y + x)  */
+            mul(b, b, q.ymx); /* B = (Y - X)(y - x)  */
+            mul(c, q.xy2d, p.T); /* C = 2dxyT  */
+            mul_small(d, p.Z, 2); /* D = 2Z  */
+            sub(e, a, b); /* E = A - B  */
+            add(a, a, b); /* H = A + B  */
+            add(b, d, c); /* G = D + C  */
+            sub(d, d, c); /* F = D - C  */
+            mul(r.X, e, d);
+            mul(r.Y, a, b);
+            mul(r.Z, b, d);
+            mul(r.T, e, a);
+        }
+
+        /* r = 2p. r may be p. t holds 5 temporaries  */
+        private static void ge_dbl(ge_p3 r, ge_p3 p, long10[] t) {
+            long10 xx = t[0], yy = t[1], zz = t[2], aa = t[3], y1 = t[4];
+            sqr(xx, p.X);
+            sqr(yy, p.Y);
+            sqr(zz, p.Z);
+            mul_small(zz, zz, 2); /* B = 2Z^2  */
+            add(aa, p.X, p.Y);
+            sqr(aa, aa); /* (X + Y)^2  */
+            add(y1, yy, xx);
+            mul_small(y1, y1, 1); /* Y' = YY + XX  */
+            sub(yy, yy, xx);
+            mul_small(yy, yy, 1); /* Z' = YY - XX  */
+            sub(xx, aa, y1); /* X' = (X + Y)^2 - YY - XX  */
+            sub(zz, zz, yy); /* T' = B - Z'  */
+            mul(r.X, xx, zz);
+            mul(r.Y, y1, yy);
+            mul(r.Z, yy, zz);
+            mul(r.T, xx, y1);
+        }
+
+        /* f = g if flag is 1, unchanged if flag is 0, without branching  */
+        private static void cmov(long10 f, long10 g, int flag) {
+            long mask = -(long) flag;
+            f._0 ^= (f._0 ^ g._0) & mask;
+            f._1 ^= (f._1 ^ g._1) & mask;
+            f._2 ^= (f._2 ^ g._2) & mask;
+            f._3 ^= (f._3 ^ g._3) & mask;
+            f._4 ^= (f._4 ^ g._4) & mask;
+            f._5 ^= (f._5 ^ g._5) & mask;
+            f._6 ^= (f._6 ^ g._6) & mask;
+            f._7 ^= (f._7 ^ g._7) & mask;
+            f._8 ^= (f._8 ^ g._8) & mask;
+            f._9 ^= (f._9 ^ g._9) & mask;
+        }
+
+        /* r = b 256^pos G for b in -8..8, reading every entry of the row  */
+        private static void ge_select(ge_precomp r, ge_precomp minus, ge_precomp[] row, int b) {
+            int negative = b >>> 31;
+            int abs = b - ((-negative & b) << 1);
+            set(r.ypx, 1);
+            set(r.ymx, 1);
+            set(r.xy2d, 0);
+            for (int j = 0; j < 8; j++) {
+                int equal = ((abs ^ (j + 1)) - 1) >>> 31;
+                cmov(r.ypx, row[j].ypx, equal);
+                cmov(r.ymx, row[j].ymx, equal);
+                cmov(r.xy2d, row[j].xy2d, equal);
+            }
+            /* -(x, y) = (-x, y), which swaps y + x and y - x and negates 2dxy  */
+            cpy(minus.ypx, r.ymx);
+            cpy(minus.ymx, r.ypx);
+            set(minus.xy2d, 0);
+            sub(minus.xy2d, minus.xy2d, r.xy2d);
+            cmov(r.ypx, minus.ypx, negative);
+            cmov(r.ymx, minus.ymx, negative);
+            cmov(r.xy2d, minus.xy2d, negative);
+        }
+
+        /* h = kG, k[31] <= 127  */
+        private static void scalarmult_base(ge_p3 h, byte[] k, long10[] t) {
+            ge_precomp[][] table = BaseTable.BASE_TABLE;
+            int[] e = new int[64];
+            int i, carry;
+            for (i = 0; i < 32; i++) {
+                e[2 * i] = k[i] & 15;
+                e[2 * i + 1] = (k[i] >> 4) & 15;
+            }
+            /* each e[i] is between 0 and 15, make them between -8 and 7 (e[63] between 0 and 8)  */
+            carry = 0;
+            for (i = 0; i < 63; i++) {
+                e[i] += carry;
+                carry = (e[i] + 8) >> 4;
+                e[i] -= carry << 4;
+            }
+            e[63] += carry;
+
+            ge_precomp q = new ge_precomp(), minus = new ge_precomp();
+            ge_identity(h);
+            for (i = 1; i < 64; i += 2) {
+                ge_select(q, minus, table[i / 2], e[i]);
+                ge_madd(h, h, q, t);
+            }
+            ge_dbl(h, h, t);
+            ge_dbl(h, h, t);
+            ge_dbl(h, h, t);
+            ge_dbl(h, h, t);
+            for (i = 0; i < 64; i += 2) {
+                ge_select(q, minus, table[i / 2], e[i]);
+                ge_madd(h, h, q, t);
+            }
+        }
+
+        /* P = kG   and  s = sign(P)/k, like core(Px, s, k, null)  */
+        private static void core_base(byte[] Px, byte[] s, byte[] k) {
+            long10[] t = temps();
+            ge_p3 h = new ge_p3();
+            long10 zpy = new long10(), u = new long10(), inv = new long10(), t1 = new long10();
+            scalarmult_base(h, k, t);
+
+            /* u = (Z + Y)/(Z - Y), with one inversion of (Z - Y) X that also gives 1/x for the sign  */
+            add(zpy, h.Z, h.Y);
+            sub(t1, h.Z, h.Y);
+            mul(t1, t1, h.X);
+            recip(inv, t1, 0); /* inv = 1/((Z - Y) X)  */
+            mul(t1, zpy, h.X);
+            mul(u, t1, inv);
+            pack(u, Px);
+
+            if (s != null) {
+                mul(t1, zpy, h.Z);
+                mul(t1, t1, inv); /* t1 = u/x  */
+                mul(t1, t1, MONT_MINUS_Y_SCALE); /* t1 = -Py  */
+                signing_key(s, k, t1);
             }
         }
 
@@ -928,6 +1264,12 @@ public class Curve25519Impl implements Curve25519 {
         private static final byte[] ORDER_TIMES_8 = { (byte) 104, (byte) 159, (byte) 174, (byte) 231, (byte) 210, (byte) 24, (byte) 147, (byte) 192, (byte) 178, (byte) 230, (byte) 188, (byte) 23, (byte) 245, (byte) 206, (byte) 247, (byte) 166, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0,
                 (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 128 };
 
+        /* Edwards base point, and -Py = MONT_MINUS_Y_SCALE u/x for the Montgomery point P matching an Edwards point  */
+        private static final long10 ED_BASE_X = new long10(52811034, 25909283, 16144682, 17082669, 27570973, 30858332, 40966398, 8378388, 20764389, 8758491);
+        private static final long10 ED_BASE_Y = new long10(40265304, 26843545, 13421772, 20132659, 26843545, 6710886, 53687091, 13421772, 40265318, 26843545);
+        private static final long10 ED_2D = new long10(45281625, 27714825, 36363642, 13898781, 229458, 15978800, 54557047, 27058993, 29715967, 9444199);
+        private static final long10 MONT_MINUS_Y_SCALE = new long10(12222951, 8312128, 11511410, 24486935, 15300784, 241793, 41652734, 19432880, 12187135, 29582408);
+
         /* constants 2Gy and 1/(2Gy) */
         private static final long10 BASE_2Y = new long10(39999547, 18689728, 59995525, 1648697, 57546132, 24010086, 19059592, 5425144, 63499247, 16420658);
         private static final long10 BASE_R2Y = new long10(5744, 8160848, 4790893, 13779497, 35730846, 12541209, 49101323, 30047407, 40071253, 6226132);
@@ -0,0 +1,131 @@
+package uzc.kit.crypto.ec;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, least recently used cache of the shared secrets between pairs of public keys, so that exchanging many
+ * messages with the same counterparty derives their shared secret once.
+ *
+ * Secrets are zeroed when they are evicted or cleared, and callers always get a copy, so a caller wiping or
+ * modifying the secret it was given does not affect the cache. Instances are thread safe.
+ */
+public final class SharedSecretCache {
+    private final int capacity;
+    private final Map<KeyPair, byte[]> secrets;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity The maximum number of shared secrets to keep
+     */
+    @SuppressWarnings("serial") // The map is never serialized
+    public SharedSecretCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.secrets = new LinkedHashMap<KeyPair, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<KeyPair, byte[]> eldest) {
+                if (size() > SharedSecretCache.this.capacity) {
+                    Arrays.fill(eldest.getValue(), (byte) 0);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the shared secret between two public keys, deriving it if it is not cached
+     * @param myPublicKey Your public key
+     * @param theirPublicKey Their public key
+     * @param derive Derives the shared secret. Called without holding the cache's lock.
+     * @return A copy of the shared secret
+     */
+    public byte[] get(byte[] myPublicKey, byte[] theirPublicKey, Supplier<byte[]> derive) {
+        KeyPair key = new KeyPair(myPublicKey, theirPublicKey);
+        synchronized (secrets) {
+            byte[] secret = secrets.get(key);
+            if (secret != null) {
+                hits.increment();
+                return secret.clone();
+            }
+        }
+        misses.increment();
+        byte[] secret = derive.get();
+        synchronized (secrets) {
+            byte[] previous = secrets.put(key, secret.clone());
+            if (previous != null) {
+                Arrays.fill(previous, (byte) 0);
+            }
+        }
+        return secret;
+    }
+
+    /**
+     * Zero and remove every cached secret
+     */
+    public void clear() {
+        synchronized (secrets) {
+            for (Iterator<byte[]> iterator = secrets.values().iterator(); iterator.hasNext(); ) {
+                Arrays.fill(iterator.next(), (byte) 0);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The number of cached secrets
+     */
+    public int size() {
+        synchronized (secrets) {
+            return secrets.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of lookups that found a cached secret
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups that had to derive the secret
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private static final class KeyPair {
+        private final byte[] keys;
+        private final int hashCode;
+
+        private KeyPair(byte[] myPublicKey, byte[] theirPublicKey) {
+            this.keys = new byte[myPublicKey.length + theirPublicKey.length];
+            System.arraycopy(myPublicKey, 0, keys, 0, myPublicKey.length);
+            System.arraycopy(theirPublicKey, 0, keys, myPublicKey.length, theirPublicKey.length);
+            this.hashCode = Arrays.hashCode(keys);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof KeyPair && Arrays.equals(keys, ((KeyPair) o).keys);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package uzc.kit.crypto.ec;
+
+/**
+ * A private key together with the values derived from it that every signature needs: the public key and the signing
+ * scalar. Deriving them is a scalar multiplication, so an account that signs many messages should create one
+ * SigningKey with {@link Curve25519#getSigningKey(byte[])} and reuse it.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class SigningKey {
+    private final byte[] privateKey;
+    private final byte[] publicKey;
+    private final byte[] sharedKey;
+
+    SigningKey(byte[] privateKey, byte[] publicKey, byte[] sharedKey) {
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        this.sharedKey = sharedKey;
+    }
+
+    /**
+     * @return A copy of the clamped private key
+     */
+    public byte[] getPrivateKey() {
+        return privateKey.clone();
+    }
+
+    /**
+     * @return A copy of the public key
+     */
+    public byte[] getPublicKey() {
+        return publicKey.clone();
+    }
+
+    /**
+     * @return The signing scalar. This is not a copy and must not be modified.
+     */
+    byte[] getSharedKey() {
+        return sharedKey;
+    }
+}
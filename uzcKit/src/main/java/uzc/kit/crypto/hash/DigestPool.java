@@ -0,0 +1,96 @@
+package uzc.kit.crypto.hash;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Hands out MessageDigests of one algorithm without going through the JCA provider registry each time.
+ *
+ * The algorithm is looked up once and new digests are clones of that instance. If the provider's implementation
+ * cannot be cloned, every new digest is looked up as before. Digests that are returned are kept per thread, so
+ * borrowing and returning one on the same thread allocates nothing.
+ */
+public final class DigestPool {
+    private static final int MAX_IDLE_PER_THREAD = 4;
+
+    private final Supplier<MessageDigest> factory;
+    private final ThreadLocal<ArrayDeque<MessageDigest>> idle = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * @param algorithm The algorithm to look up
+     * @param fallback Creates a digest if no provider implements the algorithm
+     */
+    public DigestPool(String algorithm, Supplier<MessageDigest> fallback) {
+        Supplier<MessageDigest> lookup = () -> {
+            try {
+                return MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                return fallback.get();
+            }
+        };
+        MessageDigest prototype = lookup.get();
+        this.factory = isCloneable(prototype) ? () -> cloneOf(prototype) : lookup;
+    }
+
+    /**
+     * @return A new digest, which the caller owns
+     */
+    public MessageDigest create() {
+        return factory.get();
+    }
+
+    /**
+     * Borrow a digest. It must be given back with {@link #release(MessageDigest)} on the same thread, and not used after that.
+     * @return A reset digest
+     */
+    public MessageDigest borrow() {
+        MessageDigest digest = idle.get().pollFirst();
+        return digest != null ? digest : create();
+    }
+
+    /**
+     * Give back a borrowed digest
+     * @param digest The digest. It is reset.
+     */
+    public void release(MessageDigest digest) {
+        digest.reset();
+        ArrayDeque<MessageDigest> idleDigests = idle.get();
+        if (idleDigests.size() < MAX_IDLE_PER_THREAD) {
+            idleDigests.addFirst(digest);
+        }
+    }
+
+    /**
+     * Run a function with a borrowed digest, which is given back when it returns. The function may borrow more digests.
+     * @param function The function, which must not keep the digest
+     * @return The result of the function
+     */
+    public <T> T apply(Function<MessageDigest, T> function) {
+        MessageDigest digest = borrow();
+        try {
+            return function.apply(digest);
+        } finally {
+            release(digest);
+        }
+    }
+
+    private static boolean isCloneable(MessageDigest digest) {
+        try {
+            digest.clone();
+            return true;
+        } catch (CloneNotSupportedException e) {
+            return false;
+        }
+    }
+
+    private static MessageDigest cloneOf(MessageDigest prototype) {
+        try {
+            return (MessageDigest) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+}
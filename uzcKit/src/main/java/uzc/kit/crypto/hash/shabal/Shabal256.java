@@ -1,5 +1,7 @@
 package uzc.kit.crypto.hash.shabal;
 
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.List;
@@ -103,29 +105,86 @@ public class Shabal256 extends MessageDigest {
     @Override
     protected byte[] engineDigest() {
         byte[] out = new byte[32];
-        buf[ptr++] = (byte) 0x80;
-        for (int i = ptr; i < 64; i++)
-            buf[i] = 0;
+        digestInto(out, 0);
+        return out;
+    }
 
-        core1(buf); W--;
-        core1(buf); W--;
-        core1(buf); W--;
-        core1(buf); W--;
+    @Override
+    protected int engineDigest(byte[] out, int offset, int len) throws DigestException {
+        if (len < 32) {
+            throw new DigestException("Partial digests not returned");
+        }
+        if (out.length - offset < 32) {
+            throw new DigestException("Insufficient space in the output buffer to store the digest");
+        }
+        digestInto(out, offset);
+        return 32;
+    }
 
+    /**
+     * Complete the hash computation, write the 32 byte digest into a caller-supplied array and reset.
+     * Unlike {@link #digest()}, this does not allocate.
+     * @param out The array to write the digest to
+     * @param off The offset in the array to write the digest at
+     */
+    public void digestInto(byte[] out, int off) {
+        finish();
         int j = 36;
         int w = 0;
         for (int i = 0; i < 32; i++) {
             if ((i & 3) == 0) { // 0 4 8 12 16 20 ...
                 w = state[j++];
             }
-            out[i] = (byte) w;
+            out[off + i] = (byte) w;
             w >>>= 8;
         }
         reset();
-        return out;
     }
 
-    private static int[] getIV() {
+    /**
+     * Complete the hash computation, write the 32 byte digest into a caller-supplied buffer and reset.
+     * The buffer's position and limit are not changed.
+     * @param out The buffer to write the digest to
+     * @param off The absolute index in the buffer to write the digest at
+     */
+    public void digestInto(ByteBuffer out, int off) {
+        finish();
+        for (int i = 0; i < 8; i++) {
+            int w = state[36 + i];
+            out.put(off + (i << 2), (byte) w);
+            out.put(off + (i << 2) + 1, (byte) (w >>> 8));
+            out.put(off + (i << 2) + 2, (byte) (w >>> 16));
+            out.put(off + (i << 2) + 3, (byte) (w >>> 24));
+        }
+        reset();
+    }
+
+    /**
+     * Complete the hash computation and reset.
+     * @return The first 8 bytes of the digest as a little-endian long, which is how hits are read from a digest
+     */
+    public long digestToLong() {
+        finish();
+        long result = (state[36] & 0xFFFFFFFFL) | ((long) state[37] << 32);
+        reset();
+        return result;
+    }
+
+    /**
+     * Pad and process the final block. The digest is then in state[36] to state[43].
+     */
+    private void finish() {
+        buf[ptr++] = (byte) 0x80;
+        for (int i = ptr; i < 64; i++)
+            buf[i] = 0;
+
+        core1(buf); W--;
+        core1(buf); W--;
+        core1(buf); W--;
+        core1(buf); W--;
+    }
+
+    static int[] getIV() {
         if (IV == null) {
             Shabal256 sg = new Shabal256(false);
 
@@ -0,0 +1,205 @@
+package uzc.kit.crypto.hash.shabal;
+
+import java.util.Arrays;
+
+/**
+ * Several independent Shabal-256 computations run in lockstep.
+ *
+ * The state is kept in structure-of-arrays form (one int[lanes] per state word) so that every step of the
+ * compression function is a straight loop over the lanes, which the JIT can turn into SIMD instructions.
+ * All lanes must be fed the same number of bytes at the same time, which is the case when generating
+ * several nonces of a plot at once. The digest of every lane is bit-identical to what {@link Shabal256}
+ * produces for the same input.
+ */
+public final class Shabal256Lanes {
+
+    private final int lanes;
+    private final int[][] a;
+    private final int[][] b;
+    private final int[][] c;
+    private final int[][] m;
+    private final byte[][] buf;
+    private int ptr;
+    private long W;
+
+    /**
+     * @param lanes The number of independent hashes to compute at once, usually 4 or 8
+     */
+    public Shabal256Lanes(int lanes) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("Lanes must be positive");
+        }
+        this.lanes = lanes;
+        this.a = new int[12][lanes];
+        this.b = new int[16][lanes];
+        this.c = new int[16][lanes];
+        this.m = new int[16][lanes];
+        this.buf = new byte[lanes][64];
+        reset();
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void reset() {
+        int[] iv = Shabal256.getIV();
+        for (int w = 0; w < 12; w++) {
+            Arrays.fill(a[w], iv[w]);
+        }
+        for (int w = 0; w < 16; w++) {
+            Arrays.fill(b[w], iv[12 + w]);
+            Arrays.fill(c[w], iv[28 + w]);
+        }
+        W = 1;
+        ptr = 0;
+    }
+
+    /**
+     * Feed len bytes at offset off of data[lane] into each lane.
+     * @param data One input array per lane. Only the first {@link #getLanes()} arrays are read.
+     * @param off The offset to read from in every input array
+     * @param len The number of bytes to read from every input array
+     */
+    public void update(byte[][] data, int off, int len) {
+        if (ptr != 0) {
+            int rlen = 64 - ptr;
+            if (len < rlen) {
+                for (int l = 0; l < lanes; l++) {
+                    System.arraycopy(data[l], off, buf[l], ptr, len);
+                }
+                ptr += len;
+                return;
+            }
+
+            for (int l = 0; l < lanes; l++) {
+                System.arraycopy(data[l], off, buf[l], ptr, rlen);
+            }
+            off += rlen;
+            len -= rlen;
+            core(buf, 0);
+        }
+        while (len >= 64) {
+            core(data, off);
+            off += 64;
+            len -= 64;
+        }
+        for (int l = 0; l < lanes; l++) {
+            System.arraycopy(data[l], off, buf[l], 0, len);
+        }
+        ptr = len;
+    }
+
+    /**
+     * Complete the hash computation of every lane, write each 32 byte digest to out[lane] at offset off and reset.
+     * @param out One output array per lane
+     * @param off The offset to write at in every output array
+     */
+    public void digestInto(byte[][] out, int off) {
+        for (int l = 0; l < lanes; l++) {
+            buf[l][ptr] = (byte) 0x80;
+            for (int i = ptr + 1; i < 64; i++) {
+                buf[l][i] = 0;
+            }
+        }
+
+        core(buf, 0); W--;
+        core(buf, 0); W--;
+        core(buf, 0); W--;
+        core(buf, 0); W--;
+
+        for (int w = 0; w < 8; w++) {
+            for (int l = 0; l < lanes; l++) {
+                int v = c[8 + w][l];
+                byte[] o = out[l];
+                int pos = off + (w << 2);
+                o[pos] = (byte) v;
+                o[pos + 1] = (byte) (v >>> 8);
+                o[pos + 2] = (byte) (v >>> 16);
+                o[pos + 3] = (byte) (v >>> 24);
+            }
+        }
+        reset();
+    }
+
+    private static int decodeLEInt(byte[] data, int off) {
+        return (data[off]     & 0xFF)
+                | ((data[off + 1] & 0xFF) << 8)
+                | ((data[off + 2] & 0xFF) << 16)
+                | ((data[off + 3] & 0xFF) << 24);
+    }
+
+    /**
+     * Compress one 64 byte block per lane. This is the same permutation as {@link Shabal256}'s core,
+     * written as a loop over the 48 steps instead of unrolled so that each step can loop over the lanes.
+     */
+    private void core(byte[][] data, int off) {
+        final int L = lanes;
+        for (int l = 0; l < L; l++) {
+            byte[] d = data[l];
+            for (int w = 0; w < 16; w++) {
+                m[w][l] = decodeLEInt(d, off + (w << 2));
+            }
+        }
+
+        for (int w = 0; w < 16; w++) {
+            int[] bw = b[w];
+            int[] mw = m[w];
+            for (int l = 0; l < L; l++) {
+                int x = bw[l] + mw[l];
+                bw[l] = (x << 17) | (x >>> 15);
+            }
+        }
+
+        int w0 = (int) W;
+        int w1 = (int) (W >>> 32);
+        int[] a0 = a[0];
+        int[] a1 = a[1];
+        for (int l = 0; l < L; l++) {
+            a0[l] ^= w0;
+            a1[l] ^= w1;
+        }
+        W++;
+
+        for (int j = 0; j < 48; j++) {
+            int i = j & 15;
+            int[] ai = a[j % 12];
+            int[] ap = a[(j + 11) % 12];
+            int[] ci = c[(8 - i) & 15];
+            int[] b1 = b[(i + 13) & 15];
+            int[] b2 = b[(i + 9) & 15];
+            int[] b3 = b[(i + 6) & 15];
+            int[] bi = b[i];
+            int[] mi = m[i];
+            for (int l = 0; l < L; l++) {
+                int p = ap[l];
+                int x = ((ai[l] ^ (((p << 15) | (p >>> 17)) * 5) ^ ci[l]) * 3)
+                        ^ b1[l] ^ (b2[l] & ~b3[l]) ^ mi[l];
+                ai[l] = x;
+                int y = bi[l];
+                bi[l] = ~((y << 1) | (y >>> 31)) ^ x;
+            }
+        }
+
+        for (int k = 0; k < 12; k++) {
+            int[] ak = a[k];
+            int[] c1 = c[(k + 3) & 15];
+            int[] c2 = c[(k + 11) & 15];
+            int[] c3 = c[(k + 15) & 15];
+            for (int l = 0; l < L; l++) {
+                ak[l] += c1[l] + c2[l] + c3[l];
+            }
+        }
+
+        for (int w = 0; w < 16; w++) {
+            int[] bw = b[w];
+            int[] cw = c[w];
+            int[] mw = m[w];
+            for (int l = 0; l < L; l++) {
+                int tmp = bw[l];
+                bw[l] = cw[l] - mw[l];
+                cw[l] = tmp;
+            }
+        }
+    }
+}
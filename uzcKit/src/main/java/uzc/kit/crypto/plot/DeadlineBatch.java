@@ -0,0 +1,53 @@
+package uzc.kit.crypto.plot;
+
+/**
+ * The deadlines of a contiguous range of nonces, as calculated by {@link PlotCalculator#calculateDeadlines(long, long, int, byte[], int, long, int)}
+ *
+ * Deadlines are unsigned 64-bit values stored in a long; use {@link Long#compareUnsigned(long, long)} to compare them.
+ */
+public final class DeadlineBatch {
+    private final long startNonce;
+    private final long[] deadlines;
+    private final int bestIndex;
+
+    public DeadlineBatch(long startNonce, long[] deadlines, int bestIndex) {
+        this.startNonce = startNonce;
+        this.deadlines = deadlines;
+        this.bestIndex = bestIndex;
+    }
+
+    /**
+     * @return The first nonce of the range
+     */
+    public long getStartNonce() {
+        return startNonce;
+    }
+
+    /**
+     * @return The number of nonces in the range
+     */
+    public int getCount() {
+        return deadlines.length;
+    }
+
+    /**
+     * @return The deadline of every nonce in the range, indexed by (nonce - startNonce)
+     */
+    public long[] getDeadlines() {
+        return deadlines;
+    }
+
+    /**
+     * @return The nonce with the lowest deadline, or -1 if the range is empty
+     */
+    public long getBestNonce() {
+        return bestIndex < 0 ? -1 : startNonce + bestIndex;
+    }
+
+    /**
+     * @return The lowest deadline in the range, or -1 (the greatest unsigned value) if the range is empty
+     */
+    public long getBestDeadline() {
+        return bestIndex < 0 ? -1 : deadlines[bestIndex];
+    }
+}
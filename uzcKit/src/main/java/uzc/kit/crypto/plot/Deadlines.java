@@ -0,0 +1,60 @@
+package uzc.kit.crypto.plot;
+
+import java.math.BigInteger;
+
+/**
+ * Helpers for hits and deadlines held in a long.
+ *
+ * Hits and deadlines are unsigned 64-bit values, so a long holding one is negative when its top bit is set
+ * and must not be compared with {@code <} or printed with {@link Long#toString(long)}.
+ */
+public final class Deadlines {
+    private Deadlines() {
+    }
+
+    /**
+     * Compare two deadlines
+     * @return A negative number if a is better (lower) than b, zero if they are equal and a positive number if b is better
+     */
+    public static int compare(long a, long b) {
+        return Long.compareUnsigned(a, b);
+    }
+
+    /**
+     * @param deadline The deadline to check
+     * @param best The best deadline so far, or -1 (the greatest unsigned value) if there is none
+     * @return Whether the deadline is better (lower) than the best so far
+     */
+    public static boolean isBetter(long deadline, long best) {
+        return Long.compareUnsigned(deadline, best) < 0;
+    }
+
+    /**
+     * @return The better (lower) of two deadlines
+     */
+    public static long best(long a, long b) {
+        return Long.compareUnsigned(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * @return Whether the deadline is at most maxDeadline, for example the deadline limit of a pool
+     */
+    public static boolean isWithin(long deadline, long maxDeadline) {
+        return Long.compareUnsigned(deadline, maxDeadline) <= 0;
+    }
+
+    /**
+     * @return The hit or deadline as a BigInteger
+     */
+    public static BigInteger toBigInteger(long value) {
+        BigInteger result = BigInteger.valueOf(value & Long.MAX_VALUE);
+        return value < 0 ? result.setBit(63) : result;
+    }
+
+    /**
+     * @return The hit or deadline as a decimal string
+     */
+    public static String toString(long value) {
+        return Long.toUnsignedString(value);
+    }
+}
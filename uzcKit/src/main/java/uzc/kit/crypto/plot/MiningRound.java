@@ -0,0 +1,68 @@
+package uzc.kit.crypto.plot;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * The per-block values needed to calculate hits and deadlines: the generation signature, the scoop and the base target.
+ *
+ * Instances are usually obtained from {@link PlotCalculator#getMiningRound(byte[], long, long)}, which caches them,
+ * so that verifying many nonces for the same block calculates the scoop only once.
+ */
+public final class MiningRound {
+    private final byte[] genSig;
+    private final long height;
+    private final long baseTarget;
+    private final BigInteger baseTargetBigInteger;
+    private final int scoop;
+
+    /**
+     * @param genSig The generation signature of the block. It is copied.
+     * @param height The height of the block
+     * @param baseTarget The base target of the block
+     * @param scoop The scoop of the block, as calculated by {@link PlotCalculator#calculateScoop(byte[], long)}
+     */
+    public MiningRound(byte[] genSig, long height, long baseTarget, int scoop) {
+        if (baseTarget == 0) {
+            throw new IllegalArgumentException("Base target must not be zero");
+        }
+        this.genSig = genSig.clone();
+        this.height = height;
+        this.baseTarget = baseTarget;
+        this.baseTargetBigInteger = BigInteger.valueOf(baseTarget);
+        this.scoop = scoop;
+    }
+
+    /**
+     * @return The generation signature of the block. This is not a copy and must not be modified.
+     */
+    public byte[] getGenSig() {
+        return genSig;
+    }
+
+    public long getHeight() {
+        return height;
+    }
+
+    public long getBaseTarget() {
+        return baseTarget;
+    }
+
+    /**
+     * @return The base target as a BigInteger, for dividing BigInteger hits
+     */
+    public BigInteger getBaseTargetBigInteger() {
+        return baseTargetBigInteger;
+    }
+
+    public int getScoop() {
+        return scoop;
+    }
+
+    /**
+     * @return Whether this round is for the given block
+     */
+    public boolean matches(byte[] genSig, long height, long baseTarget) {
+        return this.height == height && this.baseTarget == baseTarget && Arrays.equals(this.genSig, genSig);
+    }
+}
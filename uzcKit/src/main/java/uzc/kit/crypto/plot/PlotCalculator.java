@@ -8,4 +8,42 @@ public interface PlotCalculator {
     BigInteger calculateHit(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion);
     BigInteger calculateHit(long accountId, long nonce, byte[] genSig, byte[] scoopData);
     BigInteger calculateDeadline(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
+
+    /**
+     * Calculate the deadlines of the nonces startNonce to startNonce + count - 1, in parallel
+     * @param accountId The account ID
+     * @param startNonce The first nonce
+     * @param count The number of nonces
+     * @param genSig The generation signature
+     * @param scoop The scoop
+     * @param baseTarget The base target
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The deadline of every nonce, and the best of them
+     */
+    DeadlineBatch calculateDeadlines(long accountId, long startNonce, int count, byte[] genSig, int scoop, long baseTarget, int pocVersion);
+
+    /**
+     * Get the mining round of a block, with its scoop calculated. Recent rounds are cached, so calling this
+     * for every nonce submitted for a block only calculates the scoop once.
+     * @param genSig The generation signature of the block
+     * @param height The height of the block
+     * @param baseTarget The base target of the block
+     * @return The mining round of the block
+     */
+    MiningRound getMiningRound(byte[] genSig, long height, long baseTarget);
+
+    BigInteger calculateHit(long accountId, long nonce, MiningRound round, int pocVersion);
+    BigInteger calculateHit(long accountId, long nonce, MiningRound round, byte[] scoopData);
+    BigInteger calculateDeadline(long accountId, long nonce, MiningRound round, int pocVersion);
+    DeadlineBatch calculateDeadlines(long accountId, long startNonce, int count, MiningRound round, int pocVersion);
+
+    /*
+     * Hits and deadlines as unsigned 64-bit values in a long, calculated without allocating. See Deadlines for comparing them.
+     */
+    long calculateHitLong(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion);
+    long calculateHitLong(long accountId, long nonce, byte[] genSig, byte[] scoopData);
+    long calculateDeadlineLong(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
+    long calculateHitLong(long accountId, long nonce, MiningRound round, int pocVersion);
+    long calculateHitLong(long accountId, long nonce, MiningRound round, byte[] scoopData);
+    long calculateDeadlineLong(long accountId, long nonce, MiningRound round, int pocVersion);
 }
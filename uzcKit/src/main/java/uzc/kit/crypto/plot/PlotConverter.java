@@ -0,0 +1,511 @@
+package uzc.kit.crypto.plot;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+
+/**
+ * Converts PoC1 plot files, named {@code <accountId>_<startNonce>_<nonces>_<stagger>}, to PoC2 plot files.
+ *
+ * PoC2 only differs from PoC1 in where the second hash of each scoop is stored: the second hash of scoop i
+ * is the second hash of scoop 4095 - i in PoC1. Converting therefore needs no hashing, only moving hashes
+ * around, which is done a window of scoops at a time with the windows spread across the threads of a pool.
+ *
+ * Converting in place swaps the second hashes of windows of mirrored scoops, which is its own inverse, so swapping a
+ * window twice would silently undo it. The windows are swapped a step at a time: the original contents of the windows
+ * of a step are first written to a {@code .journal} file next to the plot, then swapped, and only then is the step
+ * recorded as done in a {@code .progress} file. If the conversion is interrupted, the step recorded in the journal is
+ * redone from the journal rather than from the plot file, which may already be partly swapped.
+ */
+public final class PlotConverter {
+    private static final int HASH_SIZE = 32;
+    private static final int SCOOP_PAIRS = PlotFile.SCOOPS_PER_NONCE / 2;
+    /**
+     * The maximum number of bytes of windows held in memory by a step of an in-place conversion
+     */
+    private static final int MAX_STEP_MEMORY = 64 * 1024 * 1024;
+    private static final int JOURNAL_HEADER_SIZE = 8 + 4 + 4;
+    private static final String PROGRESS_SUFFIX = ".progress";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String TEMP_SUFFIX = ".converting";
+
+    private PlotConverter() {
+    }
+
+    /**
+     * Convert an optimized PoC1 plot file (one whose stagger equals its number of nonces) to PoC2 in place and
+     * rename it to its PoC2 name. If a previous conversion of the file was interrupted, it resumes where it stopped.
+     * @param path The PoC1 plot file
+     * @return The path of the PoC2 plot file
+     * @throws IllegalArgumentException if the file name is not a PoC1 plot file name or the file is not optimized
+     * @throws IOException if the file could not be converted
+     */
+    public static Path convertInPlace(Path path) throws IOException {
+        return convertInPlace(path, ForkJoinPool.commonPool(), PlotFile.DEFAULT_READ_SIZE);
+    }
+
+    /**
+     * Convert an optimized PoC1 plot file (one whose stagger equals its number of nonces) to PoC2 in place and
+     * rename it to its PoC2 name. If a previous conversion of the file was interrupted, it resumes where it stopped,
+     * using the window size it was started with.
+     * @param path The PoC1 plot file
+     * @param forkJoinPool The pool to spread the windows across
+     * @param windowSize The maximum number of bytes of a scoop to read at once
+     * @return The path of the PoC2 plot file
+     * @throws IllegalArgumentException if the file name is not a PoC1 plot file name or the file is not optimized
+     * @throws IOException if the file could not be converted
+     */
+    public static Path convertInPlace(Path path, ForkJoinPool forkJoinPool, int windowSize) throws IOException {
+        Poc1Name name = Poc1Name.parse(path);
+        if (name.stagger != name.nonces) {
+            throw new IllegalArgumentException("Only optimized plot files can be converted in place: " + path.getFileName());
+        }
+        Path progressPath = path.resolveSibling(path.getFileName() + PROGRESS_SUFFIX);
+        Path journalPath = path.resolveSibling(path.getFileName() + JOURNAL_SUFFIX);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            checkSize(channel, name, path);
+            long regionSize = name.nonces * PlotFile.SCOOP_SIZE;
+            long unitsDone = 0;
+            int window = toWindowSize(windowSize);
+            Journal journalled = Journal.read(journal, regionSize);
+            if (Files.exists(progressPath)) {
+                long[] progress = readProgress(progressPath);
+                unitsDone = progress[0];
+                window = (int) progress[1];
+            } else if (journalled != null) {
+                // Interrupted during the first step, before its window size was recorded in the progress file
+                window = journalled.windowSize;
+            }
+            InPlaceConversion conversion = new InPlaceConversion(channel, journal, regionSize, window, forkJoinPool.getParallelism());
+            if (unitsDone > conversion.units) {
+                throw new IOException("Invalid conversion progress file " + progressPath + ": " + unitsDone + " windows done");
+            }
+            if (journalled != null && journalled.firstUnit + journalled.count > unitsDone) {
+                // The journalled step was not recorded as done, so the plot file may be partly swapped and the step
+                // can only be redone from the journal. The journal's own sizes are used, as the number of windows
+                // per step depends on the pool.
+                if (journalled.firstUnit != unitsDone || journalled.windowSize != window) {
+                    throw new IOException("Conversion journal " + journalPath + " of windows " + journalled.firstUnit + "-" + (journalled.firstUnit + journalled.count - 1)
+                            + " of " + journalled.windowSize + " bytes does not follow the " + unitsDone + " windows of " + window + " bytes done");
+                }
+                conversion.write(unitsDone, journalled.a, journalled.b, journalled.count, forkJoinPool);
+                unitsDone += journalled.count;
+                writeProgress(progressPath, unitsDone, window);
+            }
+            while (unitsDone < conversion.units) {
+                conversion.step(unitsDone, forkJoinPool);
+                unitsDone += conversion.journalledUnits;
+                writeProgress(progressPath, unitsDone, window);
+            }
+        }
+        Path poc2Path = path.resolveSibling(name.toPoc2Name());
+        Files.move(path, poc2Path);
+        Files.deleteIfExists(progressPath);
+        Files.deleteIfExists(journalPath);
+        return poc2Path;
+    }
+
+    /**
+     * Convert a PoC1 plot file of any stagger to a new PoC2 plot file. The PoC1 file is left unchanged.
+     * @param path The PoC1 plot file
+     * @param directory The directory to write the PoC2 plot file to
+     * @return The path of the PoC2 plot file
+     * @throws IllegalArgumentException if the file name is not a PoC1 plot file name
+     * @throws IOException if the file could not be converted
+     */
+    public static Path convert(Path path, Path directory) throws IOException {
+        return convert(path, directory, ForkJoinPool.commonPool(), PlotFile.DEFAULT_READ_SIZE);
+    }
+
+    /**
+     * Convert a PoC1 plot file of any stagger to a new PoC2 plot file. The PoC1 file is left unchanged.
+     * @param path The PoC1 plot file
+     * @param directory The directory to write the PoC2 plot file to
+     * @param forkJoinPool The pool to spread the scoops across
+     * @param windowSize The maximum number of bytes of a scoop to read at once
+     * @return The path of the PoC2 plot file
+     * @throws IllegalArgumentException if the file name is not a PoC1 plot file name
+     * @throws IOException if the file could not be converted
+     */
+    public static Path convert(Path path, Path directory, ForkJoinPool forkJoinPool, int windowSize) throws IOException {
+        Poc1Name name = Poc1Name.parse(path);
+        int window = toWindowSize(windowSize);
+        Path poc2Path = directory.resolve(name.toPoc2Name());
+        // Written under a temporary name so that an interrupted conversion is never mistaken for a plot file
+        Path tempPath = directory.resolve(name.toPoc2Name() + TEMP_SUFFIX);
+        long fileSize = name.nonces * PlotFile.NONCE_SIZE;
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel destination = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            checkSize(source, name, path);
+            destination.write(ByteBuffer.allocate(1), fileSize - 1);
+            invoke(forkJoinPool, new RangeTask(0, PlotFile.SCOOPS_PER_NONCE, scoop -> copyScoop(source, destination, name, scoop, window)));
+            destination.force(true);
+        }
+        Files.move(tempPath, poc2Path, StandardCopyOption.REPLACE_EXISTING);
+        return poc2Path;
+    }
+
+    /**
+     * Swap the second hash of every scoop in two windows of mirrored scoops
+     */
+    private static void swapSecondHashes(ByteBuffer a, ByteBuffer b, int length) {
+        for (int scoopOffset = 0; scoopOffset < length; scoopOffset += PlotFile.SCOOP_SIZE) {
+            for (int i = scoopOffset + HASH_SIZE; i < scoopOffset + PlotFile.SCOOP_SIZE; i += 8) {
+                long tmp = a.getLong(i);
+                a.putLong(i, b.getLong(i));
+                b.putLong(i, tmp);
+            }
+        }
+    }
+
+    /**
+     * Copy one scoop of every nonce to its PoC2 scoop region, taking the second hashes from the mirrored scoop
+     */
+    private static void copyScoop(FileChannel source, FileChannel destination, Poc1Name name, int scoop, int windowSize) throws IOException {
+        int mirrorScoop = PlotFile.SCOOPS_PER_NONCE - 1 - scoop;
+        int bufferSize = (int) Math.min(windowSize, name.stagger * PlotFile.SCOOP_SIZE);
+        ByteBuffer first = ByteBuffer.allocate(bufferSize);
+        ByteBuffer second = ByteBuffer.allocate(bufferSize);
+        ByteBuffer out = ByteBuffer.allocate(bufferSize);
+        for (long groupStart = 0; groupStart < name.nonces; groupStart += name.stagger) {
+            long groupNonces = Math.min(name.stagger, name.nonces - groupStart);
+            long groupOffset = groupStart * PlotFile.NONCE_SIZE;
+            long regionSize = groupNonces * PlotFile.SCOOP_SIZE;
+            long destinationStart = (scoop * name.nonces + groupStart) * PlotFile.SCOOP_SIZE;
+            for (long position = 0; position < regionSize; position += windowSize) {
+                int length = (int) Math.min(windowSize, regionSize - position);
+                readFully(source, first, groupOffset + scoop * regionSize + position, length);
+                readFully(source, second, groupOffset + mirrorScoop * regionSize + position, length);
+                for (int scoopOffset = 0; scoopOffset < length; scoopOffset += PlotFile.SCOOP_SIZE) {
+                    for (int i = scoopOffset; i < scoopOffset + HASH_SIZE; i += 8) {
+                        out.putLong(i, first.getLong(i));
+                        out.putLong(i + HASH_SIZE, second.getLong(i + HASH_SIZE));
+                    }
+                }
+                writeFully(destination, out, destinationStart + position, length);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static void invoke(ForkJoinPool forkJoinPool, RangeTask task) throws IOException {
+        try {
+            forkJoinPool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static int toWindowSize(int windowSize) {
+        return Math.max(PlotFile.SCOOP_SIZE, windowSize - windowSize % PlotFile.SCOOP_SIZE);
+    }
+
+    private static void checkSize(FileChannel channel, Poc1Name name, Path path) throws IOException {
+        if (channel.size() < name.nonces * PlotFile.NONCE_SIZE) {
+            throw new IOException("Plot file " + path.getFileName() + " is " + channel.size() + " bytes but should be " + name.nonces * PlotFile.NONCE_SIZE);
+        }
+    }
+
+    /**
+     * @return The number of windows done and the window size
+     */
+    private static long[] readProgress(Path progressPath) throws IOException {
+        String progress = new String(Files.readAllBytes(progressPath), StandardCharsets.UTF_8).trim();
+        String[] parts = progress.split(" ");
+        long[] values = new long[2];
+        try {
+            if (parts.length != 2) throw new NumberFormatException();
+            values[0] = Long.parseLong(parts[0]);
+            values[1] = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid conversion progress file " + progressPath + ": " + progress, e);
+        }
+        if (values[0] < 0 || values[1] < PlotFile.SCOOP_SIZE || values[1] % PlotFile.SCOOP_SIZE != 0) {
+            throw new IOException("Invalid conversion progress file " + progressPath + ": " + progress);
+        }
+        return values;
+    }
+
+    private static void writeProgress(Path progressPath, long unitsDone, int windowSize) throws IOException {
+        // Replaced in one go, so an interruption leaves either the old or the new progress
+        Path tempPath = progressPath.resolveSibling(progressPath.getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap((unitsDone + " " + windowSize).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(tempPath, progressPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The windows of an in-place conversion. A unit is one window of one pair of mirrored scoop regions, numbered
+     * first by pair and then by position in the region.
+     */
+    private static final class InPlaceConversion {
+        private final FileChannel channel;
+        private final FileChannel journal;
+        private final long regionSize;
+        private final int windowSize;
+        private final long windowsPerRegion;
+        private final long units;
+        private final ByteBuffer[] a;
+        private final ByteBuffer[] b;
+        private final ByteBuffer journalHeader = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+        private final ByteBuffer journalChecksum = ByteBuffer.allocate(8);
+        /**
+         * The number of units in the buffers and the journal
+         */
+        private int journalledUnits;
+
+        private InPlaceConversion(FileChannel channel, FileChannel journal, long regionSize, int windowSize, int parallelism) {
+            this.channel = channel;
+            this.journal = journal;
+            this.regionSize = regionSize;
+            this.windowSize = windowSize;
+            this.windowsPerRegion = (regionSize + windowSize - 1) / windowSize;
+            this.units = SCOOP_PAIRS * windowsPerRegion;
+            int unitsPerStep = (int) Math.max(1, Math.min(Math.min(parallelism, units), MAX_STEP_MEMORY / (2L * windowSize)));
+            int bufferSize = (int) Math.min(windowSize, regionSize);
+            this.a = new ByteBuffer[unitsPerStep];
+            this.b = new ByteBuffer[unitsPerStep];
+            for (int i = 0; i < unitsPerStep; i++) {
+                a[i] = ByteBuffer.allocate(bufferSize);
+                b[i] = ByteBuffer.allocate(bufferSize);
+            }
+        }
+
+        private long regionA(long unit) {
+            return (unit / windowsPerRegion) * regionSize + position(unit);
+        }
+
+        private long regionB(long unit) {
+            return (PlotFile.SCOOPS_PER_NONCE - 1 - unit / windowsPerRegion) * regionSize + position(unit);
+        }
+
+        private long position(long unit) {
+            return (unit % windowsPerRegion) * windowSize;
+        }
+
+        private int length(long unit) {
+            return Journal.length(unit, regionSize, windowSize, windowsPerRegion);
+        }
+
+        /**
+         * Swap the next units: read them, journal their original contents, then write them swapped
+         */
+        private void step(long firstUnit, ForkJoinPool forkJoinPool) throws IOException {
+            journalledUnits = (int) Math.min(a.length, units - firstUnit);
+            invoke(forkJoinPool, new RangeTask(0, journalledUnits, i -> {
+                long unit = firstUnit + i;
+                readFully(channel, a[i], regionA(unit), length(unit));
+                readFully(channel, b[i], regionB(unit), length(unit));
+            }));
+            writeJournal(firstUnit);
+            write(firstUnit, a, b, journalledUnits, forkJoinPool);
+        }
+
+        private void writeJournal(long firstUnit) throws IOException {
+            CRC32 crc = new CRC32();
+            journalHeader.clear();
+            journalHeader.putLong(firstUnit).putInt(journalledUnits).putInt(windowSize);
+            journalHeader.flip();
+            crc.update(journalHeader);
+            writeFully(journal, journalHeader, 0, JOURNAL_HEADER_SIZE);
+            long position = JOURNAL_HEADER_SIZE;
+            for (int i = 0; i < journalledUnits; i++) {
+                int length = length(firstUnit + i);
+                a[i].rewind();
+                crc.update(a[i]);
+                writeFully(journal, a[i], position, length);
+                b[i].rewind();
+                crc.update(b[i]);
+                writeFully(journal, b[i], position + length, length);
+                position += 2L * length;
+            }
+            journalChecksum.putLong(0, crc.getValue());
+            writeFully(journal, journalChecksum, position, 8);
+            journal.force(false);
+        }
+
+        /**
+         * Swap journalled units in memory and write them to the plot file
+         * @param a The original contents of the units' windows in the lower scoops
+         * @param b The original contents of the units' windows in the mirrored scoops
+         * @param count The number of units
+         */
+        private void write(long firstUnit, ByteBuffer[] a, ByteBuffer[] b, int count, ForkJoinPool forkJoinPool) throws IOException {
+            invoke(forkJoinPool, new RangeTask(0, count, i -> {
+                long unit = firstUnit + i;
+                int length = length(unit);
+                swapSecondHashes(a[i], b[i], length);
+                writeFully(channel, a[i], regionA(unit), length);
+                writeFully(channel, b[i], regionB(unit), length);
+            }));
+            channel.force(false);
+        }
+    }
+
+    /**
+     * A completely written journal of a step of an in-place conversion
+     */
+    private static final class Journal {
+        private final long firstUnit;
+        private final int count;
+        private final int windowSize;
+        private final ByteBuffer[] a;
+        private final ByteBuffer[] b;
+
+        private Journal(long firstUnit, int count, int windowSize) {
+            this.firstUnit = firstUnit;
+            this.count = count;
+            this.windowSize = windowSize;
+            this.a = new ByteBuffer[count];
+            this.b = new ByteBuffer[count];
+        }
+
+        /**
+         * @param regionSize The size of a scoop region of the plot file
+         * @return The journal, or null if there is none or it was not completely written, in which case the plot
+         * file was not changed by its step
+         */
+        private static Journal read(FileChannel journal, long regionSize) throws IOException {
+            long size = journal.size();
+            if (size < JOURNAL_HEADER_SIZE) return null;
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            readFully(journal, header, 0, JOURNAL_HEADER_SIZE);
+            long firstUnit = header.getLong(0);
+            int count = header.getInt(8);
+            int windowSize = header.getInt(12);
+            // A header that was only partly written can hold anything, so check it before sizing anything from it
+            if (firstUnit < 0 || count < 1 || windowSize < PlotFile.SCOOP_SIZE || windowSize % PlotFile.SCOOP_SIZE != 0) return null;
+            long windowsPerRegion = (regionSize + windowSize - 1) / windowSize;
+            if (firstUnit + count > SCOOP_PAIRS * windowsPerRegion) return null;
+            long journalSize = JOURNAL_HEADER_SIZE + 8;
+            for (int i = 0; i < count && journalSize <= size; i++) {
+                journalSize += 2L * length(firstUnit + i, regionSize, windowSize, windowsPerRegion);
+            }
+            if (journalSize > size) return null;
+
+            Journal result = new Journal(firstUnit, count, windowSize);
+            CRC32 crc = new CRC32();
+            header.rewind();
+            crc.update(header);
+            long position = JOURNAL_HEADER_SIZE;
+            for (int i = 0; i < count; i++) {
+                int length = length(firstUnit + i, regionSize, windowSize, windowsPerRegion);
+                result.a[i] = ByteBuffer.allocate(length);
+                readFully(journal, result.a[i], position, length);
+                result.a[i].rewind();
+                crc.update(result.a[i]);
+                result.b[i] = ByteBuffer.allocate(length);
+                readFully(journal, result.b[i], position + length, length);
+                result.b[i].rewind();
+                crc.update(result.b[i]);
+                position += 2L * length;
+            }
+            ByteBuffer checksum = ByteBuffer.allocate(8);
+            readFully(journal, checksum, position, 8);
+            return checksum.getLong(0) == crc.getValue() ? result : null;
+        }
+
+        private static int length(long unit, long regionSize, int windowSize, long windowsPerRegion) {
+            return (int) Math.min(windowSize, regionSize - (unit % windowsPerRegion) * windowSize);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RangeJob {
+        void run(int index) throws IOException;
+    }
+
+    @SuppressWarnings("serial") // Never serialized
+    private static class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final RangeJob job;
+
+        private RangeTask(int from, int to, RangeJob job) {
+            this.from = from;
+            this.to = to;
+            this.job = job;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    job.run(from);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, mid, job), new RangeTask(mid, to, job));
+            }
+        }
+    }
+
+    private static class Poc1Name {
+        private final long accountId;
+        private final long startNonce;
+        private final long nonces;
+        private final long stagger;
+
+        private Poc1Name(long accountId, long startNonce, long nonces, long stagger) {
+            this.accountId = accountId;
+            this.startNonce = startNonce;
+            this.nonces = nonces;
+            this.stagger = stagger;
+        }
+
+        private static Poc1Name parse(Path path) {
+            String name = path.getFileName().toString();
+            String[] parts = name.split("_");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Not a PoC1 plot file name: " + name);
+            }
+            Poc1Name poc1Name;
+            try {
+                poc1Name = new Poc1Name(Long.parseUnsignedLong(parts[0]), Long.parseUnsignedLong(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a PoC1 plot file name: " + name, e);
+            }
+            if (poc1Name.nonces <= 0 || poc1Name.stagger <= 0 || poc1Name.stagger > poc1Name.nonces) {
+                throw new IllegalArgumentException("Invalid nonces or stagger in plot file name: " + name);
+            }
+            return poc1Name;
+        }
+
+        private String toPoc2Name() {
+            return Long.toUnsignedString(accountId) + "_" + Long.toUnsignedString(startNonce) + "_" + nonces;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package uzc.kit.crypto.plot;
+
+import uzc.kit.crypto.hash.shabal.Shabal256;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A PoC2 plot file, named {@code <accountId>_<startNonce>_<nonces>}, read through memory mapping.
+ *
+ * PoC2 files are stored scoop-major: scoop s of every nonce is stored contiguously, at offset s * nonces * 64.
+ * A scoop is read by mapping that region in windows of a configurable read size, so files (and scoop regions)
+ * larger than 2 GiB can be read even though a single mapping is limited to 2 GiB.
+ */
+public final class PlotFile implements Closeable {
+    public static final int SCOOP_SIZE = 64;
+    public static final int SCOOPS_PER_NONCE = 4096;
+    public static final int NONCE_SIZE = SCOOP_SIZE * SCOOPS_PER_NONCE;
+    public static final int DEFAULT_READ_SIZE = 16 * 1024 * 1024;
+
+    private final Path path;
+    private final long accountId;
+    private final long startNonce;
+    private final long nonces;
+    private final FileChannel channel;
+
+    private PlotFile(Path path, long accountId, long startNonce, long nonces, FileChannel channel) {
+        this.path = path;
+        this.accountId = accountId;
+        this.startNonce = startNonce;
+        this.nonces = nonces;
+        this.channel = channel;
+    }
+
+    /**
+     * Open a plot file for reading
+     * @param path The path of the plot file. Its name must be {@code <accountId>_<startNonce>_<nonces>}.
+     * @return The opened plot file, which must be closed after use
+     * @throws IllegalArgumentException if the file name is not a PoC2 plot file name
+     * @throws IOException if the file could not be opened or is shorter than its name says
+     */
+    public static PlotFile open(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        String[] parts = name.split("_");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Not a PoC2 plot file name: " + name);
+        }
+        long accountId;
+        long startNonce;
+        long nonces;
+        try {
+            accountId = Long.parseUnsignedLong(parts[0]);
+            startNonce = Long.parseUnsignedLong(parts[1]);
+            nonces = Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a PoC2 plot file name: " + name, e);
+        }
+        if (nonces <= 0) {
+            throw new IllegalArgumentException("Plot file has no nonces: " + name);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        if (channel.size() < nonces * NONCE_SIZE) {
+            channel.close();
+            throw new IOException("Plot file " + name + " is " + channel.size() + " bytes but should be " + nonces * NONCE_SIZE);
+        }
+        return new PlotFile(path, accountId, startNonce, nonces, channel);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public long getStartNonce() {
+        return startNonce;
+    }
+
+    public long getNonces() {
+        return nonces;
+    }
+
+    /**
+     * Read one scoop of every nonce in the file, in windows of at most readSize bytes
+     * @param scoop The scoop to read
+     * @param readSize The maximum number of bytes to map at once. Rounded down to a whole number of scoops.
+     * @param consumer Called for each window with the first nonce in the window and a read-only buffer
+     *                 mapped over the window, containing one {@value #SCOOP_SIZE} byte scoop per nonce.
+     *                 Each window is its own mapping, which stays valid for as long as the buffer is referenced,
+     *                 even after the consumer returns or this file is closed, so it can be handed to another thread.
+     * @throws IOException if the file could not be read
+     */
+    public void readScoop(int scoop, int readSize, ScoopConsumer consumer) throws IOException {
+        if (scoop < 0 || scoop >= SCOOPS_PER_NONCE) {
+            throw new IllegalArgumentException("Invalid scoop: " + scoop);
+        }
+        int windowSize = Math.max(SCOOP_SIZE, readSize - readSize % SCOOP_SIZE);
+        long regionSize = nonces * SCOOP_SIZE;
+        long regionStart = scoop * regionSize;
+        for (long position = 0; position < regionSize; position += windowSize) {
+            int length = (int) Math.min(windowSize, regionSize - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, regionStart + position, length);
+            consumer.accept(startNonce + position / SCOOP_SIZE, window);
+        }
+    }
+
+    /**
+     * Read one scoop of every nonce in the file, {@value #DEFAULT_READ_SIZE} bytes at a time
+     * @see #readScoop(int, int, ScoopConsumer)
+     */
+    public void readScoop(int scoop, ScoopConsumer consumer) throws IOException {
+        readScoop(scoop, DEFAULT_READ_SIZE, consumer);
+    }
+
+    /**
+     * Calculate the hit and deadline of every nonce in the file
+     * @param scoop The scoop of the current block
+     * @param genSig The generation signature of the current block
+     * @param baseTarget The base target of the current block
+     * @param readSize The maximum number of bytes to map at once
+     * @param consumer Called with every nonce, in order
+     * @throws IOException if the file could not be read
+     */
+    public void scan(int scoop, byte[] genSig, long baseTarget, int readSize, HitConsumer consumer) throws IOException {
+        Shabal256 shabal256 = new Shabal256();
+        byte[] scoopData = new byte[SCOOP_SIZE];
+        readScoop(scoop, readSize, (firstNonce, window) -> {
+            for (long nonce = firstNonce; window.hasRemaining(); nonce++) {
+                window.get(scoopData);
+                shabal256.update(genSig);
+                shabal256.update(scoopData);
+                long hit = shabal256.digestToLong();
+                consumer.accept(nonce, hit, Long.divideUnsigned(hit, baseTarget));
+            }
+        });
+    }
+
+    /**
+     * Calculate the hit and deadline of every nonce in the file, {@value #DEFAULT_READ_SIZE} bytes at a time
+     * @see #scan(int, byte[], long, int, HitConsumer)
+     */
+    public void scan(int scoop, byte[] genSig, long baseTarget, HitConsumer consumer) throws IOException {
+        scan(scoop, genSig, baseTarget, DEFAULT_READ_SIZE, consumer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    @FunctionalInterface
+    public interface ScoopConsumer {
+        void accept(long firstNonce, ByteBuffer scoops) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface HitConsumer {
+        /**
+         * @param nonce The nonce
+         * @param hit The hit, an unsigned 64-bit value
+         * @param deadline The deadline (hit / baseTarget), an unsigned 64-bit value
+         */
+        void accept(long nonce, long hit, long deadline);
+    }
+}
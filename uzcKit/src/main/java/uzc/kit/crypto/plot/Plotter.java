@@ -0,0 +1,32 @@
+package uzc.kit.crypto.plot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.LongConsumer;
+
+public interface Plotter {
+    /**
+     * Plot nonces into a PoC2 plot file named {@code <accountId>_<startNonce>_<nonces>}, readable by {@link PlotFile}.
+     * If a previous call for the same file was interrupted, plotting resumes where it stopped.
+     * @param directory The directory to create the plot file in
+     * @param accountId The account ID
+     * @param startNonce The first nonce
+     * @param nonces The number of nonces
+     * @return The path of the finished plot file
+     * @throws IOException if the plot file could not be written
+     */
+    Path plot(Path directory, long accountId, long startNonce, long nonces) throws IOException;
+
+    /**
+     * Plot nonces into a PoC2 plot file named {@code <accountId>_<startNonce>_<nonces>}, readable by {@link PlotFile}.
+     * If a previous call for the same file was interrupted, plotting resumes where it stopped.
+     * @param directory The directory to create the plot file in
+     * @param accountId The account ID
+     * @param startNonce The first nonce
+     * @param nonces The number of nonces
+     * @param progress Called with the number of nonces written so far every time a batch has been written to disk
+     * @return The path of the finished plot file
+     * @throws IOException if the plot file could not be written
+     */
+    Path plot(Path directory, long accountId, long startNonce, long nonces, LongConsumer progress) throws IOException;
+}
@@ -1,29 +1,75 @@
 package uzc.kit.crypto.plot.impl;
 
-import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.hash.shabal.Shabal256Lanes;
 
-import java.math.BigInteger;
+import java.security.DigestException;
 import java.security.MessageDigest;
-import java.util.function.Supplier;
 
+/**
+ * Scratch space for generating a single nonce. One instance can be reused for any number of nonces.
+ *
+ * Only the raw hash chain and the final hash are kept; scoops are XORed with the final hash
+ * (and PoC2-shuffled) when they are read, so reading one scoop does not touch the other 4095.
+ */
 class MiningPlot {
-    private static final int HASH_SIZE = 32;
-    private static final int HASHES_PER_SCOOP = 2;
-    private static final int SCOOP_SIZE = HASHES_PER_SCOOP * HASH_SIZE;
-    private static final int SCOOPS_PER_PLOT = 4096;
-    static final BigInteger SCOOPS_PER_PLOT_BIGINT = BigInteger.valueOf(SCOOPS_PER_PLOT);
-    private static final int PLOT_SIZE = SCOOPS_PER_PLOT * SCOOP_SIZE;
+    static final int HASH_SIZE = 32;
+    static final int HASHES_PER_SCOOP = 2;
+    static final int SCOOP_SIZE = HASHES_PER_SCOOP * HASH_SIZE;
+    static final int SCOOPS_PER_PLOT = 4096;
+    static final int PLOT_SIZE = SCOOPS_PER_PLOT * SCOOP_SIZE;
     private static final int BASE_LENGTH = 16;
     private static final int PLOT_TOTAL_SIZE = PLOT_SIZE + BASE_LENGTH;
 
     private static final int HASH_CAP = 4096;
 
     private final byte[] data = new byte[PLOT_TOTAL_SIZE];
+    private final byte[] finalHash = new byte[HASH_SIZE];
+    private final byte[] scoopBuffer = new byte[SCOOP_SIZE];
 
-    MiningPlot(Supplier<MessageDigest> shabal256Supplier, long addr, long nonce, int pocVersion) {
-        System.arraycopy(UzcCrypto.getInstance().longToBytes(addr), 0, data, PLOT_SIZE, 8);
-        System.arraycopy(UzcCrypto.getInstance().longToBytes(nonce), 0, data, PLOT_SIZE + 8, 8);
-        MessageDigest shabal256 = shabal256Supplier.get();
+    /**
+     * Generate the hash chain of a nonce into this plot, replacing whatever was generated before.
+     * @param shabal256 The digest to use. Must be in its initial state; it is left in its initial state.
+     * @param addr The account ID
+     * @param nonce The nonce
+     */
+    void generate(MessageDigest shabal256, long addr, long nonce) {
+        putLong(data, PLOT_SIZE, addr);
+        putLong(data, PLOT_SIZE + 8, nonce);
+        try {
+            int len;
+            for (int i = PLOT_SIZE; i > 0; i -= HASH_SIZE) {
+                len = PLOT_TOTAL_SIZE - i;
+                if (len > HASH_CAP) {
+                    len = HASH_CAP;
+                }
+                shabal256.update(data, i, len);
+                shabal256.digest(data, i - HASH_SIZE, HASH_SIZE);
+            }
+            shabal256.update(data, 0, PLOT_TOTAL_SIZE);
+            shabal256.digest(finalHash, 0, HASH_SIZE);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generate consecutive nonces into several plots at once, one nonce per lane. The result is identical to
+     * calling {@link #generate(MessageDigest, long, long)} on each plot.
+     * @param shabal256 The multi-lane digest to use. Must be in its initial state; it is left in its initial state.
+     * @param plots The plots to generate into, at least as many as the digest has lanes
+     * @param addr The account ID
+     * @param startNonce The nonce to generate into the first plot. Plot n gets startNonce + n.
+     */
+    static void generate(Shabal256Lanes shabal256, MiningPlot[] plots, long addr, long startNonce) {
+        int lanes = shabal256.getLanes();
+        byte[][] data = new byte[lanes][];
+        byte[][] finalHashes = new byte[lanes][];
+        for (int l = 0; l < lanes; l++) {
+            data[l] = plots[l].data;
+            finalHashes[l] = plots[l].finalHash;
+            putLong(data[l], PLOT_SIZE, addr);
+            putLong(data[l], PLOT_SIZE + 8, startNonce + l);
+        }
         int len;
         for (int i = PLOT_SIZE; i > 0; i -= HASH_SIZE) {
             len = PLOT_TOTAL_SIZE - i;
@@ -31,28 +77,38 @@ class MiningPlot {
                 len = HASH_CAP;
             }
             shabal256.update(data, i, len);
-            System.arraycopy(shabal256.digest(), 0, data, i - HASH_SIZE, HASH_SIZE);
-        }
-        byte[] finalHash = shabal256.digest(data);
-        for (int i = 0, j = 0; i < PLOT_SIZE; i++, j++) {
-            if (j == 32) j = 0;
-            data[i] = (byte) (data[i] ^ finalHash[j]);
+            shabal256.digestInto(data, i - HASH_SIZE);
         }
+        shabal256.update(data, 0, PLOT_TOTAL_SIZE);
+        shabal256.digestInto(finalHashes, 0);
+    }
 
-        // PoC2 Rearrangement
-        if (pocVersion == 2) {
-            byte[] hashBuffer = new byte[HASH_SIZE];
-            int revPos = PLOT_SIZE - HASH_SIZE; // Start at second hash in last scoop
-            for (int pos = 32; pos < (PLOT_SIZE / 2); pos += 64) { // Start at second hash in first scoop
-                System.arraycopy(data, pos, hashBuffer, 0, HASH_SIZE); // Copy low scoop second hash to buffer
-                System.arraycopy(data, revPos, data, pos, HASH_SIZE); // Copy high scoop second hash to low scoop second hash
-                System.arraycopy(hashBuffer, 0, data, revPos, HASH_SIZE); // Copy buffer to high scoop second hash
-                revPos -= 64; // move backwards
-            }
+    /**
+     * Copy a finished scoop of the last generated nonce.
+     * @param scoop The scoop number
+     * @param pocVersion The PoC version, which determines where the scoop's second hash is stored
+     * @param out The destination
+     * @param off The offset in the destination to write the {@value #SCOOP_SIZE} bytes to
+     */
+    void getScoop(int scoop, int pocVersion, byte[] out, int off) {
+        int firstHashPos = scoop * SCOOP_SIZE;
+        // PoC2 Rearrangement: the second hash of scoop i is the second hash of scoop 4095 - i in PoC1
+        int secondHashPos = (pocVersion == 2 ? SCOOPS_PER_PLOT - 1 - scoop : scoop) * SCOOP_SIZE + HASH_SIZE;
+        for (int i = 0; i < HASH_SIZE; i++) {
+            out[off + i] = (byte) (data[firstHashPos + i] ^ finalHash[i]);
+            out[off + HASH_SIZE + i] = (byte) (data[secondHashPos + i] ^ finalHash[i]);
         }
     }
 
-    void hashScoop(MessageDigest shabal256, int pos) {
-        shabal256.update(data, pos * SCOOP_SIZE, SCOOP_SIZE);
+    void hashScoop(MessageDigest shabal256, int scoop, int pocVersion) {
+        getScoop(scoop, pocVersion, scoopBuffer, 0);
+        shabal256.update(scoopBuffer, 0, SCOOP_SIZE);
+    }
+
+    private static void putLong(byte[] buffer, int off, long value) {
+        for (int i = 7; i >= 0; i--) {
+            buffer[off + i] = (byte) value;
+            value >>= 8;
+        }
     }
 }
@@ -1,17 +1,76 @@
 package uzc.kit.crypto.plot.impl;
 
 import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.hash.shabal.Shabal256;
+import uzc.kit.crypto.hash.shabal.Shabal256Lanes;
+import uzc.kit.crypto.plot.DeadlineBatch;
+import uzc.kit.crypto.plot.Deadlines;
+import uzc.kit.crypto.plot.MiningRound;
 import uzc.kit.crypto.plot.PlotCalculator;
 
 import java.math.BigInteger;
+import java.security.DigestException;
 import java.security.MessageDigest;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Supplier;
 
 public class PlotCalculatorImpl implements PlotCalculator { // TODO all of this can be optimized
+    /**
+     * Nonces per fork-join leaf. Each nonce is 8192 Shabal-256 digests so this is plenty of work to amortize a fork.
+     */
+    private static final int NONCES_PER_TASK = 16;
+
+    private static final int DEFAULT_LANES = 8;
+
+    /**
+     * Number of recent mining rounds to cache. Must be a power of two.
+     */
+    private static final int MINING_ROUND_CACHE_SIZE = 4;
+
     private final Supplier<MessageDigest> shabal256Supplier;
+    private final ForkJoinPool forkJoinPool;
+    private final int lanes;
+    /**
+     * Scratch plot for single nonce calculations, so that threads which never do batch calculations do not hold a plot per lane
+     */
+    private final ThreadLocal<MiningPlot> miningPlot = ThreadLocal.withInitial(MiningPlot::new);
+    private final ThreadLocal<MiningPlot[]> miningPlots;
+    private final ThreadLocal<Shabal256Lanes> shabal256Lanes;
+    private final ThreadLocal<MessageDigest> shabal256;
+    private final ThreadLocal<byte[]> hashBuffer = ThreadLocal.withInitial(() -> new byte[MiningPlot.HASH_SIZE]);
+    private final AtomicReferenceArray<MiningRound> miningRounds = new AtomicReferenceArray<>(MINING_ROUND_CACHE_SIZE);
 
     public PlotCalculatorImpl(Supplier<MessageDigest> shabal256Supplier) {
+        this(shabal256Supplier, ForkJoinPool.commonPool());
+    }
+
+    public PlotCalculatorImpl(Supplier<MessageDigest> shabal256Supplier, ForkJoinPool forkJoinPool) {
+        this(shabal256Supplier, forkJoinPool, DEFAULT_LANES);
+    }
+
+    /**
+     * @param shabal256Supplier Supplier of new Shabal-256 digests
+     * @param forkJoinPool The pool to split batch calculations across
+     * @param lanes The number of nonces each thread generates at once in batch calculations using {@link Shabal256Lanes}. 1 uses plain {@link Shabal256}.
+     */
+    public PlotCalculatorImpl(Supplier<MessageDigest> shabal256Supplier, ForkJoinPool forkJoinPool, int lanes) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("Lanes must be positive");
+        }
         this.shabal256Supplier = shabal256Supplier;
+        this.forkJoinPool = forkJoinPool;
+        this.lanes = lanes;
+        this.miningPlots = ThreadLocal.withInitial(() -> {
+            MiningPlot[] plots = new MiningPlot[lanes];
+            for (int i = 0; i < lanes; i++) {
+                plots[i] = new MiningPlot();
+            }
+            return plots;
+        });
+        this.shabal256Lanes = ThreadLocal.withInitial(() -> new Shabal256Lanes(lanes));
+        this.shabal256 = ThreadLocal.withInitial(shabal256Supplier);
     }
 
     @Override
@@ -24,30 +83,39 @@ public class PlotCalculatorImpl implements PlotCalculator { // TODO all of this
 
     @Override
     public int calculateScoop(byte[] genSig, long height) {
-        MessageDigest shabal256 = shabal256Supplier.get();
+        MessageDigest shabal256 = this.shabal256.get();
+        byte[] hashBuffer = this.hashBuffer.get();
         shabal256.update(genSig);
         shabal256.update(UzcCrypto.getInstance().longToBytes(height));
-        BigInteger hashnum = new BigInteger(1, shabal256.digest());
-        return hashnum.mod(MiningPlot.SCOOPS_PER_PLOT_BIGINT).intValue();
+        try {
+            shabal256.digest(hashBuffer, 0, hashBuffer.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        // The scoop is the big-endian hash mod 4096, which only depends on its last 12 bits
+        return (((hashBuffer[MiningPlot.HASH_SIZE - 2] & 0xFF) << 8) | (hashBuffer[MiningPlot.HASH_SIZE - 1] & 0xFF)) & (MiningPlot.SCOOPS_PER_PLOT - 1);
+    }
+
+    @Override
+    public MiningRound getMiningRound(byte[] genSig, long height, long baseTarget) {
+        // Consecutive heights use different slots, so late nonces for the previous block do not evict the current one
+        int slot = (int) (height & (MINING_ROUND_CACHE_SIZE - 1));
+        MiningRound round = miningRounds.get(slot);
+        if (round == null || !round.matches(genSig, height, baseTarget)) {
+            round = new MiningRound(genSig, height, baseTarget, calculateScoop(genSig, height));
+            miningRounds.set(slot, round);
+        }
+        return round;
     }
 
     @Override
     public BigInteger calculateHit(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion) {
-        MiningPlot plot = new MiningPlot(shabal256Supplier, accountId, nonce, pocVersion);
-        MessageDigest shabal256 = shabal256Supplier.get();
-        shabal256.update(genSig);
-        plot.hashScoop(shabal256, scoop);
-        byte[] hash = shabal256.digest();
-        return new BigInteger(1, new byte[] {hash[7], hash[6], hash[5], hash[4], hash[3], hash[2], hash[1], hash[0]});
+        return Deadlines.toBigInteger(calculateHitLong(accountId, nonce, genSig, scoop, pocVersion));
     }
 
     @Override
     public BigInteger calculateHit(long accountId, long nonce, byte[] genSig, byte[] scoopData) {
-        MessageDigest shabal256 = shabal256Supplier.get();
-        shabal256.update(genSig);
-        shabal256.update(scoopData);
-        byte[] hash = shabal256.digest();
-        return new BigInteger(1, new byte[] {hash[7], hash[6], hash[5], hash[4], hash[3], hash[2], hash[1], hash[0]});
+        return Deadlines.toBigInteger(calculateHitLong(accountId, nonce, genSig, scoopData));
     }
 
     @Override
@@ -55,4 +123,158 @@ public class PlotCalculatorImpl implements PlotCalculator { // TODO all of this
         BigInteger hit = calculateHit(accountId, nonce, genSig, scoop, pocVersion);
         return hit.divide(BigInteger.valueOf(baseTarget));
     }
+
+    @Override
+    public BigInteger calculateHit(long accountId, long nonce, MiningRound round, int pocVersion) {
+        return calculateHit(accountId, nonce, round.getGenSig(), round.getScoop(), pocVersion);
+    }
+
+    @Override
+    public BigInteger calculateHit(long accountId, long nonce, MiningRound round, byte[] scoopData) {
+        return calculateHit(accountId, nonce, round.getGenSig(), scoopData);
+    }
+
+    @Override
+    public BigInteger calculateDeadline(long accountId, long nonce, MiningRound round, int pocVersion) {
+        return calculateHit(accountId, nonce, round, pocVersion).divide(round.getBaseTargetBigInteger());
+    }
+
+    @Override
+    public long calculateHitLong(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion) {
+        MessageDigest shabal256 = this.shabal256.get();
+        MiningPlot plot = miningPlot.get();
+        plot.generate(shabal256, accountId, nonce);
+        return hitOf(plot, shabal256, hashBuffer.get(), genSig, scoop, pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(long accountId, long nonce, byte[] genSig, byte[] scoopData) {
+        MessageDigest shabal256 = this.shabal256.get();
+        shabal256.update(genSig);
+        shabal256.update(scoopData);
+        return digestToHit(shabal256, hashBuffer.get());
+    }
+
+    @Override
+    public long calculateDeadlineLong(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
+        return Long.divideUnsigned(calculateHitLong(accountId, nonce, genSig, scoop, pocVersion), baseTarget);
+    }
+
+    @Override
+    public long calculateHitLong(long accountId, long nonce, MiningRound round, int pocVersion) {
+        return calculateHitLong(accountId, nonce, round.getGenSig(), round.getScoop(), pocVersion);
+    }
+
+    @Override
+    public long calculateHitLong(long accountId, long nonce, MiningRound round, byte[] scoopData) {
+        return calculateHitLong(accountId, nonce, round.getGenSig(), scoopData);
+    }
+
+    @Override
+    public long calculateDeadlineLong(long accountId, long nonce, MiningRound round, int pocVersion) {
+        return Long.divideUnsigned(calculateHitLong(accountId, nonce, round, pocVersion), round.getBaseTarget());
+    }
+
+    @Override
+    public DeadlineBatch calculateDeadlines(long accountId, long startNonce, int count, MiningRound round, int pocVersion) {
+        return calculateDeadlines(accountId, startNonce, count, round.getGenSig(), round.getScoop(), round.getBaseTarget(), pocVersion);
+    }
+
+    @Override
+    public DeadlineBatch calculateDeadlines(long accountId, long startNonce, int count, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative");
+        }
+        long[] deadlines = new long[count];
+        forkJoinPool.invoke(new DeadlineTask(accountId, startNonce, genSig, scoop, baseTarget, pocVersion, deadlines, 0, count));
+        int bestIndex = -1;
+        for (int i = 0; i < count; i++) {
+            if (bestIndex < 0 || Long.compareUnsigned(deadlines[i], deadlines[bestIndex]) < 0) {
+                bestIndex = i;
+            }
+        }
+        return new DeadlineBatch(startNonce, deadlines, bestIndex);
+    }
+
+    /**
+     * Calculate the deadlines of deadlines[from] to deadlines[to - 1] using this thread's scratch plots and digests.
+     */
+    private void calculateDeadlines(long accountId, long startNonce, byte[] genSig, int scoop, long baseTarget, int pocVersion, long[] deadlines, int from, int to) {
+        MessageDigest shabal256 = this.shabal256.get();
+        MiningPlot[] plots = miningPlots.get();
+        byte[] hashBuffer = this.hashBuffer.get();
+        int i = from;
+        if (lanes > 1) {
+            Shabal256Lanes shabal256Lanes = this.shabal256Lanes.get();
+            for (; to - i >= lanes; i += lanes) {
+                MiningPlot.generate(shabal256Lanes, plots, accountId, startNonce + i);
+                for (int l = 0; l < lanes; l++) {
+                    deadlines[i + l] = Long.divideUnsigned(hitOf(plots[l], shabal256, hashBuffer, genSig, scoop, pocVersion), baseTarget);
+                }
+            }
+        }
+        for (; i < to; i++) {
+            plots[0].generate(shabal256, accountId, startNonce + i);
+            deadlines[i] = Long.divideUnsigned(hitOf(plots[0], shabal256, hashBuffer, genSig, scoop, pocVersion), baseTarget);
+        }
+    }
+
+    private static long hitOf(MiningPlot plot, MessageDigest shabal256, byte[] hashBuffer, byte[] genSig, int scoop, int pocVersion) {
+        shabal256.update(genSig);
+        plot.hashScoop(shabal256, scoop, pocVersion);
+        return digestToHit(shabal256, hashBuffer);
+    }
+
+    /**
+     * Finish a digest and read its first 8 bytes as a little-endian long, without allocating.
+     * @param hashBuffer Scratch space for digests that are not our own {@link Shabal256}
+     */
+    private static long digestToHit(MessageDigest shabal256, byte[] hashBuffer) {
+        if (shabal256 instanceof Shabal256) {
+            return ((Shabal256) shabal256).digestToLong();
+        }
+        try {
+            shabal256.digest(hashBuffer, 0, hashBuffer.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return UzcCrypto.getInstance().bytesToLong(hashBuffer);
+    }
+
+    @SuppressWarnings("serial") // Never serialized
+    private class DeadlineTask extends RecursiveAction {
+        private final long accountId;
+        private final long startNonce;
+        private final byte[] genSig;
+        private final int scoop;
+        private final long baseTarget;
+        private final int pocVersion;
+        private final long[] deadlines;
+        private final int from;
+        private final int to;
+
+        private DeadlineTask(long accountId, long startNonce, byte[] genSig, int scoop, long baseTarget, int pocVersion, long[] deadlines, int from, int to) {
+            this.accountId = accountId;
+            this.startNonce = startNonce;
+            this.genSig = genSig;
+            this.scoop = scoop;
+            this.baseTarget = baseTarget;
+            this.pocVersion = pocVersion;
+            this.deadlines = deadlines;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= NONCES_PER_TASK) {
+                calculateDeadlines(accountId, startNonce, genSig, scoop, baseTarget, pocVersion, deadlines, from, to);
+            } else {
+                int half = (to - from) >>> 1;
+                int mid = from + (half >= lanes ? half - half % lanes : half); // Keep leaves a multiple of the lane count
+                invokeAll(new DeadlineTask(accountId, startNonce, genSig, scoop, baseTarget, pocVersion, deadlines, from, mid),
+                        new DeadlineTask(accountId, startNonce, genSig, scoop, baseTarget, pocVersion, deadlines, mid, to));
+            }
+        }
+    }
 }
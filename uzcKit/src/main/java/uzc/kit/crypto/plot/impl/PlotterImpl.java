@@ -0,0 +1,274 @@
+package uzc.kit.crypto.plot.impl;
+
+import uzc.kit.crypto.hash.shabal.Shabal256;
+import uzc.kit.crypto.hash.shabal.Shabal256Lanes;
+import uzc.kit.crypto.plot.PlotFile;
+import uzc.kit.crypto.plot.Plotter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongConsumer;
+
+/**
+ * Generates nonces in batches and writes them in PoC2 order.
+ *
+ * A batch of nonces is generated in parallel into a direct buffer laid out like the file (scoop-major), so each
+ * of its 4096 scoops is written with one sequential write. While one batch is being written the next one is
+ * generated into a second buffer. After every batch the number of nonces written is saved in a
+ * {@code .progress} file next to the plot, which is deleted once the plot is complete.
+ */
+public class PlotterImpl implements Plotter {
+    private static final int DEFAULT_LANES = 8;
+    private static final int DEFAULT_BATCH_NONCES = 512;
+    /**
+     * The fraction of the maximum heap size that the default batches may take up. Unless set otherwise, the maximum
+     * amount of direct memory is the same as the maximum heap size.
+     */
+    private static final int DEFAULT_BATCH_MEMORY_DIVISOR = 4;
+    private static final int MAX_BATCH_NONCES = Integer.MAX_VALUE / PlotFile.NONCE_SIZE;
+    private static final String PROGRESS_SUFFIX = ".progress";
+    private static final String PROGRESS_TEMP_SUFFIX = ".tmp";
+
+    private final ForkJoinPool forkJoinPool;
+    private final int lanes;
+    private final int batchNonces;
+    private final ThreadLocal<MiningPlot[]> miningPlots;
+    private final ThreadLocal<Shabal256Lanes> shabal256Lanes;
+    private final ThreadLocal<MessageDigest> shabal256 = ThreadLocal.withInitial(Shabal256::new);
+    private final ThreadLocal<byte[]> scoopBuffer = ThreadLocal.withInitial(() -> new byte[MiningPlot.SCOOP_SIZE]);
+
+    /**
+     * Uses batches of up to 512 nonces, fewer if the two batches would take up more than a quarter of the maximum heap
+     * size, which is also the default maximum amount of direct memory.
+     */
+    public PlotterImpl() {
+        this(ForkJoinPool.commonPool(), DEFAULT_LANES, defaultBatchNonces());
+    }
+
+    /**
+     * @param forkJoinPool The pool to generate nonces on
+     * @param lanes The number of nonces each thread generates at once using {@link Shabal256Lanes}. 1 uses plain {@link Shabal256}.
+     * @param batchNonces The number of nonces held in memory at once. Two batches of this many 256 KiB nonces are allocated
+     *                    as direct buffers, which must fit within {@code -XX:MaxDirectMemorySize}.
+     */
+    public PlotterImpl(ForkJoinPool forkJoinPool, int lanes, int batchNonces) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("Lanes must be positive");
+        }
+        if (batchNonces < 1 || batchNonces > MAX_BATCH_NONCES) {
+            throw new IllegalArgumentException("Batch nonces must be between 1 and " + MAX_BATCH_NONCES);
+        }
+        this.forkJoinPool = forkJoinPool;
+        this.lanes = lanes;
+        this.batchNonces = batchNonces;
+        this.miningPlots = ThreadLocal.withInitial(() -> {
+            MiningPlot[] plots = new MiningPlot[lanes];
+            for (int i = 0; i < lanes; i++) {
+                plots[i] = new MiningPlot();
+            }
+            return plots;
+        });
+        this.shabal256Lanes = ThreadLocal.withInitial(() -> new Shabal256Lanes(lanes));
+    }
+
+    private static int defaultBatchNonces() {
+        long memoryNonces = Runtime.getRuntime().maxMemory() / DEFAULT_BATCH_MEMORY_DIVISOR / (2L * PlotFile.NONCE_SIZE);
+        return (int) Math.max(1, Math.min(DEFAULT_BATCH_NONCES, memoryNonces));
+    }
+
+    @Override
+    public Path plot(Path directory, long accountId, long startNonce, long nonces) throws IOException {
+        return plot(directory, accountId, startNonce, nonces, written -> {});
+    }
+
+    @Override
+    public Path plot(Path directory, long accountId, long startNonce, long nonces, LongConsumer progress) throws IOException {
+        if (nonces <= 0) {
+            throw new IllegalArgumentException("Nonces must be positive");
+        }
+        Path path = directory.resolve(Long.toUnsignedString(accountId) + "_" + Long.toUnsignedString(startNonce) + "_" + nonces);
+        Path progressPath = directory.resolve(path.getFileName() + PROGRESS_SUFFIX);
+        long fileSize = nonces * PlotFile.NONCE_SIZE;
+        long written;
+        if (Files.exists(progressPath)) {
+            written = readProgress(progressPath, nonces);
+        } else if (Files.exists(path) && Files.size(path) == fileSize) {
+            return path; // Already complete
+        } else {
+            written = 0;
+            writeProgress(progressPath, 0);
+        }
+
+        int bufferNonces = (int) Math.min(batchNonces, nonces);
+        ByteBuffer[] buffers = { ByteBuffer.allocateDirect(bufferNonces * PlotFile.NONCE_SIZE), ByteBuffer.allocateDirect(bufferNonces * PlotFile.NONCE_SIZE) };
+        ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "uzckit-plot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() != fileSize) {
+                channel.truncate(fileSize);
+                if (channel.size() < fileSize) {
+                    // Extend the file to its full size, so the scoops of the first batches can be written anywhere in it
+                    channel.write(ByteBuffer.allocate(1), fileSize - 1);
+                }
+            }
+            Future<Long> pendingWrite = null;
+            long generated = written;
+            for (int batch = 0; generated < nonces; batch++) {
+                // Alternate buffers, so one batch can be generated while the previous one is being written
+                ByteBuffer buffer = buffers[batch & 1];
+                int count = (int) Math.min(bufferNonces, nonces - generated);
+                forkJoinPool.invoke(new PlotTask(accountId, startNonce + generated, buffer, count, 0, count));
+                if (pendingWrite != null) {
+                    progress.accept(await(pendingWrite));
+                }
+                long batchOffset = generated;
+                pendingWrite = writer.submit(() -> {
+                    writeBatch(channel, buffer, count, nonces, batchOffset);
+                    writeProgress(progressPath, batchOffset + count);
+                    return batchOffset + count;
+                });
+                generated += count;
+            }
+            if (pendingWrite != null) {
+                progress.accept(await(pendingWrite));
+            }
+        } finally {
+            writer.shutdownNow();
+        }
+        Files.delete(progressPath);
+        return path;
+    }
+
+    /**
+     * Write a generated batch at its place in each of the file's scoop regions
+     */
+    private static void writeBatch(FileChannel channel, ByteBuffer buffer, int count, long nonces, long batchOffset) throws IOException {
+        int segmentSize = count * MiningPlot.SCOOP_SIZE;
+        for (int scoop = 0; scoop < MiningPlot.SCOOPS_PER_PLOT; scoop++) {
+            ByteBuffer segment = buffer.duplicate();
+            segment.limit((scoop + 1) * segmentSize).position(scoop * segmentSize);
+            long position = (scoop * nonces + batchOffset) * MiningPlot.SCOOP_SIZE;
+            while (segment.hasRemaining()) {
+                position += channel.write(segment, position);
+            }
+        }
+        channel.force(false);
+    }
+
+    private static long await(Future<Long> pendingWrite) throws IOException {
+        try {
+            return pendingWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing plot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static long readProgress(Path progressPath, long nonces) throws IOException {
+        String progress = new String(Files.readAllBytes(progressPath), StandardCharsets.UTF_8).trim();
+        long written;
+        try {
+            written = Long.parseLong(progress);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid plot progress file " + progressPath + ": " + progress, e);
+        }
+        if (written < 0 || written > nonces) {
+            throw new IOException("Invalid plot progress file " + progressPath + ": " + progress);
+        }
+        return written;
+    }
+
+    private static void writeProgress(Path progressPath, long written) throws IOException {
+        // Replaced in one go, so an interruption leaves either the old or the new progress
+        Path tempPath = progressPath.resolveSibling(progressPath.getFileName() + PROGRESS_TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(written).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(tempPath, progressPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Generate nonces from to to - 1 of a batch into the batch's buffer using this thread's scratch plots and digests.
+     */
+    private void generate(long accountId, long batchStartNonce, ByteBuffer buffer, int count, int from, int to) {
+        MiningPlot[] plots = miningPlots.get();
+        ByteBuffer out = buffer.duplicate();
+        int i = from;
+        if (lanes > 1) {
+            Shabal256Lanes shabal256Lanes = this.shabal256Lanes.get();
+            for (; to - i >= lanes; i += lanes) {
+                MiningPlot.generate(shabal256Lanes, plots, accountId, batchStartNonce + i);
+                for (int l = 0; l < lanes; l++) {
+                    putScoops(plots[l], out, count, i + l);
+                }
+            }
+        }
+        MessageDigest shabal256 = this.shabal256.get();
+        for (; i < to; i++) {
+            plots[0].generate(shabal256, accountId, batchStartNonce + i);
+            putScoops(plots[0], out, count, i);
+        }
+    }
+
+    private void putScoops(MiningPlot plot, ByteBuffer out, int count, int index) {
+        byte[] scoopBuffer = this.scoopBuffer.get();
+        for (int scoop = 0; scoop < MiningPlot.SCOOPS_PER_PLOT; scoop++) {
+            plot.getScoop(scoop, 2, scoopBuffer, 0);
+            out.position((scoop * count + index) * MiningPlot.SCOOP_SIZE);
+            out.put(scoopBuffer);
+        }
+    }
+
+    @SuppressWarnings("serial") // Never serialized
+    private class PlotTask extends RecursiveAction {
+        private final long accountId;
+        private final long batchStartNonce;
+        private final ByteBuffer buffer;
+        private final int count;
+        private final int from;
+        private final int to;
+
+        private PlotTask(long accountId, long batchStartNonce, ByteBuffer buffer, int count, int from, int to) {
+            this.accountId = accountId;
+            this.batchStartNonce = batchStartNonce;
+            this.buffer = buffer;
+            this.count = count;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= lanes) {
+                generate(accountId, batchStartNonce, buffer, count, from, to);
+            } else {
+                int half = (to - from) >>> 1;
+                int mid = from + (half >= lanes ? half - half % lanes : half); // Keep leaves a multiple of the lane count
+                invokeAll(new PlotTask(accountId, batchStartNonce, buffer, count, from, mid),
+                        new PlotTask(accountId, batchStartNonce, buffer, count, mid, to));
+            }
+        }
+    }
+}
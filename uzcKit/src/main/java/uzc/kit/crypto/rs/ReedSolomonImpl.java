@@ -6,9 +6,7 @@
 */
 package uzc.kit.crypto.rs;
 
-import uzc.kit.entity.UzcID;
-
-import java.math.BigInteger;
+import java.util.Arrays;
 
 public final class ReedSolomonImpl implements ReedSolomon {
 
@@ -17,63 +15,47 @@ public final class ReedSolomonImpl implements ReedSolomon {
   private static final int[] glog = {0, 0, 1, 18, 2, 5, 19, 11, 3, 29, 6, 27, 20, 8, 12, 23, 4, 10, 30, 17, 7, 22, 28, 26, 21, 25, 9, 16, 13, 14, 24, 15};
   private static final int[] codeword_map = {3, 2, 1, 0, 7, 6, 5, 4, 13, 14, 15, 16, 12, 8, 9, 10, 11};
   private static final String alphabet = "23456789ABCDEFGHJKLMNPQRSTUVWXYZ";
+  private static final char[] alphabet_chars = alphabet.toCharArray();
+  private static final int[] alphabet_index = alphabet_index();
+
+  // Products with the generator polynomial's coefficients, for encoding
+  private static final int[] gmult_30 = gmult_table(30);
+  private static final int[] gmult_6 = gmult_table(6);
+  private static final int[] gmult_9 = gmult_table(9);
+  private static final int[] gmult_17 = gmult_table(17);
 
   private static final int base_32_length = 13;
-  private static final int base_10_length = 20;
 
   @Override
   public String encode(long plain) {
-    String plain_string = UzcID.fromLong(plain).getID();
-    int length = plain_string.length();
-    int[] plain_string_10 = new int[base_10_length];
-    for (int i = 0; i < length; i++) {
-      plain_string_10[i] = (int)plain_string.charAt(i) - (int)'0';
-    }
-
-    int codeword_length = 0;
     int[] codeword = new int[initial_codeword.length];
+    for (int i = 0; i < base_32_length; i++) { // base 32 digits of the unsigned value
+      codeword[i] = (int) (plain >>> (5 * i)) & 31;
+    }
 
-    do {  // base 10 to base 32 conversion
-      int new_length = 0;
-      int digit_32 = 0;
-      for (int i = 0; i < length; i++) {
-        digit_32 = digit_32 * 10 + plain_string_10[i];
-        if (digit_32 >= 32) {
-          plain_string_10[new_length] = digit_32 >> 5;
-          digit_32 &= 31;
-          new_length += 1;
-        } else if (new_length > 0) {
-          plain_string_10[new_length] = 0;
-          new_length += 1;
-        }
-      }
-      length = new_length;
-      codeword[codeword_length] = digit_32;
-      codeword_length += 1;
-    } while(length > 0);
-
-    int[] p = {0, 0, 0, 0};
+    int p0 = 0, p1 = 0, p2 = 0, p3 = 0;
     for (int i = base_32_length - 1; i >= 0; i--) {
-      final int fb = codeword[i] ^ p[3];
-      p[3] = p[2] ^ this.gmult(30, fb);
-      p[2] = p[1] ^ this.gmult(6, fb);
-      p[1] = p[0] ^ this.gmult(9, fb);
-      p[0] =        this.gmult(17, fb);
+      final int fb = codeword[i] ^ p3;
+      p3 = p2 ^ gmult_30[fb];
+      p2 = p1 ^ gmult_6[fb];
+      p1 = p0 ^ gmult_9[fb];
+      p0 =      gmult_17[fb];
     }
+    codeword[base_32_length] = p0;
+    codeword[base_32_length + 1] = p1;
+    codeword[base_32_length + 2] = p2;
+    codeword[base_32_length + 3] = p3;
 
-    System.arraycopy(p, 0, codeword, base_32_length, initial_codeword.length - base_32_length);
-
-    StringBuilder cypher_string_builder = new StringBuilder();
+    char[] cypher_chars = new char[20];
+    int position = 0;
     for (int i = 0; i < 17; i++) {
-      final int codework_index = codeword_map[i];
-      final int alphabet_index = codeword[codework_index];
-      cypher_string_builder.append(alphabet.charAt(alphabet_index));
+      cypher_chars[position++] = alphabet_chars[codeword[codeword_map[i]]];
 
       if ((i & 3) == 3 && i < 13) {
-        cypher_string_builder.append('-');
+        cypher_chars[position++] = '-';
       }
     }
-    return cypher_string_builder.toString();
+    return new String(cypher_chars);
   }
 
   @Override
@@ -84,7 +66,8 @@ public final class ReedSolomonImpl implements ReedSolomon {
 
     int codeword_length = 0;
     for (int i = 0; i < cypher_string.length(); i++) {
-      int position_in_alphabet = alphabet.indexOf(cypher_string.charAt(i));
+      char c = cypher_string.charAt(i);
+      int position_in_alphabet = c < alphabet_index.length ? alphabet_index[c] : -1;
 
       if (position_in_alphabet <= -1) {
         continue;
@@ -103,38 +86,14 @@ public final class ReedSolomonImpl implements ReedSolomon {
       throw new CodewordInvalidException();
     }
 
-    int length = base_32_length;
-    int[] cypher_string_32 = new int[length];
-    for (int i = 0; i < length; i++) {
-      cypher_string_32[i] = codeword[length - i - 1];
+    long plain = 0; // base 32 to binary, keeping the low 64 bits
+    for (int i = base_32_length - 1; i >= 0; i--) {
+      plain = (plain << 5) | codeword[i];
     }
-
-    StringBuilder plain_string_builder = new StringBuilder();
-    do { // base 32 to base 10 conversion
-      int new_length = 0;
-      int digit_10 = 0;
-
-      for (int i = 0; i < length; i++) {
-        digit_10 = digit_10 * 32 + cypher_string_32[i];
-
-        if (digit_10 >= 10) {
-          cypher_string_32[new_length] = digit_10 / 10;
-          digit_10 %= 10;
-          new_length += 1;
-        } else if (new_length > 0) {
-          cypher_string_32[new_length] = 0;
-          new_length += 1;
-        }
-      }
-      length = new_length;
-      plain_string_builder.append((char)(digit_10 + (int)'0'));
-    } while (length > 0);
-
-    BigInteger bigInt = new BigInteger(plain_string_builder.reverse().toString());
-    return bigInt.longValue();
+    return plain;
   }
 
-  private int gmult(int a, int b) {
+  private static int gmult(int a, int b) {
     if (a == 0 || b == 0) {
       return 0;
     }
@@ -144,6 +103,23 @@ public final class ReedSolomonImpl implements ReedSolomon {
     return gexp[idx];
   }
 
+  private static int[] gmult_table(int a) {
+    int[] table = new int[32];
+    for (int b = 0; b < 32; b++) {
+      table[b] = gmult(a, b);
+    }
+    return table;
+  }
+
+  private static int[] alphabet_index() {
+    int[] index = new int[128];
+    Arrays.fill(index, -1);
+    for (int i = 0; i < alphabet.length(); i++) {
+      index[alphabet.charAt(i)] = i;
+    }
+    return index;
+  }
+
   private boolean is_codeword_valid(int[] codeword) {
     int sum = 0;
 
@@ -160,7 +136,7 @@ public final class ReedSolomonImpl implements ReedSolomon {
           pos -= 14;
         }
 
-        t ^= this.gmult(codeword[pos], gexp[(i * j) % 31]);
+        t ^= gmult(codeword[pos], gexp[(i * j) % 31]);
       }
 
       sum |= t;
@@ -0,0 +1,51 @@
+package uzc.kit.entity;
+
+import uzc.kit.crypto.UzcCrypto;
+
+public final class SignedMessage {
+    private final byte[] message;
+    private final byte[] signature;
+    private final byte[] publicKey;
+
+    /**
+     * Create from a message and its signature
+     * @param message The message that was signed
+     * @param signature The signature
+     * @param publicKey The public key of the signee
+     */
+    public SignedMessage(byte[] message, byte[] signature, byte[] publicKey) {
+        this.message = message;
+        this.signature = signature;
+        this.publicKey = publicKey;
+    }
+
+    /**
+     * Verify the signature
+     * @param enforceCanonical Whether to insist that the signature is canonical
+     * @return Whether the signature is valid or not
+     */
+    public boolean verify(boolean enforceCanonical) {
+        return UzcCrypto.getInstance().verify(signature, message, publicKey, enforceCanonical);
+    }
+
+    /**
+     * @return The message that was signed
+     */
+    public byte[] getMessage() {
+        return message;
+    }
+
+    /**
+     * @return The signature
+     */
+    public byte[] getSignature() {
+        return signature;
+    }
+
+    /**
+     * @return The public key of the signee
+     */
+    public byte[] getPublicKey() {
+        return publicKey;
+    }
+}
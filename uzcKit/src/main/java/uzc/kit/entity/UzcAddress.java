@@ -6,19 +6,53 @@ import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializer;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @SuppressWarnings("WeakerAccess")
 public final class UzcAddress {
 
     /**
-     * Stored without "UZC-" prefix.
+     * Stored without "UZC-" prefix. Encoded on first use, as most addresses are only compared by ID. Threads racing
+     * to encode it store equal immutable strings, so like String's hash code it needs no synchronization.
      */
-    private final String address;
+    private String address;
     private final UzcID numericID;
 
+    /**
+     * Recently created addresses by ID, or null if interning is disabled. Each ID maps to one slot, which keeps the
+     * last address created for any ID mapping to it.
+     */
+    private static volatile AtomicReferenceArray<UzcAddress> internCache;
+
     private UzcAddress(UzcID uzcID) {
         this.numericID = uzcID;
-        this.address = UzcCrypto.getInstance().rsEncode(numericID);
+    }
+
+    /**
+     * Keep recently created addresses, so that creating the address of an ID that was seen recently returns the
+     * same instance, whose address is encoded at most once. Disabled by default.
+     * @param capacity The number of addresses to keep, rounded up to a power of two, or 0 to disable interning
+     */
+    public static void setInternCacheCapacity(int capacity) {
+        if (capacity < 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 0 and 2^30");
+        }
+        internCache = capacity == 0 ? null : new AtomicReferenceArray<>(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    private static UzcAddress intern(long signedLongId) {
+        AtomicReferenceArray<UzcAddress> cache = internCache;
+        if (cache == null) {
+            return new UzcAddress(UzcID.fromLong(signedLongId));
+        }
+        int hash = Long.hashCode(signedLongId) * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & (cache.length() - 1);
+        UzcAddress address = cache.get(slot);
+        if (address == null || address.getSignedLongId() != signedLongId) {
+            address = new UzcAddress(UzcID.fromLong(signedLongId));
+            cache.set(slot, address);
+        }
+        return address;
     }
 
     /**
@@ -28,7 +62,7 @@ public final class UzcAddress {
      * @throws IllegalArgumentException if the numericId is outside the range of accepted numbers (less than 0 or greater than / equal to 2^64)
      */
     public static UzcAddress fromId(UzcID uzcID) {
-        return new UzcAddress(uzcID);
+        return internCache == null ? new UzcAddress(uzcID) : intern(uzcID.getSignedLongId());
     }
 
     /**
@@ -38,7 +72,7 @@ public final class UzcAddress {
      * @throws IllegalArgumentException if the numericId is outside the range of accepted numbers (less than 0 or greater than / equal to 2^64)
      */
     public static UzcAddress fromId(long signedLongId) {
-        return new UzcAddress(UzcID.fromLong(signedLongId));
+        return intern(signedLongId);
     }
 
     /**
@@ -48,14 +82,14 @@ public final class UzcAddress {
      * @throws IllegalArgumentException if the numericId is outside the range of accepted numbers (less than 0 or greater than / equal to 2^64)
      */
     public static UzcAddress fromId(String unsignedLongId) {
-        return new UzcAddress(UzcID.fromLong(unsignedLongId));
+        return fromId(UzcID.fromLong(unsignedLongId));
     }
 
     public static UzcAddress fromRs(String RS) throws IllegalArgumentException {
         if (RS.startsWith("UZC-")) {
             RS = RS.substring(4);
         }
-        return new UzcAddress(UzcCrypto.getInstance().rsDecode(RS));
+        return fromId(UzcCrypto.getInstance().rsDecode(RS));
     }
 
     /**
@@ -102,6 +136,11 @@ public final class UzcAddress {
      * @return The ReedSolomon encoded address, without the "UZC-" prefix
      */
     public String getRawAddress() {
+        String address = this.address;
+        if (address == null) {
+            address = UzcCrypto.getInstance().rsEncode(numericID);
+            this.address = address;
+        }
         return address;
     }
 
@@ -109,6 +148,7 @@ public final class UzcAddress {
      * @return The ReedSolomon encoded address, with the "UZC-" prefix
      */
     public String getFullAddress() {
+        String address = getRawAddress();
         if (address == null || address.length() == 0) {
             return "";
         } else {
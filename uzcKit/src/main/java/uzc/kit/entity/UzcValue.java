@@ -6,15 +6,34 @@ import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 
+/**
+ * An amount of Uzc. Every on-chain amount fits in a signed 64-bit number of planck, so the value is kept as a long
+ * and arithmetic is overflow-checked, falling back to a BigInteger only for results that do not fit in a long.
+ */
 public final class UzcValue implements Comparable<UzcValue> {
     private static final int decimals = 8;
+    private static final BigDecimal planckPerUzc = BigDecimal.TEN.pow(decimals);
 
     public static final UzcValue ZERO = UzcValue.fromPlanck(0);
-    
-    private final BigInteger planck;
 
-    private UzcValue(BigInteger planck) {
+    /**
+     * The number of planck, if it fits in a long
+     */
+    private final long planck;
+    /**
+     * The number of planck if it does not fit in a long, otherwise null. Values that fit in a long never use this,
+     * so that equal values always have the same representation.
+     */
+    private final BigInteger bigPlanck;
+
+    private UzcValue(long planck) {
         this.planck = planck;
+        this.bigPlanck = null;
+    }
+
+    private UzcValue(BigInteger bigPlanck) {
+        this.planck = bigPlanck.longValue();
+        this.bigPlanck = bigPlanck;
     }
 
     /**
@@ -27,9 +46,13 @@ public final class UzcValue implements Comparable<UzcValue> {
             planck = planck.substring(0, planck.length() - 7);
         }
         try {
-            return fromPlanck(new BigInteger(planck));
+            return fromPlanck(Long.parseLong(planck));
         } catch (NumberFormatException e) {
-            return fromPlanck(BigInteger.ZERO);
+            try {
+                return fromPlanck(new BigInteger(planck));
+            } catch (NumberFormatException e2) {
+                return ZERO;
+            }
         }
     }
 
@@ -38,12 +61,12 @@ public final class UzcValue implements Comparable<UzcValue> {
      * @return The UzcValue representing this number of planck
      */
     public static UzcValue fromPlanck(long planck) {
-        return fromPlanck(BigInteger.valueOf(planck));
+        return new UzcValue(planck);
     }
 
     public static UzcValue fromPlanck(BigInteger planck) {
         if (planck == null) return ZERO;
-        return new UzcValue(planck);
+        return planck.bitLength() < Long.SIZE ? new UzcValue(planck.longValue()) : new UzcValue(planck);
     }
 
     /**
@@ -53,12 +76,12 @@ public final class UzcValue implements Comparable<UzcValue> {
     public static UzcValue fromUzc(String uzc) {
         if (uzc == null) return ZERO;
         if (uzc.toLowerCase(Locale.ENGLISH).endsWith(" uzc")) {
-            uzc = uzc.substring(0, uzc.length() - 6);
+            uzc = uzc.substring(0, uzc.length() - 4);
         }
         try {
             return fromUzc(new BigDecimal(uzc));
         } catch (NumberFormatException e) {
-            return fromPlanck(BigInteger.ZERO);
+            return ZERO;
         }
     }
 
@@ -72,7 +95,7 @@ public final class UzcValue implements Comparable<UzcValue> {
 
     public static UzcValue fromUzc(BigDecimal uzc) {
         if (uzc == null) return ZERO;
-        return new UzcValue(uzc.multiply(BigDecimal.TEN.pow(decimals)).toBigInteger());
+        return fromPlanck(uzc.multiply(planckPerUzc).toBigInteger());
     }
 
     private static BigDecimal roundToThreeDP(BigDecimal in) {
@@ -106,23 +129,51 @@ public final class UzcValue implements Comparable<UzcValue> {
      * @return A BigInteger representing the number of planck
      */
     public BigInteger toPlanck() {
-        return planck;
+        return bigPlanck != null ? bigPlanck : BigInteger.valueOf(planck);
+    }
+
+    /**
+     * @return Whether the number of planck fits in a long, which is always the case for on-chain amounts
+     */
+    public boolean fitsInLong() {
+        return bigPlanck == null;
     }
 
     public BigDecimal toUzc() {
-        return new BigDecimal(planck, decimals);
+        return bigPlanck != null ? new BigDecimal(bigPlanck, decimals) : BigDecimal.valueOf(planck, decimals);
     }
 
     public UzcValue add(UzcValue other) {
-        return fromPlanck(planck.add(other.planck));
+        if (bigPlanck == null && other.bigPlanck == null) {
+            try {
+                return new UzcValue(Math.addExact(planck, other.planck));
+            } catch (ArithmeticException e) {
+                // Overflow, fall back to BigInteger
+            }
+        }
+        return fromPlanck(toPlanck().add(other.toPlanck()));
     }
 
     public UzcValue subtract(UzcValue other) {
-        return fromPlanck(planck.subtract(other.planck));
+        if (bigPlanck == null && other.bigPlanck == null) {
+            try {
+                return new UzcValue(Math.subtractExact(planck, other.planck));
+            } catch (ArithmeticException e) {
+                // Overflow, fall back to BigInteger
+            }
+        }
+        return fromPlanck(toPlanck().subtract(other.toPlanck()));
     }
 
     public UzcValue multiply(long multiplicand) {
-        return fromPlanck(planck.multiply(BigInteger.valueOf(multiplicand)));
+        if (bigPlanck == null) {
+            try {
+                return new UzcValue(Math.multiplyExact(planck, multiplicand));
+            } catch (ArithmeticException e) {
+                // Overflow, fall back to BigInteger
+            }
+        }
+        return fromPlanck(toPlanck().multiply(BigInteger.valueOf(multiplicand)));
     }
 
     public UzcValue multiply(double multiplicand) {
@@ -130,7 +181,7 @@ public final class UzcValue implements Comparable<UzcValue> {
     }
 
     public UzcValue multiply(BigInteger multiplicand) {
-        return fromPlanck(planck.multiply(multiplicand));
+        return fromPlanck(toPlanck().multiply(multiplicand));
     }
 
     public UzcValue multiply(BigDecimal multiplicand) {
@@ -138,7 +189,11 @@ public final class UzcValue implements Comparable<UzcValue> {
     }
 
     public UzcValue divide(long divisor) {
-        return fromPlanck(planck.divide(BigInteger.valueOf(divisor)));
+        // Long.MIN_VALUE / -1 is the only long division that overflows
+        if (bigPlanck == null && (planck != Long.MIN_VALUE || divisor != -1)) {
+            return new UzcValue(planck / divisor);
+        }
+        return fromPlanck(toPlanck().divide(BigInteger.valueOf(divisor)));
     }
 
     public UzcValue divide(double divisor) {
@@ -146,7 +201,7 @@ public final class UzcValue implements Comparable<UzcValue> {
     }
     
     public UzcValue divide(BigInteger divisor) {
-        return fromPlanck(planck.divide(divisor));
+        return fromPlanck(toPlanck().divide(divisor));
     }
 
     public UzcValue divide(BigDecimal divisor) {
@@ -154,13 +209,19 @@ public final class UzcValue implements Comparable<UzcValue> {
     }
 
     public UzcValue abs() {
-        return fromPlanck(planck.abs());
+        if (bigPlanck == null && planck != Long.MIN_VALUE) {
+            return planck < 0 ? new UzcValue(-planck) : this;
+        }
+        return fromPlanck(toPlanck().abs());
     }
 
     @Override
     public int compareTo(UzcValue other) {
         if (other == null) return 1;
-        return planck.compareTo(other.planck);
+        if (bigPlanck == null && other.bigPlanck == null) {
+            return Long.compare(planck, other.planck);
+        }
+        return toPlanck().compareTo(other.toPlanck());
     }
 
     public static UzcValue min(UzcValue a, UzcValue b) {
@@ -178,11 +239,23 @@ public final class UzcValue implements Comparable<UzcValue> {
         return toUzc().doubleValue();
     }
 
+    /**
+     * @return The number of planck as a long. If it does not fit in a long, only the low-order 64 bits are returned,
+     * as with {@link BigInteger#longValue()}.
+     */
+    public long longValue() {
+        return planck;
+    }
+
     /**
      * @return The number of planck as a long
+     * @throws ArithmeticException if the number of planck does not fit in a long
      */
-    public long longValue() { // TODO test
-        return toPlanck().longValue();
+    public long longValueExact() {
+        if (bigPlanck != null) {
+            throw new ArithmeticException("UzcValue out of long range");
+        }
+        return planck;
     }
 
     @Override
@@ -192,11 +265,11 @@ public final class UzcValue implements Comparable<UzcValue> {
 
         UzcValue that = (UzcValue) o;
 
-        return planck != null ? planck.equals(that.planck) : that.planck == null;
+        return planck == that.planck && (bigPlanck != null ? bigPlanck.equals(that.bigPlanck) : that.bigPlanck == null);
     }
 
     @Override
     public int hashCode() {
-        return planck != null ? planck.hashCode() : 0;
+        return bigPlanck != null ? bigPlanck.hashCode() : Long.hashCode(planck);
     }
 }
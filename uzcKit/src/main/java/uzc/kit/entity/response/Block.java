@@ -20,6 +20,7 @@ public class Block {
     private final UzcID nextBlock;
     private final UzcID previousBlock;
     private final UzcID[] transactions;
+    private final Transaction[] includedTransactions;
     private final UzcTimestamp timestamp;
     private final UzcValue blockReward;
     private final UzcValue totalAmount;
@@ -42,6 +43,7 @@ public class Block {
         this.nextBlock = nextBlock;
         this.previousBlock = previousBlock;
         this.transactions = transactions;
+        this.includedTransactions = transactions != null && transactions.length == 0 ? new Transaction[0] : null;
         this.timestamp = timestamp;
         this.blockReward = blockReward;
         this.totalAmount = totalAmount;
@@ -67,6 +69,9 @@ public class Block {
         this.transactions = Arrays.stream(blockResponse.getTransactions())
                 .map(UzcID::fromLong)
                 .toArray(UzcID[]::new);
+        this.includedTransactions = transactions.length == 0 ? new Transaction[0] : blockResponse.getIncludedTransactions() == null ? null : Arrays.stream(blockResponse.getIncludedTransactions())
+                .map(Transaction::new)
+                .toArray(Transaction[]::new);
         this.timestamp = new UzcTimestamp(blockResponse.getTimestamp());
         this.blockReward = UzcValue.fromUzc(blockResponse.getBlockReward());
         this.totalAmount = UzcValue.fromPlanck(blockResponse.getTotalAmountNQT());
@@ -94,6 +99,10 @@ public class Block {
                 .stream()
                 .map(UzcID::fromLong)
                 .toArray(UzcID[]::new);
+        this.includedTransactions = transactions.length == 0 ? new Transaction[0] : block.getTransactionsCount() == 0 ? null : block.getTransactionsList()
+                .stream()
+                .map(Transaction::new)
+                .toArray(Transaction[]::new);
         this.timestamp = new UzcTimestamp(block.getTimestamp());
         this.blockReward = UzcValue.fromPlanck(block.getBlockReward());
         this.totalAmount = UzcValue.fromPlanck(block.getTotalAmount());
@@ -134,6 +143,13 @@ public class Block {
         return transactions;
     }
 
+    /**
+     * @return The transactions of the block, or null if the block was fetched without including its transactions
+     */
+    public Transaction[] getIncludedTransactions() {
+        return includedTransactions;
+    }
+
     public UzcTimestamp getTimestamp() {
         return timestamp;
     }
@@ -1,7 +1,39 @@
 package uzc.kit.entity.response.http;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
 @SuppressWarnings("unused")
 public final class BlockResponse extends BRSResponse {
+    /**
+     * Every field of this class is a plain value, so the rest of the block can be read without any type adapters
+     */
+    private static final Gson plainGson = new Gson();
+
+    /**
+     * A block requested with includeTransactions has the transactions themselves in place of their IDs, so this
+     * reads the IDs from the transactions and keeps the transactions separately.
+     */
+    public static final JsonDeserializer<BlockResponse> DESERIALIZER = (json, typeOfT, context) -> {
+        JsonObject block = json.getAsJsonObject();
+        JsonElement transactions = block.get("transactions");
+        TransactionResponse[] includedTransactions = null;
+        if (transactions != null && transactions.isJsonArray() && transactions.getAsJsonArray().size() > 0 && transactions.getAsJsonArray().get(0).isJsonObject()) {
+            includedTransactions = context.deserialize(transactions, TransactionResponse[].class);
+            JsonArray transactionIds = new JsonArray(transactions.getAsJsonArray().size());
+            for (JsonElement transaction : transactions.getAsJsonArray()) {
+                transactionIds.add(transaction.getAsJsonObject().get("transaction"));
+            }
+            block.add("transactions", transactionIds);
+        }
+        BlockResponse blockResponse = plainGson.fromJson(block, BlockResponse.class);
+        blockResponse.includedTransactions = includedTransactions;
+        return blockResponse;
+    };
+
     private final String previousBlockHash;
     private final int payloadLength;
     private final String totalAmountNQT;
@@ -16,6 +48,7 @@ public final class BlockResponse extends BRSResponse {
     private final int numberOfTransactions;
     private final String blockSignature;
     private final String[] transactions;
+    private transient TransactionResponse[] includedTransactions; // Set by the deserializer
     private final String nonce;
     private final int version;
     private final String totalFeeNQT;
@@ -132,4 +165,11 @@ public final class BlockResponse extends BRSResponse {
     public int getTimestamp() {
         return timestamp;
     }
+
+    /**
+     * @return The transactions of the block, or null if it was requested without includeTransactions
+     */
+    public TransactionResponse[] getIncludedTransactions() {
+        return includedTransactions;
+    }
 }
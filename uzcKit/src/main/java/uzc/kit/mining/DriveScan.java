@@ -0,0 +1,76 @@
+package uzc.kit.mining;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The result of scanning one drive for one mining round
+ */
+public final class DriveScan {
+    private final Path drive;
+    private final long height;
+    private final long noncesScanned;
+    private final long bestDeadline;
+    private final Duration scanTime;
+    private final boolean cancelled;
+    private final Throwable error;
+
+    public DriveScan(Path drive, long height, long noncesScanned, long bestDeadline, Duration scanTime, boolean cancelled, Throwable error) {
+        this.drive = drive;
+        this.height = height;
+        this.noncesScanned = noncesScanned;
+        this.bestDeadline = bestDeadline;
+        this.scanTime = scanTime;
+        this.cancelled = cancelled;
+        this.error = error;
+    }
+
+    /**
+     * @return The plot directory of the drive
+     */
+    public Path getDrive() {
+        return drive;
+    }
+
+    /**
+     * @return The height of the block that was mined
+     */
+    public long getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The number of nonces that were read and hashed
+     */
+    public long getNoncesScanned() {
+        return noncesScanned;
+    }
+
+    /**
+     * @return The best deadline found on this drive as an unsigned 64-bit value, or -1 (the greatest unsigned value) if none were found
+     */
+    public long getBestDeadline() {
+        return bestDeadline;
+    }
+
+    /**
+     * @return The time from the start of the round until every nonce on the drive was read and hashed
+     */
+    public Duration getScanTime() {
+        return scanTime;
+    }
+
+    /**
+     * @return Whether the scan was stopped early because new mining info arrived
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return The error that stopped the scan, or null if there was none
+     */
+    public Throwable getError() {
+        return error;
+    }
+}
@@ -0,0 +1,283 @@
+package uzc.kit.mining;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.hash.shabal.Shabal256;
+import uzc.kit.crypto.plot.Deadlines;
+import uzc.kit.crypto.plot.PlotFile;
+import uzc.kit.entity.UzcID;
+import uzc.kit.entity.response.MiningInfo;
+import uzc.kit.service.UzcNodeService;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.disposables.Disposable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Mines the plot files on a set of drives, starting a new round whenever the node's mining info changes.
+ *
+ * Each drive gets its own I/O thread, which maps and pages in one scoop of each plot file at a time and hands
+ * it to a hashing pool shared by all drives. At most {@value #WINDOWS_IN_FLIGHT_PER_DRIVE} windows per drive
+ * wait for hashing, so a fast drive cannot queue up more memory than the CPUs can get through. New mining info
+ * cancels the current round: drives stop reading and queued windows are dropped.
+ */
+public final class MiningRoundScheduler {
+    private static final int WINDOWS_IN_FLIGHT_PER_DRIVE = 2;
+    private static final int NONCES_PER_CANCELLATION_CHECK = 4096;
+
+    private final UzcNodeService nodeService;
+    private final String passphrase;
+    private final List<Path> drives;
+    private final int hashingThreads;
+    private final int readSize;
+
+    /**
+     * @param nodeService The node to get mining info from and submit nonces to
+     * @param passphrase The passphrase of the miner (if solo mining) or null if pool mining
+     * @param drives One plot directory per physical drive
+     */
+    public MiningRoundScheduler(UzcNodeService nodeService, String passphrase, List<Path> drives) {
+        this(nodeService, passphrase, drives, Runtime.getRuntime().availableProcessors(), PlotFile.DEFAULT_READ_SIZE);
+    }
+
+    /**
+     * @param nodeService The node to get mining info from and submit nonces to
+     * @param passphrase The passphrase of the miner (if solo mining) or null if pool mining
+     * @param drives One plot directory per physical drive
+     * @param hashingThreads The number of threads hashing scoops, shared between all drives
+     * @param readSize The maximum number of bytes read from a plot file at once
+     */
+    public MiningRoundScheduler(UzcNodeService nodeService, String passphrase, List<Path> drives, int hashingThreads, int readSize) {
+        if (hashingThreads < 1) {
+            throw new IllegalArgumentException("Hashing threads must be positive");
+        }
+        this.nodeService = nodeService;
+        this.passphrase = passphrase;
+        this.drives = new ArrayList<>(drives);
+        this.hashingThreads = hashingThreads;
+        this.readSize = readSize;
+    }
+
+    /**
+     * Start mining. Subscribing opens the plot files and starts the workers; disposing stops them and closes the files.
+     * @return An observable that emits the scan result of every drive at the end of every round
+     */
+    public Observable<DriveScan> mine() {
+        return Observable.create(emitter -> {
+            Session session = new Session(emitter.serialize());
+            emitter.setCancellable(session::close);
+            session.start();
+        });
+    }
+
+    private static List<PlotFile> openPlotFiles(Path drive) throws IOException {
+        List<PlotFile> plotFiles = new ArrayList<>();
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(drive)) {
+            paths = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            try {
+                plotFiles.add(PlotFile.open(path));
+            } catch (IllegalArgumentException e) {
+                // Not a plot file
+            }
+        }
+        return plotFiles;
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Session {
+        private final ObservableEmitter<DriveScan> emitter;
+        private final List<List<PlotFile>> plotFiles = new ArrayList<>();
+        private final List<ExecutorService> driveExecutors = new ArrayList<>();
+        private final ThreadLocal<Shabal256> shabal256 = ThreadLocal.withInitial(Shabal256::new);
+        private final ThreadLocal<byte[]> scoopBuffer = ThreadLocal.withInitial(() -> new byte[PlotFile.SCOOP_SIZE]);
+        private ExecutorService hashingPool;
+        private Disposable miningInfoSubscription;
+        private Round currentRound;
+        private boolean closed;
+
+        private Session(ObservableEmitter<DriveScan> emitter) {
+            this.emitter = emitter;
+        }
+
+        private synchronized void start() throws IOException {
+            for (int i = 0; i < drives.size(); i++) {
+                plotFiles.add(openPlotFiles(drives.get(i)));
+                driveExecutors.add(Executors.newSingleThreadExecutor(threadFactory("uzckit-drive-" + i)));
+            }
+            hashingPool = Executors.newFixedThreadPool(hashingThreads, threadFactory("uzckit-hashing"));
+            miningInfoSubscription = nodeService.getMiningInfo().subscribe(this::startRound, emitter::onError);
+        }
+
+        private synchronized void startRound(MiningInfo miningInfo) {
+            if (closed) return;
+            if (currentRound != null) {
+                currentRound.cancelled = true;
+            }
+            Round round = new Round(miningInfo);
+            currentRound = round;
+            for (int i = 0; i < drives.size(); i++) {
+                int drive = i;
+                driveExecutors.get(i).execute(() -> scanDrive(round, drive));
+            }
+        }
+
+        private void scanDrive(Round round, int drive) {
+            Semaphore inFlight = new Semaphore(WINDOWS_IN_FLIGHT_PER_DRIVE);
+            AtomicLong noncesScanned = new AtomicLong();
+            AtomicLong bestDeadline = new AtomicLong(-1);
+            Throwable error = null;
+            try {
+                for (PlotFile plotFile : plotFiles.get(drive)) {
+                    if (round.cancelled) break;
+                    plotFile.readScoop(round.scoop, readSize, (firstNonce, scoops) -> {
+                        if (round.cancelled) return;
+                        if (scoops instanceof MappedByteBuffer) {
+                            // Page the window in on this drive's thread, so hashing threads never wait for the disk
+                            ((MappedByteBuffer) scoops).load();
+                        }
+                        try {
+                            inFlight.acquire();
+                        } catch (InterruptedException e) {
+                            // The session is closing
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Mining stopped");
+                        }
+                        try {
+                            // The window stays mapped after this returns, for as long as the hashing task holds it
+                            hashingPool.execute(() -> {
+                                try {
+                                    hash(round, plotFile.getAccountId(), firstNonce, scoops, noncesScanned, bestDeadline);
+                                } finally {
+                                    inFlight.release();
+                                }
+                            });
+                        } catch (RejectedExecutionException e) {
+                            // The session is closing
+                            inFlight.release();
+                            throw e;
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                error = e;
+            }
+            // Wait for this drive's windows to be hashed. Closing the session interrupts this thread, as windows
+            // still queued for hashing are then dropped without releasing their permits.
+            try {
+                inFlight.acquire(WINDOWS_IN_FLIGHT_PER_DRIVE);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            emitter.onNext(new DriveScan(drives.get(drive), round.height, noncesScanned.get(), bestDeadline.get(), Duration.ofNanos(System.nanoTime() - round.startTime), round.cancelled, error));
+        }
+
+        private void hash(Round round, long accountId, long firstNonce, ByteBuffer scoops, AtomicLong noncesScanned, AtomicLong driveBestDeadline) {
+            Shabal256 shabal256 = this.shabal256.get();
+            byte[] scoopData = scoopBuffer.get();
+            long bestDeadline = -1;
+            long bestNonce = 0;
+            long nonce = firstNonce;
+            while (scoops.hasRemaining()) {
+                if (((nonce - firstNonce) % NONCES_PER_CANCELLATION_CHECK) == 0 && round.cancelled) break;
+                scoops.get(scoopData);
+                shabal256.update(round.generationSignature);
+                shabal256.update(scoopData);
+                long deadline = Long.divideUnsigned(shabal256.digestToLong(), round.baseTarget);
+                if (Deadlines.isBetter(deadline, bestDeadline)) {
+                    bestDeadline = deadline;
+                    bestNonce = nonce;
+                }
+                nonce++;
+            }
+            noncesScanned.addAndGet(nonce - firstNonce);
+            driveBestDeadline.accumulateAndGet(bestDeadline, Deadlines::best);
+            if (nonce != firstNonce && round.offer(accountId, bestDeadline) && !round.cancelled) {
+                // A failed submission must not stop mining, and any better deadline found later is submitted anyway
+                nodeService.submitNonce(passphrase, Long.toUnsignedString(bestNonce), UzcID.fromLong(accountId))
+                        .subscribe(submittedDeadline -> {}, submitError -> {});
+            }
+        }
+
+        private synchronized void close() {
+            closed = true;
+            if (miningInfoSubscription != null) {
+                miningInfoSubscription.dispose();
+            }
+            if (currentRound != null) {
+                currentRound.cancelled = true;
+            }
+            driveExecutors.forEach(ExecutorService::shutdownNow);
+            if (hashingPool != null) {
+                hashingPool.shutdownNow();
+            }
+            for (List<PlotFile> drivePlotFiles : plotFiles) {
+                for (PlotFile plotFile : drivePlotFiles) {
+                    try {
+                        plotFile.close();
+                    } catch (IOException e) {
+                        // Nothing else we can do
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Round {
+        private final byte[] generationSignature;
+        private final long baseTarget;
+        private final long height;
+        private final int scoop;
+        private final long startTime = System.nanoTime();
+        private final Map<Long, Long> bestDeadlines = new HashMap<>();
+        private volatile boolean cancelled;
+
+        private Round(MiningInfo miningInfo) {
+            this.generationSignature = miningInfo.getGenerationSignature();
+            this.baseTarget = miningInfo.getBaseTarget();
+            this.height = miningInfo.getHeight();
+            this.scoop = UzcCrypto.getInstance().calculateScoop(generationSignature, height);
+        }
+
+        /**
+         * @return Whether the deadline beats the best deadline found so far this round for the account
+         */
+        private synchronized boolean offer(long accountId, long deadline) {
+            Long best = bestDeadlines.get(accountId);
+            if (best != null && !Deadlines.isBetter(deadline, best)) {
+                return false;
+            }
+            bestDeadlines.put(accountId, deadline);
+            return true;
+        }
+    }
+}
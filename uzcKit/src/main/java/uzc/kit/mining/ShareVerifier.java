@@ -0,0 +1,272 @@
+package uzc.kit.mining;
+
+import uzc.kit.crypto.hash.shabal.Shabal256;
+import uzc.kit.crypto.plot.MiningRound;
+import uzc.kit.crypto.plot.PlotCalculator;
+import uzc.kit.crypto.plot.impl.PlotCalculatorImpl;
+import io.reactivex.Single;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verifies the deadlines that miners submit to a pool.
+ *
+ * Submissions are queued to a fixed number of workers through a bounded queue; when the queue is full a submission
+ * fails immediately with a {@link RejectedExecutionException} instead of piling up. Identical (account, nonce, height)
+ * submissions share one calculation. As soon as a submission for a new height arrives, queued work for older heights
+ * is cancelled and further submissions for them fail with a {@link CancellationException}.
+ */
+public final class ShareVerifier implements Closeable {
+    private static final int POC_VERSION = 2;
+
+    private final PlotCalculator plotCalculator;
+    private final ThreadPoolExecutor executor;
+    private final Map<ShareKey, CompletableFuture<Long>> deadlines = new ConcurrentHashMap<>();
+    private final AtomicLong currentHeight = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * @param workers The number of threads calculating deadlines
+     * @param queueCapacity The maximum number of calculations waiting for a worker
+     */
+    public ShareVerifier(int workers, int queueCapacity) {
+        this(new PlotCalculatorImpl(Shabal256::new), workers, queueCapacity);
+    }
+
+    /**
+     * @param plotCalculator The plot calculator to calculate deadlines with
+     * @param workers The number of threads calculating deadlines
+     * @param queueCapacity The maximum number of calculations waiting for a worker
+     */
+    public ShareVerifier(PlotCalculator plotCalculator, int workers, int queueCapacity) {
+        if (workers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Workers and queue capacity must be positive");
+        }
+        this.plotCalculator = plotCalculator;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "uzckit-share-verifier-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Verify a submitted deadline
+     * @param accountId The account ID the nonce was plotted for
+     * @param nonce The nonce
+     * @param deadline The deadline the miner claims, an unsigned 64-bit value
+     * @param round The mining round of the block the nonce was submitted for
+     * @return A future that completes with whether the deadline is correct, or exceptionally if the submission
+     * was rejected because the queue is full or cancelled because its height is stale
+     */
+    public CompletableFuture<Boolean> submit(long accountId, long nonce, long deadline, MiningRound round) {
+        long height = round.getHeight();
+        advanceTo(height);
+        if (height < currentHeight.get()) {
+            cancelled.increment();
+            return failed(new CancellationException("Stale height " + height));
+        }
+        ShareKey key = new ShareKey(accountId, nonce, height, round.getGenSig());
+        CompletableFuture<Long> calculation = new CompletableFuture<>();
+        CompletableFuture<Long> existing = deadlines.putIfAbsent(key, calculation);
+        if (existing != null) {
+            deduplicated.increment();
+            return existing.thenApply(calculated -> calculated == deadline);
+        }
+        if (height < currentHeight.get()) {
+            // A newer height arrived after the check above, and its sweep may have missed this calculation
+            deadlines.remove(key, calculation);
+            if (calculation.cancel(false)) {
+                cancelled.increment();
+            }
+            return failed(new CancellationException("Stale height " + height));
+        }
+        long submitTime = System.nanoTime();
+        try {
+            executor.execute(() -> calculate(key, calculation, round, submitTime));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            deadlines.remove(key, calculation);
+            calculation.completeExceptionally(e);
+        }
+        return calculation.thenApply(calculated -> calculated == deadline);
+    }
+
+    /**
+     * Verify a submitted deadline
+     * @param accountId The account ID the nonce was plotted for
+     * @param nonce The nonce
+     * @param deadline The deadline the miner claims, an unsigned 64-bit value
+     * @param round The mining round of the block the nonce was submitted for
+     * @return Whether the deadline is correct, wrapped in a Single which errors if the submission
+     * was rejected because the queue is full or cancelled because its height is stale
+     */
+    public Single<Boolean> verify(long accountId, long nonce, long deadline, MiningRound round) {
+        return Single.create(emitter -> submit(accountId, nonce, deadline, round).whenComplete((valid, error) -> {
+            if (error != null) {
+                emitter.onError(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else {
+                emitter.onSuccess(valid);
+            }
+        }));
+    }
+
+    private void calculate(ShareKey key, CompletableFuture<Long> calculation, MiningRound round, long submitTime) {
+        if (calculation.isDone()) return; // Cancelled while queued
+        long deadline;
+        try {
+            deadline = plotCalculator.calculateDeadlineLong(key.accountId, key.nonce, round, POC_VERSION);
+        } catch (RuntimeException e) {
+            recordLatency(submitTime);
+            // Do not cache the failure, so that a resubmission is calculated again
+            deadlines.remove(key, calculation);
+            calculation.completeExceptionally(e);
+            return;
+        }
+        // Count it before completing, so the counters are up to date by the time the submitter sees the result
+        verified.increment();
+        recordLatency(submitTime);
+        calculation.complete(deadline);
+    }
+
+    private void recordLatency(long submitTime) {
+        long latency = System.nanoTime() - submitTime;
+        totalLatency.add(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * Cancel the work for every height below the given height
+     */
+    private void advanceTo(long height) {
+        long current = currentHeight.get();
+        while (height > current) {
+            if (currentHeight.compareAndSet(current, height)) {
+                deadlines.entrySet().removeIf(entry -> {
+                    if (entry.getKey().height >= height) return false;
+                    if (entry.getValue().cancel(false)) {
+                        cancelled.increment();
+                    }
+                    return true;
+                });
+                return;
+            }
+            current = currentHeight.get();
+        }
+    }
+
+    /**
+     * @return The number of calculations waiting for a worker
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The number of deadlines calculated
+     */
+    public long getVerifiedCount() {
+        return verified.sum();
+    }
+
+    /**
+     * @return The number of submissions rejected because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return The number of submissions cancelled because their height was stale
+     */
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    /**
+     * @return The number of submissions that reused the calculation of an identical submission
+     */
+    public long getDeduplicatedCount() {
+        return deduplicated.sum();
+    }
+
+    /**
+     * @return The average time from submission to a calculated deadline
+     */
+    public Duration getAverageLatency() {
+        long count = verified.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(totalLatency.sum() / count);
+    }
+
+    /**
+     * @return The longest time from submission to a calculated deadline
+     */
+    public Duration getMaxLatency() {
+        return Duration.ofNanos(maxLatency.get());
+    }
+
+    /**
+     * Stop the workers. Queued submissions are cancelled.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        deadlines.values().forEach(calculation -> calculation.cancel(false));
+        deadlines.clear();
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    private static final class ShareKey {
+        private final long accountId;
+        private final long nonce;
+        private final long height;
+        private final byte[] genSig;
+
+        private ShareKey(long accountId, long nonce, long height, byte[] genSig) {
+            this.accountId = accountId;
+            this.nonce = nonce;
+            this.height = height;
+            this.genSig = genSig;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ShareKey)) return false;
+            ShareKey that = (ShareKey) o;
+            // Rounds are cached, so the generation signature is usually the same array
+            return accountId == that.accountId && nonce == that.nonce && height == that.height
+                    && (genSig == that.genSig || Arrays.equals(genSig, that.genSig));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Long.hashCode(accountId) + Long.hashCode(nonce)) + Long.hashCode(height);
+        }
+    }
+}
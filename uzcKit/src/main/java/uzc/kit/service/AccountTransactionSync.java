@@ -0,0 +1,162 @@
+package uzc.kit.service;
+
+import uzc.kit.entity.UzcAddress;
+import uzc.kit.entity.UzcID;
+import uzc.kit.entity.UzcTimestamp;
+import uzc.kit.entity.response.Transaction;
+import uzc.kit.service.impl.PagedFlowable;
+import io.reactivex.Observable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the transactions of a set of accounts up to date, fetching only the transactions in blocks forged since the
+ * previous sync by using the node's timestamp filter, rather than every account's full history each time.
+ *
+ * For each account, this remembers the timestamp of the newest block it has seen, or of the oldest block holding a
+ * transaction which does not have the required number of confirmations yet, so that such transactions are fetched
+ * again until they do. A transaction is emitted when it is first seen, and again when it reaches the required number
+ * of confirmations, which {@link Transaction#getConfirmations()} tells apart. A transaction that already has enough
+ * confirmations when it is first seen is only emitted once.
+ */
+public final class AccountTransactionSync {
+    private static final int PAGE_SIZE = 100;
+
+    private final UzcNodeService uzcNodeService;
+    private final int requiredConfirmations;
+    private final int maxConcurrency;
+    private final Map<UzcAddress, AccountState> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param uzcNodeService The node service to fetch transactions from
+     * @param requiredConfirmations The number of confirmations after which a transaction is considered confirmed
+     * @param maxConcurrency The maximum number of accounts to sync at once
+     */
+    public AccountTransactionSync(UzcNodeService uzcNodeService, int requiredConfirmations, int maxConcurrency) {
+        if (requiredConfirmations < 0) throw new IllegalArgumentException("Required confirmations must not be negative");
+        if (maxConcurrency < 1) throw new IllegalArgumentException("Max concurrency must be positive");
+        this.uzcNodeService = uzcNodeService;
+        this.requiredConfirmations = requiredConfirmations;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Start syncing an account from its first transaction. Does nothing if the account is already being synced.
+     * @param account The account
+     */
+    public void addAccount(UzcAddress account) {
+        addAccount(account, new UzcTimestamp(0));
+    }
+
+    /**
+     * Start syncing an account from a timestamp. Does nothing if the account is already being synced.
+     * @param account The account
+     * @param since The earliest block timestamp to fetch transactions from
+     */
+    public void addAccount(UzcAddress account, UzcTimestamp since) {
+        accounts.putIfAbsent(account, new AccountState(account, since.getTimestamp()));
+    }
+
+    /**
+     * Stop syncing an account
+     * @param account The account
+     */
+    public void removeAccount(UzcAddress account) {
+        accounts.remove(account);
+    }
+
+    /**
+     * @param account The account
+     * @return The block timestamp that the next sync of the account will fetch transactions from, or null if the account is not being synced
+     */
+    public UzcTimestamp getSyncedTimestamp(UzcAddress account) {
+        AccountState state = accounts.get(account);
+        return state == null ? null : new UzcTimestamp(state.getSince());
+    }
+
+    /**
+     * Sync every account once. Syncs must not overlap.
+     * @return The new and newly confirmed transactions of every account, oldest first per account
+     */
+    public Observable<Transaction> sync() {
+        return Observable.fromIterable(new ArrayList<>(accounts.values()))
+                .flatMap(this::syncAccount, maxConcurrency);
+    }
+
+    /**
+     * Sync every account repeatedly
+     * @param period The time between the start of each sync
+     * @param unit The unit of the period
+     * @return The new and newly confirmed transactions of every account, oldest first per account
+     */
+    public Observable<Transaction> sync(long period, TimeUnit unit) {
+        return Observable.interval(0, period, unit)
+                .concatMap(tick -> sync());
+    }
+
+    private Observable<Transaction> syncAccount(AccountState state) {
+        UzcTimestamp since = new UzcTimestamp(state.getSince());
+        return PagedFlowable.create(PAGE_SIZE, true, (firstIndex, lastIndex) -> uzcNodeService.getAccountTransactions(state.account, since, firstIndex, lastIndex))
+                .toList()
+                .flatMapObservable(transactions -> Observable.fromIterable(state.update(transactions, requiredConfirmations)));
+    }
+
+    private static final class AccountState {
+        private final UzcAddress account;
+        private int since;
+        /**
+         * Whether each transaction in a block at or after {@link #since} had the required confirmations when it was last seen
+         */
+        private Map<UzcID, Boolean> seen = new HashMap<>();
+
+        private AccountState(UzcAddress account, int since) {
+            this.account = account;
+            this.since = since;
+        }
+
+        private synchronized int getSince() {
+            return since;
+        }
+
+        /**
+         * @param transactions The transactions in blocks at or after {@link #since}, most recent first
+         * @param requiredConfirmations The number of confirmations after which a transaction is considered confirmed
+         * @return The transactions that are new or newly confirmed, oldest first
+         */
+        private synchronized List<Transaction> update(List<Transaction> transactions, int requiredConfirmations) {
+            int newestBlock = since;
+            int oldestUnconfirmedBlock = Integer.MAX_VALUE;
+            for (Transaction transaction : transactions) {
+                int blockTimestamp = transaction.getBlockTimestamp().getTimestamp();
+                newestBlock = Math.max(newestBlock, blockTimestamp);
+                if (transaction.getConfirmations() < requiredConfirmations) {
+                    oldestUnconfirmedBlock = Math.min(oldestUnconfirmedBlock, blockTimestamp);
+                }
+            }
+            int newSince = Math.min(newestBlock, oldestUnconfirmedBlock);
+
+            List<Transaction> changed = new ArrayList<>();
+            Map<UzcID, Boolean> newSeen = new HashMap<>();
+            for (int i = transactions.size() - 1; i >= 0; i--) {
+                Transaction transaction = transactions.get(i);
+                Boolean wasConfirmed = seen.get(transaction.getId());
+                boolean confirmed = transaction.getConfirmations() >= requiredConfirmations || Boolean.TRUE.equals(wasConfirmed);
+                if (wasConfirmed == null || confirmed && !wasConfirmed) {
+                    changed.add(transaction);
+                }
+                // Only transactions at or after the new timestamp will be fetched again
+                if (transaction.getBlockTimestamp().getTimestamp() >= newSince) {
+                    newSeen.put(transaction.getId(), confirmed);
+                }
+            }
+            since = newSince;
+            seen = newSeen;
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package uzc.kit.service;
+
+import uzc.kit.entity.response.Block;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Downloads a range of blocks by height, splitting it into windows of consecutive blocks which are fetched
+ * concurrently, spread over one or more node services, and emitted in order of height.
+ *
+ * {@link UzcNodeService#getBlocks(int, int, boolean)} counts back from the most recent block, so the heights of each
+ * window are converted to indices using the height of the most recent block, which is tracked separately for each node
+ * service as they need not be in sync. If a node's chain grows or shrinks during the download, the blocks that come
+ * back will not have the expected heights, in which case the window is fetched again using that node's new height.
+ *
+ * Each block must follow the one before it, including across windows. If the first block of a window does not follow
+ * the last block of the previous window, which happens if the chain is reorganized during the download or if the node
+ * services are on different forks, the window is fetched again from the next node service.
+ */
+public final class ChainDownloader {
+    /**
+     * The number of blocks the node returns per request
+     */
+    public static final int MAX_WINDOW_SIZE = 100;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final UzcNodeService[] uzcNodeServices;
+    private final int windowSize;
+    private final int parallelism;
+
+    /**
+     * @param windowSize The number of blocks to fetch per request, up to {@link #MAX_WINDOW_SIZE}
+     * @param parallelism The maximum number of windows to fetch at once, which is also the maximum number of windows held in memory
+     * @param uzcNodeServices The node services to fetch from. Windows are spread over them in turn, and a window that fails is retried on the next one.
+     */
+    public ChainDownloader(int windowSize, int parallelism, UzcNodeService... uzcNodeServices) {
+        if (windowSize < 1 || windowSize > MAX_WINDOW_SIZE) throw new IllegalArgumentException("Window size must be 1-" + MAX_WINDOW_SIZE + ", was " + windowSize);
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive, was " + parallelism);
+        if (uzcNodeServices == null || uzcNodeServices.length == 0) throw new IllegalArgumentException("No Uzc Node Services Provided");
+        this.uzcNodeServices = uzcNodeServices;
+        this.windowSize = windowSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Download the blocks between two heights
+     * @param firstHeight The height of the first block
+     * @param lastHeight The height of the last block, inclusive. Heights above the most recent block are not downloaded.
+     * @param includeTransactions Whether to include the full transactions of each block, which are then available from {@link Block#getIncludedTransactions()}
+     * @return The blocks, in order of height
+     */
+    public Flowable<Block> download(int firstHeight, int lastHeight, boolean includeTransactions) {
+        if (firstHeight < 0 || lastHeight < firstHeight) throw new IllegalArgumentException("Invalid height range " + firstHeight + "-" + lastHeight);
+        return uzcNodeServices[0].getBlocks(0, 0)
+                .flatMapPublisher(mostRecent -> {
+                    if (mostRecent.length == 0) return Flowable.error(new UzcApiException("Node returned no most recent block"));
+                    // The other node services start from the first one's height and correct it when their blocks come back
+                    AtomicInteger[] mostRecentHeights = new AtomicInteger[uzcNodeServices.length];
+                    for (int i = 0; i < mostRecentHeights.length; i++) {
+                        mostRecentHeights[i] = new AtomicInteger(mostRecent[0].getHeight());
+                    }
+                    int end = Math.min(lastHeight, mostRecent[0].getHeight());
+                    if (end < firstHeight) return Flowable.empty();
+                    int windows = (end - firstHeight) / windowSize + 1;
+                    AtomicReference<Block> previousBlock = new AtomicReference<>();
+                    return Flowable.range(0, windows)
+                            .concatMapEager(window -> {
+                                int windowStart = firstHeight + window * windowSize;
+                                int windowEnd = Math.min(windowStart + windowSize - 1, end);
+                                return fetchWindow(window, windowStart, windowEnd, mostRecentHeights, includeTransactions).toFlowable();
+                            }, parallelism, 1)
+                            .concatMapSingle(blocks -> followPrevious((blocks[0].getHeight() - firstHeight) / windowSize, blocks, previousBlock, mostRecentHeights, includeTransactions, MAX_ATTEMPTS))
+                            .concatMapIterable(Arrays::asList);
+                });
+    }
+
+    /**
+     * Check that a window follows the previous window, fetching it again from the next node service if it does not.
+     * This runs on the windows in order, so the previous window has already been checked.
+     */
+    private Single<Block[]> followPrevious(int window, Block[] blocks, AtomicReference<Block> previousBlock, AtomicInteger[] mostRecentHeights, boolean includeTransactions, int attempts) {
+        return Single.defer(() -> {
+            Block previous = previousBlock.get();
+            if (previous == null || previous.getId().equals(blocks[0].getPreviousBlock())) {
+                previousBlock.set(blocks[blocks.length - 1]);
+                return Single.just(blocks);
+            }
+            if (attempts <= 1) return Single.error(new UzcApiException("Block " + blocks[0].getHeight() + " kept not following block " + previous.getHeight() + ", the chain may have been reorganized"));
+            int retry = window + MAX_ATTEMPTS - attempts + 1;
+            return fetchWindow(retry, blocks[0].getHeight(), blocks[blocks.length - 1].getHeight(), mostRecentHeights, includeTransactions)
+                    .flatMap(refetched -> followPrevious(window, refetched, previousBlock, mostRecentHeights, includeTransactions, attempts - 1));
+        });
+    }
+
+    /**
+     * @param service The index of the node service to try first
+     */
+    private Single<Block[]> fetchWindow(int service, int firstHeight, int lastHeight, AtomicInteger[] mostRecentHeights, boolean includeTransactions) {
+        Single<Block[]> single = fetchWindow(service % uzcNodeServices.length, firstHeight, lastHeight, mostRecentHeights, includeTransactions, MAX_ATTEMPTS);
+        for (int i = 1; i < uzcNodeServices.length; i++) {
+            single = single.onErrorResumeNext(fetchWindow((service + i) % uzcNodeServices.length, firstHeight, lastHeight, mostRecentHeights, includeTransactions, MAX_ATTEMPTS));
+        }
+        return single;
+    }
+
+    private Single<Block[]> fetchWindow(int service, int firstHeight, int lastHeight, AtomicInteger[] mostRecentHeights, boolean includeTransactions, int attempts) {
+        return Single.defer(() -> {
+            AtomicInteger mostRecentHeight = mostRecentHeights[service];
+            int assumedMostRecentHeight = mostRecentHeight.get();
+            return uzcNodeServices[service].getBlocks(assumedMostRecentHeight - lastHeight, assumedMostRecentHeight - firstHeight, includeTransactions)
+                    .flatMap(blocks -> {
+                        if (blocks.length > 0 && blocks[0].getHeight() != lastHeight) {
+                            // The chain has changed height since the indices were calculated
+                            if (attempts <= 1) return Single.error(new UzcApiException("Chain height kept changing while fetching blocks " + firstHeight + "-" + lastHeight));
+                            mostRecentHeight.compareAndSet(assumedMostRecentHeight, assumedMostRecentHeight + blocks[0].getHeight() - lastHeight);
+                            return fetchWindow(service, firstHeight, lastHeight, mostRecentHeights, includeTransactions, attempts - 1);
+                        }
+                        if (blocks.length != lastHeight - firstHeight + 1) {
+                            return Single.error(new UzcApiException("Node returned " + blocks.length + " blocks for heights " + firstHeight + "-" + lastHeight));
+                        }
+                        // The node returns the most recent block first
+                        for (int i = 0, j = blocks.length - 1; i < j; i++, j--) {
+                            Block block = blocks[i];
+                            blocks[i] = blocks[j];
+                            blocks[j] = block;
+                        }
+                        for (int i = 1; i < blocks.length; i++) {
+                            if (!blocks[i - 1].getId().equals(blocks[i].getPreviousBlock())) {
+                                return Single.error(new UzcApiException("Node returned block " + blocks[i].getHeight() + " which does not follow block " + blocks[i - 1].getHeight()));
+                            }
+                        }
+                        return Single.just(blocks);
+                    });
+        });
+    }
+}
@@ -6,6 +6,8 @@ import uzc.kit.service.impl.CompositeUzcNodeService;
 import uzc.kit.service.impl.DefaultSchedulerAssigner;
 import uzc.kit.service.impl.GrpcUzcNodeService;
 import uzc.kit.service.impl.HttpUzcNodeService;
+import uzc.kit.service.impl.PagedFlowable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 
@@ -50,7 +52,16 @@ public interface UzcNodeService {
      * @param lastIndex The end index from the most recent blocks
      * @return The blocks, wrapped in a single
      */
-    Single<Block[]> getBlocks(int firstIndex, int lastIndex); // TODO includeTransactions?
+    Single<Block[]> getBlocks(int firstIndex, int lastIndex);
+
+    /**
+     * Gets all the blocks between the first index and last index.
+     * @param firstIndex The index from the most recent blocks (0 would be the most recent block)
+     * @param lastIndex The end index from the most recent blocks
+     * @param includeTransactions Whether to include the full transactions of each block, which are then available from {@link Block#getIncludedTransactions()}
+     * @return The blocks, most recent first, wrapped in a single
+     */
+    Single<Block[]> getBlocks(int firstIndex, int lastIndex, boolean includeTransactions);
 
     /**
      * Get the Constants in use by the node
@@ -102,6 +113,69 @@ public interface UzcNodeService {
      */
     Single<Transaction[]> getAccountTransactions(UzcAddress accountId); // TODO filtering
 
+    /**
+     * Get the transaction IDs of an account between two indices, most recent first
+     * @param accountId The address of the account
+     * @param firstIndex The index of the first transaction ID (0 would be the most recent transaction)
+     * @param lastIndex The index of the last transaction ID, inclusive
+     * @return The account's transaction IDs, wrapped in a single
+     */
+    Single<UzcID[]> getAccountTransactionIDs(UzcAddress accountId, int firstIndex, int lastIndex);
+
+    /**
+     * Get the transactions of an account between two indices, most recent first
+     * @param accountId The address of the account
+     * @param firstIndex The index of the first transaction (0 would be the most recent transaction)
+     * @param lastIndex The index of the last transaction, inclusive
+     * @return The account's transactions, wrapped in a single
+     */
+    Single<Transaction[]> getAccountTransactions(UzcAddress accountId, int firstIndex, int lastIndex);
+
+    /**
+     * Get the transactions of an account that are in blocks forged at or after a timestamp, most recent first
+     * @param accountId The address of the account
+     * @param since The earliest block timestamp to include
+     * @param firstIndex The index of the first transaction (0 would be the most recent transaction)
+     * @param lastIndex The index of the last transaction, inclusive
+     * @return The account's transactions, wrapped in a single
+     */
+    Single<Transaction[]> getAccountTransactions(UzcAddress accountId, UzcTimestamp since, int firstIndex, int lastIndex);
+
+    /**
+     * Stream the transaction IDs of an account, most recent first, fetching a page at a time as they are requested
+     * @param accountId The address of the account
+     * @param pageSize The number of transaction IDs to fetch per request. This must not be more than the node returns per request.
+     * @param prefetch Whether to fetch the next page while the current one is being processed
+     * @return The account's transaction IDs
+     */
+    default Flowable<UzcID> getAccountTransactionIDsPaged(UzcAddress accountId, int pageSize, boolean prefetch) {
+        return PagedFlowable.create(pageSize, prefetch, (firstIndex, lastIndex) -> getAccountTransactionIDs(accountId, firstIndex, lastIndex));
+    }
+
+    /**
+     * Stream the transactions of an account, most recent first, fetching a page at a time as they are requested
+     * @param accountId The address of the account
+     * @param pageSize The number of transactions to fetch per request. This must not be more than the node returns per request.
+     * @param prefetch Whether to fetch the next page while the current one is being processed
+     * @return The account's transactions
+     */
+    default Flowable<Transaction> getAccountTransactionsPaged(UzcAddress accountId, int pageSize, boolean prefetch) {
+        return PagedFlowable.create(pageSize, prefetch, (firstIndex, lastIndex) -> getAccountTransactions(accountId, firstIndex, lastIndex));
+    }
+
+    /**
+     * Stream the transactions of an account that are in blocks forged at or after a timestamp, most recent first,
+     * fetching a page at a time as they are requested
+     * @param accountId The address of the account
+     * @param since The earliest block timestamp to include
+     * @param pageSize The number of transactions to fetch per request. This must not be more than the node returns per request.
+     * @param prefetch Whether to fetch the next page while the current one is being processed
+     * @return The account's transactions
+     */
+    default Flowable<Transaction> getAccountTransactionsPaged(UzcAddress accountId, UzcTimestamp since, int pageSize, boolean prefetch) {
+        return PagedFlowable.create(pageSize, prefetch, (firstIndex, lastIndex) -> getAccountTransactions(accountId, since, firstIndex, lastIndex));
+    }
+
     /**
      * Get the list of accounts which have their reward recipient set to the specified account
      * @param accountId The address of the account
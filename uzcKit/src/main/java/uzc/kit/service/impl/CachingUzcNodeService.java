@@ -0,0 +1,313 @@
+package uzc.kit.service.impl;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.entity.*;
+import uzc.kit.entity.response.*;
+import uzc.kit.service.UzcNodeService;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps a node service, keeping the blocks, transactions and transaction bytes it fetches in a local file so that
+ * they only need to be fetched from the node once, including across restarts.
+ *
+ * Only blocks and transactions at least a given number of blocks below the most recent block are kept, so that
+ * nothing is kept which could still be changed by a reorganization of the chain. Transaction bytes are kept
+ * regardless, as a transaction ID is derived from its bytes. The number of confirmations of a kept transaction is
+ * brought up to date using the most recent block this has seen.
+ *
+ * Blocks and transactions are kept when they are fetched by ID, height or full hash, and when they are part of the
+ * blocks fetched by {@link #getBlocks(int, int, boolean)}. Everything else is passed straight to the wrapped service.
+ * Anything that cannot be read back from the file, such as a record corrupted on disk, is fetched from the wrapped
+ * service again.
+ */
+public class CachingUzcNodeService implements UzcNodeService, Closeable {
+    private final UzcNodeService delegate;
+    private final ChainCacheStore store;
+    private final int reorgWindow;
+    private final AtomicInteger mostRecentHeight = new AtomicInteger(-1);
+
+    /**
+     * @param delegate The node service to fetch from when something is not in the cache
+     * @param file The cache file, which is created if it does not exist
+     * @param reorgWindow The number of confirmations after which a block or transaction is kept
+     * @throws IOException If the cache file could not be opened
+     */
+    public CachingUzcNodeService(UzcNodeService delegate, Path file, int reorgWindow) throws IOException {
+        if (reorgWindow < 1) throw new IllegalArgumentException("Reorg window must be positive, was " + reorgWindow);
+        this.delegate = delegate;
+        this.reorgWindow = reorgWindow;
+        this.store = new ChainCacheStore(file);
+    }
+
+    private void updateMostRecentHeight(int height) {
+        mostRecentHeight.accumulateAndGet(height, Math::max);
+    }
+
+    /**
+     * @return The height of the most recent block, fetching it if the block at the given height might be too recent to keep
+     */
+    private Single<Integer> getMostRecentHeight(int height) {
+        int known = mostRecentHeight.get();
+        if (known - height >= reorgWindow) return Single.just(known);
+        return delegate.getBlocks(0, 0)
+                .map(blocks -> {
+                    if (blocks.length > 0) updateMostRecentHeight(blocks[0].getHeight());
+                    return mostRecentHeight.get();
+                });
+    }
+
+    private Single<Block> cacheBlock(Block block) {
+        return getMostRecentHeight(block.getHeight())
+                .map(height -> {
+                    if (height - block.getHeight() >= reorgWindow) {
+                        putBlock(block);
+                    }
+                    return block;
+                });
+    }
+
+    private Transaction cacheTransaction(Transaction transaction) {
+        if (transaction.getBlockId() == null) return transaction; // Not in a block yet
+        updateMostRecentHeight(transaction.getBlockHeight() + transaction.getConfirmations());
+        if (transaction.getConfirmations() >= reorgWindow) {
+            try {
+                store.putTransaction(transaction);
+            } catch (IOException ignored) {
+                // The cache is only an optimization, so failing to write to it should not fail the request
+            }
+        }
+        return transaction;
+    }
+
+    private void putBlock(Block block) {
+        try {
+            store.putBlock(block);
+        } catch (IOException ignored) {
+            // The cache is only an optimization, so failing to write to it should not fail the request
+        }
+    }
+
+    @Override
+    public Single<Block> getBlock(UzcID block) {
+        return Single.defer(() -> {
+            Block cached = store.getBlock(block);
+            return cached != null ? Single.just(cached) : delegate.getBlock(block).flatMap(this::cacheBlock);
+        });
+    }
+
+    @Override
+    public Single<Block> getBlock(int height) {
+        return Single.defer(() -> {
+            Block cached = store.getBlock(height);
+            return cached != null ? Single.just(cached) : delegate.getBlock(height).flatMap(this::cacheBlock);
+        });
+    }
+
+    @Override
+    public Single<Block[]> getBlocks(int firstIndex, int lastIndex) {
+        return getBlocks(firstIndex, lastIndex, false);
+    }
+
+    @Override
+    public Single<Block[]> getBlocks(int firstIndex, int lastIndex, boolean includeTransactions) {
+        return delegate.getBlocks(firstIndex, lastIndex, includeTransactions)
+                .map(blocks -> {
+                    if (blocks.length > 0 && firstIndex == 0) updateMostRecentHeight(blocks[0].getHeight());
+                    int height = mostRecentHeight.get();
+                    for (Block block : blocks) {
+                        if (height - block.getHeight() < reorgWindow) continue;
+                        putBlock(block);
+                        if (block.getIncludedTransactions() != null) {
+                            Arrays.stream(block.getIncludedTransactions()).forEach(this::cacheTransaction);
+                        }
+                    }
+                    return blocks;
+                });
+    }
+
+    @Override
+    public Single<Transaction> getTransaction(UzcID transactionId) {
+        return Single.defer(() -> {
+            Transaction cached = store.getTransaction(transactionId, mostRecentHeight.get());
+            return cached != null ? Single.just(cached) : delegate.getTransaction(transactionId).map(this::cacheTransaction);
+        });
+    }
+
+    @Override
+    public Single<Transaction> getTransaction(byte[] fullHash) {
+        return Single.defer(() -> {
+            Transaction cached = store.getTransaction(UzcCrypto.getInstance().hashToId(fullHash), mostRecentHeight.get());
+            return cached != null && Arrays.equals(cached.getFullHash(), fullHash) ? Single.just(cached) : delegate.getTransaction(fullHash).map(this::cacheTransaction);
+        });
+    }
+
+    @Override
+    public Single<byte[]> getTransactionBytes(UzcID transactionId) {
+        return Single.defer(() -> {
+            byte[] cached = store.getTransactionBytes(transactionId);
+            return cached != null ? Single.just(cached) : delegate.getTransactionBytes(transactionId)
+                    .map(bytes -> {
+                        try {
+                            store.putTransactionBytes(transactionId, bytes);
+                        } catch (IOException ignored) {
+                            // The cache is only an optimization, so failing to write to it should not fail the request
+                        }
+                        return bytes;
+                    });
+        });
+    }
+
+    @Override
+    public Single<Block> getBlock(UzcTimestamp timestamp) {
+        return delegate.getBlock(timestamp);
+    }
+
+    @Override
+    public Single<UzcID> getBlockId(int height) {
+        return delegate.getBlockId(height);
+    }
+
+    @Override
+    public Single<Constants> getConstants() {
+        return delegate.getConstants();
+    }
+
+    @Override
+    public Single<Account> getAccount(UzcAddress accountId) {
+        return delegate.getAccount(accountId);
+    }
+
+    @Override
+    public Single<AT[]> getAccountATs(UzcAddress accountId) {
+        return delegate.getAccountATs(accountId);
+    }
+
+    @Override
+    public Single<UzcID[]> getAccountBlockIDs(UzcAddress accountId) {
+        return delegate.getAccountBlockIDs(accountId);
+    }
+
+    @Override
+    public Single<Block[]> getAccountBlocks(UzcAddress accountId) {
+        return delegate.getAccountBlocks(accountId);
+    }
+
+    @Override
+    public Single<UzcID[]> getAccountTransactionIDs(UzcAddress accountId) {
+        return delegate.getAccountTransactionIDs(accountId);
+    }
+
+    @Override
+    public Single<Transaction[]> getAccountTransactions(UzcAddress accountId) {
+        return delegate.getAccountTransactions(accountId);
+    }
+
+    @Override
+    public Single<UzcID[]> getAccountTransactionIDs(UzcAddress accountId, int firstIndex, int lastIndex) {
+        return delegate.getAccountTransactionIDs(accountId, firstIndex, lastIndex);
+    }
+
+    @Override
+    public Single<Transaction[]> getAccountTransactions(UzcAddress accountId, int firstIndex, int lastIndex) {
+        return delegate.getAccountTransactions(accountId, firstIndex, lastIndex);
+    }
+
+    @Override
+    public Single<Transaction[]> getAccountTransactions(UzcAddress accountId, UzcTimestamp since, int firstIndex, int lastIndex) {
+        return delegate.getAccountTransactions(accountId, since, firstIndex, lastIndex);
+    }
+
+    @Override
+    public Single<UzcAddress[]> getAccountsWithRewardRecipient(UzcAddress accountId) {
+        return delegate.getAccountsWithRewardRecipient(accountId);
+    }
+
+    @Override
+    public Single<AT> getAt(UzcAddress at) {
+        return delegate.getAt(at);
+    }
+
+    @Override
+    public Single<UzcAddress[]> getAtIds() {
+        return delegate.getAtIds();
+    }
+
+    @Override
+    public Single<byte[]> generateTransaction(UzcAddress recipient, byte[] senderPublicKey, UzcValue amount, UzcValue fee, int deadline) {
+        return delegate.generateTransaction(recipient, senderPublicKey, amount, fee, deadline);
+    }
+
+    @Override
+    public Single<byte[]> generateTransactionWithMessage(UzcAddress recipient, byte[] senderPublicKey, UzcValue amount, UzcValue fee, int deadline, String message) {
+        return delegate.generateTransactionWithMessage(recipient, senderPublicKey, amount, fee, deadline, message);
+    }
+
+    @Override
+    public Single<byte[]> generateTransactionWithMessage(UzcAddress recipient, byte[] senderPublicKey, UzcValue amount, UzcValue fee, int deadline, byte[] message) {
+        return delegate.generateTransactionWithMessage(recipient, senderPublicKey, amount, fee, deadline, message);
+    }
+
+    @Override
+    public Single<byte[]> generateTransactionWithEncryptedMessage(UzcAddress recipient, byte[] senderPublicKey, UzcValue amount, UzcValue fee, int deadline, UzcEncryptedMessage message) {
+        return delegate.generateTransactionWithEncryptedMessage(recipient, senderPublicKey, amount, fee, deadline, message);
+    }
+
+    @Override
+    public Single<byte[]> generateTransactionWithEncryptedMessageToSelf(UzcAddress recipient, byte[] senderPublicKey, UzcValue amount, UzcValue fee, int deadline, UzcEncryptedMessage message) {
+        return delegate.generateTransactionWithEncryptedMessageToSelf(recipient, senderPublicKey, amount, fee, deadline, message);
+    }
+
+    @Override
+    public Single<FeeSuggestion> suggestFee() {
+        return delegate.suggestFee();
+    }
+
+    @Override
+    public Observable<MiningInfo> getMiningInfo() {
+        return delegate.getMiningInfo();
+    }
+
+    @Override
+    public Single<TransactionBroadcast> broadcastTransaction(byte[] transactionBytes) {
+        return delegate.broadcastTransaction(transactionBytes);
+    }
+
+    @Override
+    public Single<UzcAddress> getRewardRecipient(UzcAddress account) {
+        return delegate.getRewardRecipient(account);
+    }
+
+    @Override
+    public Single<Long> submitNonce(String passphrase, String nonce, UzcID accountId) {
+        return delegate.submitNonce(passphrase, nonce, accountId);
+    }
+
+    @Override
+    public Single<byte[]> generateMultiOutTransaction(byte[] senderPublicKey, UzcValue fee, int deadline, Map<UzcAddress, UzcValue> recipients) throws IllegalArgumentException {
+        return delegate.generateMultiOutTransaction(senderPublicKey, fee, deadline, recipients);
+    }
+
+    @Override
+    public Single<byte[]> generateMultiOutSameTransaction(byte[] senderPublicKey, UzcValue amount, UzcValue fee, int deadline, Set<UzcAddress> recipients) throws IllegalArgumentException {
+        return delegate.generateMultiOutSameTransaction(senderPublicKey, amount, fee, deadline, recipients);
+    }
+
+    @Override
+    public Single<byte[]> generateCreateATTransaction(byte[] senderPublicKey, UzcValue fee, int deadline, String name, String description, byte[] creationBytes) {
+        return delegate.generateCreateATTransaction(senderPublicKey, fee, deadline, name, description, creationBytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+}
@@ -0,0 +1,502 @@
+package uzc.kit.service.impl;
+
+import uzc.kit.entity.UzcAddress;
+import uzc.kit.entity.UzcEncryptedMessage;
+import uzc.kit.entity.UzcID;
+import uzc.kit.entity.UzcTimestamp;
+import uzc.kit.entity.UzcValue;
+import uzc.kit.entity.response.Block;
+import uzc.kit.entity.response.Transaction;
+import uzc.kit.entity.response.TransactionAppendix;
+import uzc.kit.entity.response.TransactionAttachment;
+import uzc.kit.entity.response.appendix.EncryptedMessageAppendix;
+import uzc.kit.entity.response.appendix.PlaintextMessageAppendix;
+import uzc.kit.entity.response.attachment.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of blocks, transactions and transaction bytes, with an in-memory index of where each record is.
+ *
+ * Each record is a header of its type, ID, height (for blocks), payload length and a CRC32 of the rest of the record,
+ * followed by the payload. The index is rebuilt from the records when the file is opened, and the file is truncated at
+ * the first record that was only partly written or does not match its CRC. A record that fails its CRC or cannot be
+ * decoded when it is read is dropped from the index, so that it is fetched and stored again.
+ * Records are never changed, so only data that can no longer change should be stored.
+ */
+final class ChainCacheStore implements Closeable {
+    private static final byte BLOCK = 1;
+    private static final byte TRANSACTION = 2;
+    private static final byte TRANSACTION_BYTES = 3;
+
+    private static final int HEADER_SIZE = 1 + 8 + 4 + 4 + 4;
+    private static final int CRC_OFFSET = HEADER_SIZE - 4;
+
+    private final FileChannel channel;
+    private final Map<Long, Long> blocks = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> blockIdsByHeight = new ConcurrentHashMap<>();
+    private final Map<Long, Long> transactions = new ConcurrentHashMap<>();
+    private final Map<Long, Long> transactionBytes = new ConcurrentHashMap<>();
+    private long end;
+
+    ChainCacheStore(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long position = 0;
+        long size = channel.size();
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            byte type = header.get();
+            long id = header.getLong();
+            int height = header.getInt();
+            int length = header.getInt();
+            if (length < 0 || position + HEADER_SIZE + length > size) break;
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER_SIZE);
+            if (header.getInt() != crc(header, payload.array())) break;
+            index(type, id, height, position);
+            position += HEADER_SIZE + length;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        this.end = position;
+    }
+
+    private Map<Long, Long> index(byte type) {
+        switch (type) {
+            case BLOCK:
+                return blocks;
+            case TRANSACTION:
+                return transactions;
+            case TRANSACTION_BYTES:
+                return transactionBytes;
+            default:
+                return null;
+        }
+    }
+
+    private void index(byte type, long id, int height, long position) {
+        Map<Long, Long> index = index(type);
+        if (index == null) return; // Written by a newer version, skip it
+        index.put(id, position);
+        if (type == BLOCK) {
+            blockIdsByHeight.put(height, id);
+        }
+    }
+
+    /**
+     * @return The block, or null if it is not stored or could not be read
+     */
+    Block getBlock(UzcID id) {
+        return read(BLOCK, id.getSignedLongId(), payload -> readBlock(new DataInputStream(new ByteArrayInputStream(payload))));
+    }
+
+    /**
+     * @return The block, or null if it is not stored or could not be read
+     */
+    Block getBlock(int height) {
+        Long id = blockIdsByHeight.get(height);
+        return id == null ? null : getBlock(UzcID.fromLong(id));
+    }
+
+    /**
+     * @param id The transaction ID
+     * @param mostRecentHeight The height of the most recent block, used to bring the number of confirmations up to date
+     * @return The transaction, or null if it is not stored or could not be read
+     */
+    Transaction getTransaction(UzcID id, int mostRecentHeight) {
+        return read(TRANSACTION, id.getSignedLongId(), payload -> readTransaction(new DataInputStream(new ByteArrayInputStream(payload)), mostRecentHeight));
+    }
+
+    /**
+     * @return The transaction bytes, or null if they are not stored or could not be read
+     */
+    byte[] getTransactionBytes(UzcID id) {
+        return read(TRANSACTION_BYTES, id.getSignedLongId(), payload -> payload);
+    }
+
+    void putBlock(Block block) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        writeBlock(new DataOutputStream(payload), block);
+        append(BLOCK, block.getId().getSignedLongId(), block.getHeight(), payload.toByteArray());
+    }
+
+    /**
+     * @return Whether the transaction could be stored, which it cannot if it has an attachment or appendix this does not know
+     */
+    boolean putTransaction(Transaction transaction) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        if (!writeTransaction(new DataOutputStream(payload), transaction)) return false;
+        append(TRANSACTION, transaction.getId().getSignedLongId(), transaction.getBlockHeight(), payload.toByteArray());
+        return true;
+    }
+
+    void putTransactionBytes(UzcID id, byte[] bytes) throws IOException {
+        append(TRANSACTION_BYTES, id.getSignedLongId(), 0, bytes);
+    }
+
+    private synchronized void append(byte type, long id, int height, byte[] payload) throws IOException {
+        if (index(type).containsKey(id)) return;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        record.put(type).putLong(id).putInt(height).putInt(payload.length);
+        record.putInt(crc(record, payload)).put(payload);
+        record.flip();
+        long position = end;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        index(type, id, height, end);
+        end = position;
+    }
+
+    /**
+     * @param header The header of the record, up to the CRC
+     * @return The CRC32 of a record
+     */
+    private static int crc(ByteBuffer header, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), header.arrayOffset(), CRC_OFFSET);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private interface Decoder<T> {
+        T decode(byte[] payload) throws IOException;
+    }
+
+    /**
+     * Read and decode a record, dropping it from the index if it does not match its CRC or cannot be decoded
+     * @return The decoded record, or null if it is not in the index or could not be read
+     */
+    private <T> T read(byte type, long id, Decoder<T> decoder) {
+        Map<Long, Long> index = index(type);
+        Long position = index.get(id);
+        if (position == null) return null;
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, position);
+            header.flip();
+            if (header.get() != type || header.getLong() != id) throw new IOException("Chain cache record does not match the index");
+            header.getInt(); // Height
+            int length = header.getInt();
+            if (length < 0 || position + HEADER_SIZE + length > channel.size()) throw new IOException("Chain cache record is truncated");
+            byte[] payload = new byte[length];
+            readFully(ByteBuffer.wrap(payload), position + HEADER_SIZE);
+            if (header.getInt() != crc(header, payload)) throw new IOException("Chain cache record does not match its CRC");
+            return decoder.decode(payload);
+        } catch (IOException | RuntimeException e) {
+            // The cache is only an optimization, so fetch it again rather than fail the request
+            index.remove(id, position);
+            return null;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of chain cache");
+            position += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void writeBlock(DataOutputStream out, Block block) throws IOException {
+        writeBytes(out, block.getNonce() == null ? null : block.getNonce().toByteArray());
+        writeAddress(out, block.getGenerator());
+        writeId(out, block.getId());
+        writeId(out, block.getNextBlock());
+        writeId(out, block.getPreviousBlock());
+        UzcID[] blockTransactions = block.getTransactions();
+        out.writeInt(blockTransactions == null ? -1 : blockTransactions.length);
+        if (blockTransactions != null) {
+            for (UzcID transaction : blockTransactions) {
+                writeId(out, transaction);
+            }
+        }
+        writeTimestamp(out, block.getTimestamp());
+        writeValue(out, block.getBlockReward());
+        writeValue(out, block.getTotalAmount());
+        writeValue(out, block.getTotalFee());
+        writeBytes(out, block.getGenerationSignature());
+        writeBytes(out, block.getGeneratorPublicKey());
+        writeBytes(out, block.getPayloadHash());
+        writeBytes(out, block.getPreviousBlockHash());
+        writeBytes(out, block.getSignature());
+        out.writeInt(block.getHeight());
+        out.writeInt(block.getPayloadLength());
+        out.writeInt(block.getScoopNum());
+        out.writeInt(block.getVersion());
+        out.writeLong(block.getBaseTarget());
+    }
+
+    private static Block readBlock(DataInputStream in) throws IOException {
+        byte[] nonce = readBytes(in);
+        UzcAddress generator = readAddress(in);
+        UzcID id = readId(in);
+        UzcID nextBlock = readId(in);
+        UzcID previousBlock = readId(in);
+        int transactionCount = in.readInt();
+        UzcID[] blockTransactions = transactionCount < 0 ? null : new UzcID[transactionCount];
+        for (int i = 0; i < transactionCount; i++) {
+            blockTransactions[i] = readId(in);
+        }
+        return new Block(nonce == null ? null : new BigInteger(nonce), generator, id, nextBlock, previousBlock, blockTransactions,
+                readTimestamp(in), readValue(in), readValue(in), readValue(in),
+                readBytes(in), readBytes(in), readBytes(in), readBytes(in), readBytes(in),
+                in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readLong());
+    }
+
+    private static boolean writeTransaction(DataOutputStream out, Transaction transaction) throws IOException {
+        writeAddress(out, transaction.getRecipient());
+        writeAddress(out, transaction.getSender());
+        writeId(out, transaction.getBlockId());
+        writeId(out, transaction.getEcBlockId());
+        writeId(out, transaction.getId());
+        writeTimestamp(out, transaction.getBlockTimestamp());
+        writeTimestamp(out, transaction.getTimestamp());
+        writeValue(out, transaction.getAmount());
+        writeValue(out, transaction.getFee());
+        writeBytes(out, transaction.getFullHash());
+        writeBytes(out, transaction.getReferencedTransactionFullHash());
+        writeBytes(out, transaction.getSenderPublicKey());
+        writeBytes(out, transaction.getSignature());
+        writeBytes(out, transaction.getSignatureHash());
+        out.writeInt(transaction.getBlockHeight());
+        out.writeInt(transaction.getConfirmations());
+        out.writeInt(transaction.getEcBlockHeight());
+        out.writeInt(transaction.getSubtype());
+        out.writeInt(transaction.getType());
+        out.writeInt(transaction.getVersion());
+        if (!writeAttachment(out, transaction.getAttachment())) return false;
+        TransactionAppendix[] appendages = transaction.getAppendages();
+        out.writeInt(appendages == null ? -1 : appendages.length);
+        if (appendages != null) {
+            for (TransactionAppendix appendix : appendages) {
+                if (!writeAppendix(out, appendix)) return false;
+            }
+        }
+        out.writeShort(transaction.getDeadline());
+        return true;
+    }
+
+    private static Transaction readTransaction(DataInputStream in, int mostRecentHeight) throws IOException {
+        UzcAddress recipient = readAddress(in);
+        UzcAddress sender = readAddress(in);
+        UzcID blockId = readId(in);
+        UzcID ecBlockId = readId(in);
+        UzcID id = readId(in);
+        UzcTimestamp blockTimestamp = readTimestamp(in);
+        UzcTimestamp timestamp = readTimestamp(in);
+        UzcValue amount = readValue(in);
+        UzcValue fee = readValue(in);
+        byte[] fullHash = readBytes(in);
+        byte[] referencedTransactionFullHash = readBytes(in);
+        byte[] senderPublicKey = readBytes(in);
+        byte[] signature = readBytes(in);
+        byte[] signatureHash = readBytes(in);
+        int blockHeight = in.readInt();
+        int confirmations = Math.max(in.readInt(), mostRecentHeight - blockHeight);
+        int ecBlockHeight = in.readInt();
+        int subtype = in.readInt();
+        int type = in.readInt();
+        int version = in.readInt();
+        TransactionAttachment attachment = readAttachment(in);
+        int appendixCount = in.readInt();
+        TransactionAppendix[] appendages = appendixCount < 0 ? null : new TransactionAppendix[appendixCount];
+        for (int i = 0; i < appendixCount; i++) {
+            appendages[i] = readAppendix(in);
+        }
+        return new Transaction(recipient, sender, blockId, ecBlockId, id, blockTimestamp, timestamp, amount, fee, fullHash, referencedTransactionFullHash, senderPublicKey, signature, signatureHash, blockHeight, confirmations, ecBlockHeight, subtype, type, version, attachment, appendages, in.readShort());
+    }
+
+    private static boolean writeAttachment(DataOutputStream out, TransactionAttachment attachment) throws IOException {
+        if (attachment == null) {
+            out.writeByte(0);
+            return true;
+        }
+        if (attachment.getClass() == OrdinaryPaymentAttachment.class) {
+            out.writeByte(1);
+        } else if (attachment.getClass() == AccountInfoAttachment.class) {
+            out.writeByte(2);
+        } else if (attachment.getClass() == ATCreationAttachment.class) {
+            out.writeByte(3);
+        } else if (attachment.getClass() == MultiOutAttachment.class) {
+            out.writeByte(4);
+        } else if (attachment.getClass() == MultiOutSameAttachment.class) {
+            out.writeByte(5);
+        } else if (attachment.getClass() == RewardRecipientAssignmentAttachment.class) {
+            out.writeByte(6);
+        } else {
+            return false;
+        }
+        out.writeInt(attachment.getVersion());
+        if (attachment instanceof AccountInfoAttachment) {
+            writeString(out, ((AccountInfoAttachment) attachment).getName());
+            writeString(out, ((AccountInfoAttachment) attachment).getDescription());
+        } else if (attachment instanceof ATCreationAttachment) {
+            writeString(out, ((ATCreationAttachment) attachment).getName());
+            writeString(out, ((ATCreationAttachment) attachment).getDescription());
+            writeBytes(out, ((ATCreationAttachment) attachment).getCreationBytes());
+        } else if (attachment instanceof MultiOutAttachment) {
+            Map<UzcAddress, UzcValue> outputs = ((MultiOutAttachment) attachment).getOutputs();
+            out.writeInt(outputs.size());
+            for (Map.Entry<UzcAddress, UzcValue> output : outputs.entrySet()) {
+                writeAddress(out, output.getKey());
+                writeValue(out, output.getValue());
+            }
+        } else if (attachment instanceof MultiOutSameAttachment) {
+            UzcAddress[] recipients = ((MultiOutSameAttachment) attachment).getRecipients();
+            out.writeInt(recipients.length);
+            for (UzcAddress recipient : recipients) {
+                writeAddress(out, recipient);
+            }
+        }
+        return true;
+    }
+
+    private static TransactionAttachment readAttachment(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type == 0) return null;
+        int version = in.readInt();
+        switch (type) {
+            case 1:
+                return new OrdinaryPaymentAttachment(version);
+            case 2:
+                return new AccountInfoAttachment(version, readString(in), readString(in));
+            case 3:
+                return new ATCreationAttachment(version, readString(in), readString(in), readBytes(in));
+            case 4:
+                int outputCount = in.readInt();
+                Map<UzcAddress, UzcValue> outputs = new LinkedHashMap<>();
+                for (int i = 0; i < outputCount; i++) {
+                    outputs.put(readAddress(in), readValue(in));
+                }
+                return new MultiOutAttachment(version, outputs);
+            case 5:
+                UzcAddress[] recipients = new UzcAddress[in.readInt()];
+                for (int i = 0; i < recipients.length; i++) {
+                    recipients[i] = readAddress(in);
+                }
+                return new MultiOutSameAttachment(version, recipients);
+            case 6:
+                return new RewardRecipientAssignmentAttachment(version);
+            default:
+                throw new IOException("Unknown attachment type " + type);
+        }
+    }
+
+    private static boolean writeAppendix(DataOutputStream out, TransactionAppendix appendix) throws IOException {
+        if (appendix instanceof PlaintextMessageAppendix) {
+            out.writeByte(1);
+            out.writeInt(appendix.getVersion());
+            writeString(out, ((PlaintextMessageAppendix) appendix).getMessage());
+            out.writeBoolean(((PlaintextMessageAppendix) appendix).isText());
+            return true;
+        } else if (appendix instanceof EncryptedMessageAppendix.ToRecipient || appendix instanceof EncryptedMessageAppendix.ToSelf) {
+            out.writeByte(appendix instanceof EncryptedMessageAppendix.ToRecipient ? 2 : 3);
+            out.writeInt(appendix.getVersion());
+            UzcEncryptedMessage message = ((EncryptedMessageAppendix) appendix).getEncryptedMessage();
+            writeBytes(out, message.getData());
+            writeBytes(out, message.getNonce());
+            out.writeBoolean(message.isText());
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private static TransactionAppendix readAppendix(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        int version = in.readInt();
+        switch (type) {
+            case 1:
+                return new PlaintextMessageAppendix(version, readString(in), in.readBoolean());
+            case 2:
+                return new EncryptedMessageAppendix.ToRecipient(version, new UzcEncryptedMessage(readBytes(in), readBytes(in), in.readBoolean()));
+            case 3:
+                return new EncryptedMessageAppendix.ToSelf(version, new UzcEncryptedMessage(readBytes(in), readBytes(in), in.readBoolean()));
+            default:
+                throw new IOException("Unknown appendix type " + type);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        writeBytes(out, string == null ? null : string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeId(DataOutputStream out, UzcID id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) out.writeLong(id.getSignedLongId());
+    }
+
+    private static UzcID readId(DataInputStream in) throws IOException {
+        return in.readBoolean() ? UzcID.fromLong(in.readLong()) : null;
+    }
+
+    private static void writeAddress(DataOutputStream out, UzcAddress address) throws IOException {
+        out.writeBoolean(address != null);
+        if (address != null) out.writeLong(address.getSignedLongId());
+    }
+
+    private static UzcAddress readAddress(DataInputStream in) throws IOException {
+        return in.readBoolean() ? UzcAddress.fromId(in.readLong()) : null;
+    }
+
+    private static void writeTimestamp(DataOutputStream out, UzcTimestamp timestamp) throws IOException {
+        out.writeBoolean(timestamp != null);
+        if (timestamp != null) out.writeInt(timestamp.getTimestamp());
+    }
+
+    private static UzcTimestamp readTimestamp(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UzcTimestamp(in.readInt()) : null;
+    }
+
+    private static void writeValue(DataOutputStream out, UzcValue value) throws IOException {
+        writeBytes(out, value == null ? null : value.toPlanck().toByteArray());
+    }
+
+    private static UzcValue readValue(DataInputStream in) throws IOException {
+        byte[] planck = readBytes(in);
+        return planck == null ? null : UzcValue.fromPlanck(new BigInteger(planck));
+    }
+}
@@ -137,6 +137,11 @@ public class CompositeUzcNodeService implements UzcNodeService {
         return performFastest(service -> service.getBlocks(firstIndex, lastIndex));
     }
 
+    @Override
+    public Single<Block[]> getBlocks(int firstIndex, int lastIndex, boolean includeTransactions) {
+        return performFastest(service -> service.getBlocks(firstIndex, lastIndex, includeTransactions));
+    }
+
     @Override
     public Single<Constants> getConstants() {
         return performFastest(UzcNodeService::getConstants);
@@ -172,6 +177,21 @@ public class CompositeUzcNodeService implements UzcNodeService {
         return performFastest(service -> service.getAccountTransactions(accountId));
     }
 
+    @Override
+    public Single<UzcID[]> getAccountTransactionIDs(UzcAddress accountId, int firstIndex, int lastIndex) {
+        return performFastest(service -> service.getAccountTransactionIDs(accountId, firstIndex, lastIndex));
+    }
+
+    @Override
+    public Single<Transaction[]> getAccountTransactions(UzcAddress accountId, int firstIndex, int lastIndex) {
+        return performFastest(service -> service.getAccountTransactions(accountId, firstIndex, lastIndex));
+    }
+
+    @Override
+    public Single<Transaction[]> getAccountTransactions(UzcAddress accountId, UzcTimestamp since, int firstIndex, int lastIndex) {
+        return performFastest(service -> service.getAccountTransactions(accountId, since, firstIndex, lastIndex));
+    }
+
     @Override
     public Single<UzcAddress[]> getAccountsWithRewardRecipient(UzcAddress accountId) {
         return performFastest(service -> service.getAccountsWithRewardRecipient(accountId));
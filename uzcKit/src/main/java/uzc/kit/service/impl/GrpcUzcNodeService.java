@@ -109,9 +109,14 @@ public class GrpcUzcNodeService implements UzcNodeService {
 
     @Override
     public Single<Block[]> getBlocks(int firstIndex, int lastIndex) {
+        return getBlocks(firstIndex, lastIndex, false);
+    }
+
+    @Override
+    public Single<Block[]> getBlocks(int firstIndex, int lastIndex, boolean includeTransactions) {
         return assign(() -> brsGrpc.getBlocks(
                 BrsApi.GetBlocksRequest.newBuilder()
-                        .setIncludeTransactions(false)
+                        .setIncludeTransactions(includeTransactions)
                         .setIndexRange(
                                 BrsApi.IndexRange.newBuilder()
                                         .setFirstIndex(firstIndex)
@@ -186,6 +191,49 @@ public class GrpcUzcNodeService implements UzcNodeService {
                         .toArray(Transaction[]::new));
     }
 
+    @Override
+    public Single<UzcID[]> getAccountTransactionIDs(UzcAddress accountId, int firstIndex, int lastIndex) {
+        return getAccountTransactions(accountId, firstIndex, lastIndex)
+                .map(transactions -> Arrays.stream(transactions)
+                        .map(Transaction::getId)
+                        .toArray(UzcID[]::new));
+    }
+
+    @Override
+    public Single<Transaction[]> getAccountTransactions(UzcAddress accountId, int firstIndex, int lastIndex) {
+        return assign(() -> brsGrpc.getAccountTransactions(
+                BrsApi.GetAccountTransactionsRequest.newBuilder()
+                        .setAccountId(accountId.getUzcID().getSignedLongId())
+                        .setIndexRange(
+                                BrsApi.IndexRange.newBuilder()
+                                        .setFirstIndex(firstIndex)
+                                        .setLastIndex(lastIndex)
+                                        .build())
+                        .build()))
+                .map(transactions -> transactions.getTransactionsList()
+                        .stream()
+                        .map(Transaction::new)
+                        .toArray(Transaction[]::new));
+    }
+
+    @Override
+    public Single<Transaction[]> getAccountTransactions(UzcAddress accountId, UzcTimestamp since, int firstIndex, int lastIndex) {
+        return assign(() -> brsGrpc.getAccountTransactions(
+                BrsApi.GetAccountTransactionsRequest.newBuilder()
+                        .setAccountId(accountId.getUzcID().getSignedLongId())
+                        .setTimestamp(since.getTimestamp())
+                        .setIndexRange(
+                                BrsApi.IndexRange.newBuilder()
+                                        .setFirstIndex(firstIndex)
+                                        .setLastIndex(lastIndex)
+                                        .build())
+                        .build()))
+                .map(transactions -> transactions.getTransactionsList()
+                        .stream()
+                        .map(Transaction::new)
+                        .toArray(Transaction[]::new));
+    }
+
     @Override
     public Single<UzcAddress[]> getAccountsWithRewardRecipient(UzcAddress accountId) {
         return assign(() -> brsGrpc.getAccounts(
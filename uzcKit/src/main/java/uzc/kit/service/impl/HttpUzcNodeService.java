@@ -94,7 +94,12 @@ public final class HttpUzcNodeService implements UzcNodeService {
 
     @Override
     public Single<Block[]> getBlocks(int firstIndex, int lastIndex) {
-        return assign(blockchainService.getBlocks(String.valueOf(firstIndex), String.valueOf(lastIndex), null))
+        return getBlocks(firstIndex, lastIndex, false);
+    }
+
+    @Override
+    public Single<Block[]> getBlocks(int firstIndex, int lastIndex, boolean includeTransactions) {
+        return assign(blockchainService.getBlocks(String.valueOf(firstIndex), String.valueOf(lastIndex), includeTransactions ? new String[]{"true"} : null))
                 .map(response -> Arrays.stream(response.getBlocks())
                         .map(Block::new)
                         .collect(Collectors.toList())
@@ -153,6 +158,30 @@ public final class HttpUzcNodeService implements UzcNodeService {
                         .toArray(Transaction[]::new));
     }
 
+    @Override
+    public Single<UzcID[]> getAccountTransactionIDs(UzcAddress accountId, int firstIndex, int lastIndex) {
+        return assign(blockchainService.getAccountTransactionIDs(accountId.getID(), null, null, null, String.valueOf(firstIndex), String.valueOf(lastIndex), null))
+                .map(response -> Arrays.stream(response.getTransactionIds())
+                        .map(UzcID::fromLong)
+                        .toArray(UzcID[]::new));
+    }
+
+    @Override
+    public Single<Transaction[]> getAccountTransactions(UzcAddress accountId, int firstIndex, int lastIndex) {
+        return assign(blockchainService.getAccountTransactions(accountId.getID(), null, null, null, String.valueOf(firstIndex), String.valueOf(lastIndex), null))
+                .map(response -> Arrays.stream(response.getTransactions())
+                        .map(Transaction::new)
+                        .toArray(Transaction[]::new));
+    }
+
+    @Override
+    public Single<Transaction[]> getAccountTransactions(UzcAddress accountId, UzcTimestamp since, int firstIndex, int lastIndex) {
+        return assign(blockchainService.getAccountTransactions(accountId.getID(), String.valueOf(since.getTimestamp()), null, null, String.valueOf(firstIndex), String.valueOf(lastIndex), null))
+                .map(response -> Arrays.stream(response.getTransactions())
+                        .map(Transaction::new)
+                        .toArray(Transaction[]::new));
+    }
+
     @Override
     public Single<UzcAddress[]> getAccountsWithRewardRecipient(UzcAddress accountId) {
         return assign(blockchainService.getAccountsWithRewardRecipient(accountId.getID()))
@@ -0,0 +1,103 @@
+package uzc.kit.service.impl;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.BiConsumer;
+import io.reactivex.schedulers.Schedulers;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Streams a list that the node returns a page at a time, selected by first and last index, as a Flowable.
+ *
+ * Pages are only fetched as the subscriber requests items. Without prefetching, the next page is fetched once every
+ * item of the current page has been taken. With prefetching, the next page is fetched while the current one is being
+ * processed, so the subscriber does not wait for it. A page with fewer items than the page size ends the stream.
+ */
+public final class PagedFlowable {
+    private PagedFlowable() {
+    }
+
+    /**
+     * @param pageSize The number of items to fetch per request. This must not be more than the node returns per request.
+     * @param prefetch Whether to fetch the next page while the current one is being processed
+     * @param pageFetcher Fetches the items between two indices, inclusive
+     * @return The items of every page, in order
+     */
+    public static <T> Flowable<T> create(int pageSize, boolean prefetch, PageFetcher<T> pageFetcher) {
+        if (pageSize < 1) throw new IllegalArgumentException("Page size must be positive, was " + pageSize);
+        BiConsumer<PageState<T>, Emitter<T>> generator = PageState::next;
+        return Flowable.generate(() -> new PageState<>(pageSize, prefetch, pageFetcher), generator, PageState::dispose)
+                .subscribeOn(Schedulers.io()); // Waiting for a page blocks, so do it on an IO thread
+    }
+
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        /**
+         * @param firstIndex The index of the first item of the page
+         * @param lastIndex The index of the last item of the page
+         * @return The items of the page, wrapped in a single
+         */
+        Single<T[]> fetchPage(int firstIndex, int lastIndex);
+    }
+
+    private static final class PageState<T> {
+        private final int pageSize;
+        private final boolean prefetch;
+        private final PageFetcher<T> pageFetcher;
+
+        private T[] page;
+        private int position;
+        private int nextIndex;
+        private boolean lastPage;
+        private Future<T[]> nextPage;
+
+        private PageState(int pageSize, boolean prefetch, PageFetcher<T> pageFetcher) {
+            this.pageSize = pageSize;
+            this.prefetch = prefetch;
+            this.pageFetcher = pageFetcher;
+        }
+
+        private Future<T[]> fetchNextPage() {
+            Future<T[]> future = pageFetcher.fetchPage(nextIndex, nextIndex + pageSize - 1).toFuture();
+            nextIndex += pageSize;
+            return future;
+        }
+
+        private void next(Emitter<T> emitter) {
+            while (page == null || position == page.length) {
+                if (lastPage) {
+                    emitter.onComplete();
+                    return;
+                }
+                Future<T[]> future = nextPage != null ? nextPage : fetchNextPage();
+                nextPage = null;
+                try {
+                    page = future.get();
+                } catch (ExecutionException e) {
+                    emitter.onError(e.getCause());
+                    return;
+                } catch (InterruptedException e) {
+                    // Disposing the stream interrupts this thread, and there is no one left to signal
+                    future.cancel(true);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                position = 0;
+                lastPage = page.length < pageSize;
+                if (prefetch && !lastPage) {
+                    nextPage = fetchNextPage();
+                }
+            }
+            emitter.onNext(page[position++]);
+        }
+
+        private void dispose() {
+            if (nextPage != null) {
+                nextPage.cancel(true);
+            }
+        }
+    }
+}
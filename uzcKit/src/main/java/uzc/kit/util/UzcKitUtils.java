@@ -1,6 +1,7 @@
 package uzc.kit.util;
 
 import uzc.kit.entity.*;
+import uzc.kit.entity.response.http.BlockResponse;
 import uzc.kit.entity.response.http.attachment.MultiOutAttachmentResponse;
 import uzc.kit.entity.response.http.attachment.TransactionAttachmentAndAppendagesResponse;
 import com.google.gson.GsonBuilder;
@@ -10,6 +11,7 @@ public final class UzcKitUtils {
     public static GsonBuilder buildGson(GsonBuilder builder) {
         return builder
                 // Response entities
+                .registerTypeAdapter(BlockResponse.class, BlockResponse.DESERIALIZER)
                 .registerTypeAdapter(TransactionAttachmentAndAppendagesResponse.class, TransactionAttachmentAndAppendagesResponse.SERIALIZER)
                 .registerTypeAdapter(TransactionAttachmentAndAppendagesResponse.class, TransactionAttachmentAndAppendagesResponse.DESERIALIZER)
                 .registerTypeAdapter(MultiOutAttachmentResponse.MultiOutRecipient.class, MultiOutAttachmentResponse.MultiOutRecipient.SERIALIZER)
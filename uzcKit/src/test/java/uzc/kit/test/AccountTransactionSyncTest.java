@@ -0,0 +1,95 @@
+package uzc.kit.test;
+
+import uzc.kit.entity.UzcAddress;
+import uzc.kit.entity.UzcID;
+import uzc.kit.entity.UzcTimestamp;
+import uzc.kit.entity.UzcValue;
+import uzc.kit.entity.response.Transaction;
+import uzc.kit.service.AccountTransactionSync;
+import uzc.kit.service.UzcNodeService;
+import io.reactivex.Single;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(JUnit4.class)
+public class AccountTransactionSyncTest {
+    private static final UzcAddress ACCOUNT = UzcAddress.fromId(1);
+
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final List<Integer> requestedTimestamps = new ArrayList<>();
+
+    /**
+     * A node that only answers getAccountTransactions with a timestamp, from {@link #transactions}
+     */
+    private final UzcNodeService uzcNodeService = (UzcNodeService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{UzcNodeService.class}, (proxy, method, args) -> {
+        if (!method.getName().equals("getAccountTransactions") || args.length != 4) throw new UnsupportedOperationException(method.getName());
+        int since = ((UzcTimestamp) args[1]).getTimestamp();
+        int firstIndex = (int) args[2];
+        int lastIndex = (int) args[3];
+        synchronized (requestedTimestamps) {
+            requestedTimestamps.add(since);
+        }
+        List<Transaction> page = transactions.stream()
+                .filter(transaction -> transaction.getBlockTimestamp().getTimestamp() >= since)
+                .sorted(Comparator.comparingInt((Transaction transaction) -> transaction.getBlockTimestamp().getTimestamp()).reversed())
+                .skip(firstIndex)
+                .limit(lastIndex - firstIndex + 1)
+                .collect(Collectors.toList());
+        return Single.just(page.toArray(new Transaction[0]));
+    });
+
+    private static Transaction transaction(long id, int blockTimestamp, int confirmations) {
+        return new Transaction(ACCOUNT, ACCOUNT, UzcID.fromLong(blockTimestamp), null, UzcID.fromLong(id), new UzcTimestamp(blockTimestamp), new UzcTimestamp(blockTimestamp), UzcValue.ZERO, UzcValue.ZERO, null, null, null, null, null, 0, confirmations, 0, 0, 0, 1, null, null, (short) 1440);
+    }
+
+    private static List<Long> ids(List<Transaction> transactions) {
+        return transactions.stream()
+                .map(transaction -> transaction.getId().getSignedLongId())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testIncrementalSync() {
+        AccountTransactionSync sync = new AccountTransactionSync(uzcNodeService, 3, 4);
+        sync.addAccount(ACCOUNT);
+
+        transactions.add(transaction(1, 100, 10));
+        transactions.add(transaction(2, 200, 1));
+        assertEquals(Arrays.asList(1L, 2L), ids(sync.sync().toList().blockingGet()));
+        // Transaction 2 is not confirmed yet, so its block is fetched again
+        assertEquals(new UzcTimestamp(200), sync.getSyncedTimestamp(ACCOUNT));
+
+        transactions.set(1, transaction(2, 200, 5));
+        transactions.add(transaction(3, 300, 4));
+        assertEquals(Arrays.asList(2L, 3L), ids(sync.sync().toList().blockingGet()));
+        assertEquals(new UzcTimestamp(300), sync.getSyncedTimestamp(ACCOUNT));
+
+        assertEquals(Collections.emptyList(), ids(sync.sync().toList().blockingGet()));
+        assertEquals(Arrays.asList(0, 200, 300), requestedTimestamps);
+    }
+
+    @Test
+    public void testAddAccountSince() {
+        AccountTransactionSync sync = new AccountTransactionSync(uzcNodeService, 0, 1);
+        sync.addAccount(ACCOUNT, new UzcTimestamp(150));
+        transactions.add(transaction(1, 100, 10));
+        transactions.add(transaction(2, 200, 1));
+        assertEquals(Collections.singletonList(2L), ids(sync.sync().toList().blockingGet()));
+
+        sync.removeAccount(ACCOUNT);
+        assertNull(sync.getSyncedTimestamp(ACCOUNT));
+        assertEquals(Collections.emptyList(), sync.sync().toList().blockingGet());
+    }
+}
@@ -0,0 +1,81 @@
+package uzc.kit.test;
+
+import uzc.kit.entity.UzcID;
+import uzc.kit.entity.response.Block;
+import uzc.kit.entity.response.Transaction;
+import uzc.kit.entity.response.appendix.PlaintextMessageAppendix;
+import uzc.kit.entity.response.http.BlockResponse;
+import uzc.kit.entity.response.http.BlocksResponse;
+import uzc.kit.util.UzcKitUtils;
+import com.google.gson.Gson;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(JUnit4.class)
+public class BlockResponseTest {
+    private static final Gson gson = UzcKitUtils.buildGson().create();
+
+    private static final String TRANSACTION_1 = "{\"senderPublicKey\":\"34d010e80c0d6dc409f8d7a99d0815bfbff9387909a9fca4c65253ec44fad360\",\"signature\":\"" + hex(64) + "\",\"feeNQT\":\"735000\",\"amountNQT\":\"100000000\",\"type\":0,\"subtype\":0,\"confirmations\":10,\"fullHash\":\"" + hex(32) + "\",\"version\":1,\"ecBlockId\":\"123\",\"signatureHash\":\"" + hex(32) + "\",\"attachment\":{\"version.Message\":1,\"message\":\"Hello\",\"messageIsText\":true},\"sender\":\"7009665667967103287\",\"recipient\":\"888561138747819634\",\"ecBlockHeight\":469990,\"deadline\":1440,\"transaction\":\"1001\",\"timestamp\":126143990,\"height\":470000,\"block\":\"9466704733664017405\",\"blockTimestamp\":126144000}";
+    private static final String TRANSACTION_2 = "{\"senderPublicKey\":\"34d010e80c0d6dc409f8d7a99d0815bfbff9387909a9fca4c65253ec44fad360\",\"signature\":\"" + hex(64) + "\",\"feeNQT\":\"735000\",\"amountNQT\":\"200000000\",\"type\":0,\"subtype\":0,\"confirmations\":10,\"fullHash\":\"" + hex(32) + "\",\"version\":1,\"ecBlockId\":\"123\",\"signatureHash\":\"" + hex(32) + "\",\"sender\":\"7009665667967103287\",\"recipient\":\"888561138747819634\",\"ecBlockHeight\":469990,\"deadline\":1440,\"transaction\":\"1002\",\"timestamp\":126143995,\"height\":470000,\"block\":\"9466704733664017405\",\"blockTimestamp\":126144000}";
+
+    private static String hex(int bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < bytes; i++) {
+            hex.append("ab");
+        }
+        return hex.toString();
+    }
+
+    private static String blocksResponse(String transactions) {
+        return "{\"blocks\":[{\"previousBlockHash\":\"" + hex(32) + "\",\"payloadLength\":352,\"totalAmountNQT\":\"300000000\",\"generationSignature\":\"" + hex(32) + "\",\"generator\":\"7009665667967103287\",\"generatorPublicKey\":\"34d010e80c0d6dc409f8d7a99d0815bfbff9387909a9fca4c65253ec44fad360\",\"baseTarget\":70312,\"payloadHash\":\"" + hex(32) + "\",\"blockReward\":\"100\",\"nextBlock\":\"42\",\"scoopNum\":7,\"numberOfTransactions\":2,\"blockSignature\":\"" + hex(64) + "\",\"transactions\":" + transactions + ",\"nonce\":\"18325193796\",\"version\":3,\"totalFeeNQT\":\"1470000\",\"previousBlock\":\"41\",\"block\":\"9466704733664017405\",\"height\":470000,\"timestamp\":126144000}],\"requestProcessingTime\":1}";
+    }
+
+    @Test
+    public void testBlockResponseTransactionIds() {
+        BlockResponse blockResponse = gson.fromJson(blocksResponse("[\"1001\",\"1002\"]"), BlocksResponse.class).getBlocks()[0];
+        assertArrayEquals(new String[]{"1001", "1002"}, blockResponse.getTransactions());
+        assertNull(blockResponse.getIncludedTransactions());
+
+        Block block = new Block(blockResponse);
+        assertArrayEquals(new UzcID[]{UzcID.fromLong(1001), UzcID.fromLong(1002)}, block.getTransactions());
+        assertNull(block.getIncludedTransactions());
+        assertEquals(470000, block.getHeight());
+        assertEquals(UzcID.fromLong(41), block.getPreviousBlock());
+    }
+
+    @Test
+    public void testBlockResponseIncludedTransactions() {
+        BlockResponse blockResponse = gson.fromJson(blocksResponse("[" + TRANSACTION_1 + "," + TRANSACTION_2 + "]"), BlocksResponse.class).getBlocks()[0];
+        assertArrayEquals(new String[]{"1001", "1002"}, blockResponse.getTransactions());
+        assertEquals(2, blockResponse.getIncludedTransactions().length);
+        assertEquals("1001", blockResponse.getIncludedTransactions()[0].getTransaction());
+        assertEquals("1002", blockResponse.getIncludedTransactions()[1].getTransaction());
+
+        Block block = new Block(blockResponse);
+        assertArrayEquals(new UzcID[]{UzcID.fromLong(1001), UzcID.fromLong(1002)}, block.getTransactions());
+        Transaction[] transactions = block.getIncludedTransactions();
+        assertEquals(2, transactions.length);
+        assertEquals(UzcID.fromLong(1001), transactions[0].getId());
+        assertEquals(TestVariables.EXAMPLE_ACCOUNT_ID, transactions[0].getSender());
+        assertEquals(100000000, transactions[0].getAmount().toPlanck().longValue());
+        assertEquals("Hello", ((PlaintextMessageAppendix) transactions[0].getAppendages()[0]).getMessage());
+        assertEquals(UzcID.fromLong(1002), transactions[1].getId());
+        assertEquals(0, transactions[1].getAppendages().length);
+        // The rest of the block is read as usual
+        assertEquals(470000, block.getHeight());
+        assertEquals(UzcID.fromLong(41), block.getPreviousBlock());
+        assertEquals(70312, block.getBaseTarget());
+    }
+
+    @Test
+    public void testBlockResponseNoTransactions() {
+        BlockResponse blockResponse = gson.fromJson(blocksResponse("[]"), BlocksResponse.class).getBlocks()[0];
+        assertEquals(0, blockResponse.getTransactions().length);
+        assertEquals(0, new Block(blockResponse).getIncludedTransactions().length);
+    }
+}
@@ -0,0 +1,190 @@
+package uzc.kit.test;
+
+import uzc.kit.entity.UzcAddress;
+import uzc.kit.entity.UzcID;
+import uzc.kit.entity.UzcTimestamp;
+import uzc.kit.entity.UzcValue;
+import uzc.kit.entity.response.Block;
+import uzc.kit.entity.response.Transaction;
+import uzc.kit.entity.response.TransactionAppendix;
+import uzc.kit.entity.response.appendix.PlaintextMessageAppendix;
+import uzc.kit.entity.response.attachment.MultiOutAttachment;
+import uzc.kit.service.UzcNodeService;
+import uzc.kit.service.impl.CachingUzcNodeService;
+import io.reactivex.Single;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class CachingUzcNodeServiceTest {
+    private static final int MOST_RECENT_HEIGHT = 1000;
+    private static final int REORG_WINDOW = 10;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("chain", ".cache");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * A node with a chain of {@link #MOST_RECENT_HEIGHT} blocks, with one transaction in each block
+     */
+    private UzcNodeService node() {
+        return (UzcNodeService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{UzcNodeService.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getBlocks":
+                    return Single.just(new Block[]{block(MOST_RECENT_HEIGHT)});
+                case "getBlock":
+                    requests.incrementAndGet();
+                    return Single.just(block(args[0] instanceof UzcID ? (int) ((UzcID) args[0]).getSignedLongId() : (int) args[0]));
+                case "getTransaction":
+                    requests.incrementAndGet();
+                    return Single.just(transaction((int) ((UzcID) args[0]).getSignedLongId()));
+                case "getTransactionBytes":
+                    requests.incrementAndGet();
+                    return Single.just(new byte[]{1, 2, 3});
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static Block block(int height) {
+        return new Block(null, UzcAddress.fromId(height), UzcID.fromLong(height), UzcID.fromLong(height + 1), UzcID.fromLong(height - 1), new UzcID[]{UzcID.fromLong(height)}, new UzcTimestamp(height * 240), UzcValue.fromUzc(100), UzcValue.fromUzc(5), UzcValue.fromPlanck(1000), new byte[32], new byte[32], new byte[32], new byte[32], new byte[64], height, 176, 7, 3, 18325193796L);
+    }
+
+    private static Transaction transaction(int height) {
+        Map<UzcAddress, UzcValue> outputs = new LinkedHashMap<>();
+        outputs.put(UzcAddress.fromId(1), UzcValue.fromUzc(1));
+        outputs.put(UzcAddress.fromId(2), UzcValue.fromUzc(2));
+        return new Transaction(null, UzcAddress.fromId(height), UzcID.fromLong(height), UzcID.fromLong(height - 5), UzcID.fromLong(height), new UzcTimestamp(height * 240), new UzcTimestamp(height * 240 - 10), UzcValue.fromUzc(3), UzcValue.fromPlanck(735000), new byte[32], null, new byte[32], new byte[64], new byte[32], height, MOST_RECENT_HEIGHT - height, height - 5, 1, 0, 1, new MultiOutAttachment(1, outputs), new TransactionAppendix[]{new PlaintextMessageAppendix(1, "Hello", true)}, (short) 1440);
+    }
+
+    @Test
+    public void testBlockCachedAcrossRestart() throws IOException {
+        try (CachingUzcNodeService service = new CachingUzcNodeService(node(), file, REORG_WINDOW)) {
+            service.getBlock(UzcID.fromLong(500)).blockingGet();
+            service.getBlock(UzcID.fromLong(500)).blockingGet();
+            assertEquals(1, requests.get());
+        }
+        try (CachingUzcNodeService service = new CachingUzcNodeService(node(), file, REORG_WINDOW)) {
+            Block block = service.getBlock(500).blockingGet();
+            assertEquals(1, requests.get());
+            Block expected = block(500);
+            assertEquals(expected.getId(), block.getId());
+            assertEquals(expected.getGenerator(), block.getGenerator());
+            assertEquals(expected.getTimestamp(), block.getTimestamp());
+            assertEquals(expected.getBlockReward(), block.getBlockReward());
+            assertEquals(expected.getTotalFee(), block.getTotalFee());
+            assertArrayEquals(expected.getTransactions(), block.getTransactions());
+            assertArrayEquals(expected.getSignature(), block.getSignature());
+            assertEquals(expected.getBaseTarget(), block.getBaseTarget());
+        }
+    }
+
+    @Test
+    public void testRecentBlockNotCached() throws IOException {
+        try (CachingUzcNodeService service = new CachingUzcNodeService(node(), file, REORG_WINDOW)) {
+            service.getBlock(MOST_RECENT_HEIGHT - REORG_WINDOW + 1).blockingGet();
+            service.getBlock(MOST_RECENT_HEIGHT - REORG_WINDOW + 1).blockingGet();
+            assertEquals(2, requests.get());
+        }
+    }
+
+    @Test
+    public void testTransactionCachedAcrossRestart() throws IOException {
+        try (CachingUzcNodeService service = new CachingUzcNodeService(node(), file, REORG_WINDOW)) {
+            service.getTransaction(UzcID.fromLong(500)).blockingGet();
+            service.getTransaction(UzcID.fromLong(995)).blockingGet();
+        }
+        try (CachingUzcNodeService service = new CachingUzcNodeService(node(), file, REORG_WINDOW)) {
+            Transaction transaction = service.getTransaction(UzcID.fromLong(500)).blockingGet();
+            service.getTransaction(UzcID.fromLong(995)).blockingGet();
+            assertEquals(3, requests.get());
+            Transaction expected = transaction(500);
+            assertEquals(expected.getSender(), transaction.getSender());
+            assertEquals(expected.getFee(), transaction.getFee());
+            assertEquals(expected.getConfirmations(), transaction.getConfirmations());
+            assertEquals(expected.getDeadline(), transaction.getDeadline());
+            assertEquals(((MultiOutAttachment) expected.getAttachment()).getOutputs(), ((MultiOutAttachment) transaction.getAttachment()).getOutputs());
+            assertEquals("Hello", ((PlaintextMessageAppendix) transaction.getAppendages()[0]).getMessage());
+        }
+    }
+
+    /**
+     * Flip the last byte of the cache file, which is in the payload of the last record
+     */
+    private void corruptLastRecord() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            last.put(0, (byte) ~last.get(0));
+            last.rewind();
+            channel.write(last, channel.size() - 1);
+        }
+    }
+
+    @Test
+    public void testCorruptRecordTruncatedOnOpen() throws IOException {
+        try (CachingUzcNodeService service = new CachingUzcNodeService(node(), file, REORG_WINDOW)) {
+            service.getBlock(500).blockingGet();
+            service.getBlock(501).blockingGet();
+        }
+        long size = Files.size(file);
+        corruptLastRecord();
+        try (CachingUzcNodeService service = new CachingUzcNodeService(node(), file, REORG_WINDOW)) {
+            assertTrue(Files.size(file) < size);
+            service.getBlock(500).blockingGet();
+            assertEquals(2, requests.get());
+            assertEquals(UzcID.fromLong(501), service.getBlock(501).blockingGet().getId());
+            assertEquals(3, requests.get());
+        }
+    }
+
+    @Test
+    public void testCorruptRecordFetchedAgain() throws IOException {
+        try (CachingUzcNodeService service = new CachingUzcNodeService(node(), file, REORG_WINDOW)) {
+            service.getBlock(500).blockingGet();
+            corruptLastRecord();
+            assertEquals(UzcID.fromLong(500), service.getBlock(500).blockingGet().getId());
+            assertEquals(2, requests.get());
+            // It is stored again
+            service.getBlock(500).blockingGet();
+            assertEquals(2, requests.get());
+        }
+    }
+
+    @Test
+    public void testTransactionBytesCached() throws IOException {
+        try (CachingUzcNodeService service = new CachingUzcNodeService(node(), file, REORG_WINDOW)) {
+            service.getTransactionBytes(UzcID.fromLong(500)).blockingGet();
+            assertArrayEquals(new byte[]{1, 2, 3}, service.getTransactionBytes(UzcID.fromLong(500)).blockingGet());
+            assertEquals(1, requests.get());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package uzc.kit.test;
+
+import uzc.kit.entity.UzcID;
+import uzc.kit.entity.response.Block;
+import uzc.kit.service.ChainDownloader;
+import uzc.kit.service.UzcNodeService;
+import io.reactivex.Single;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ChainDownloaderTest {
+    private static final long FORK = 1000000;
+
+    private final AtomicInteger mostRecentHeight = new AtomicInteger(1000);
+    private final AtomicInteger requests = new AtomicInteger();
+    /**
+     * The request after which the chain grows by a block, or -1
+     */
+    private volatile int growAfterRequest = -1;
+    /**
+     * The request which is answered with blocks from another fork, or -1
+     */
+    private volatile int forkRequest = -1;
+
+    /**
+     * A node that only answers getBlocks, with a chain of {@link #mostRecentHeight} blocks
+     */
+    private UzcNodeService node(AtomicInteger nodeRequests) {
+        return node(nodeRequests, 0, 0);
+    }
+
+    /**
+     * A node that only answers getBlocks
+     * @param tipOffset How many blocks the node is ahead of {@link #mostRecentHeight}
+     * @param fork Added to the IDs of the node's blocks, so that a node with a different fork is on a different chain
+     */
+    private UzcNodeService node(AtomicInteger nodeRequests, int tipOffset, long fork) {
+        return (UzcNodeService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{UzcNodeService.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("getBlocks")) throw new UnsupportedOperationException(method.getName());
+            int request = requests.incrementAndGet();
+            nodeRequests.incrementAndGet();
+            int height = mostRecentHeight.get() + tipOffset;
+            if (request == growAfterRequest) mostRecentHeight.incrementAndGet();
+            long blockFork = request == forkRequest ? FORK : fork;
+            Block[] blocks = IntStream.rangeClosed((int) args[0], (int) args[1])
+                    .map(index -> height - index)
+                    .filter(blockHeight -> blockHeight >= 0)
+                    .mapToObj(blockHeight -> block(blockHeight, blockFork))
+                    .toArray(Block[]::new);
+            return Single.just(blocks);
+        });
+    }
+
+    private static Block block(int height, long fork) {
+        return new Block(null, null, UzcID.fromLong(height + fork), null, height == 0 ? null : UzcID.fromLong(height - 1 + fork), new UzcID[0], null, null, null, null, null, null, null, null, null, height, 0, 0, 1, 0);
+    }
+
+    private static List<Integer> heights(List<Block> blocks) {
+        return blocks.stream()
+                .map(Block::getHeight)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> range(int firstHeight, int lastHeight) {
+        return IntStream.rangeClosed(firstHeight, lastHeight).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testDownloadInOrder() {
+        AtomicInteger node1Requests = new AtomicInteger();
+        AtomicInteger node2Requests = new AtomicInteger();
+        ChainDownloader downloader = new ChainDownloader(100, 3, node(node1Requests), node(node2Requests));
+        assertEquals(range(0, 249), heights(downloader.download(0, 249, false).toList().blockingGet()));
+        assertEquals(range(950, 1000), heights(downloader.download(950, 2000, false).toList().blockingGet()));
+        assertTrue(node1Requests.get() > 0);
+        assertTrue(node2Requests.get() > 0);
+    }
+
+    @Test
+    public void testChainGrowsDuringDownload() {
+        growAfterRequest = 2;
+        ChainDownloader downloader = new ChainDownloader(10, 1, node(new AtomicInteger()));
+        assertEquals(range(100, 149), heights(downloader.download(100, 149, false).toList().blockingGet()));
+    }
+
+    @Test
+    public void testNodesAtDifferentHeights() {
+        AtomicInteger node1Requests = new AtomicInteger();
+        AtomicInteger node2Requests = new AtomicInteger();
+        ChainDownloader downloader = new ChainDownloader(10, 1, node(node1Requests), node(node2Requests, 5, 0));
+        assertEquals(range(0, 99), heights(downloader.download(0, 99, false).toList().blockingGet()));
+        // The most recent block, then five windows each, and the second node corrects its height once
+        assertEquals(6, node1Requests.get());
+        assertEquals(6, node2Requests.get());
+    }
+
+    @Test
+    public void testWindowNotFollowingPreviousFetchedAgain() {
+        // The second window comes back from another fork
+        forkRequest = 3;
+        ChainDownloader downloader = new ChainDownloader(10, 1, node(new AtomicInteger()));
+        List<Block> blocks = downloader.download(100, 149, false).toList().blockingGet();
+        assertEquals(range(100, 149), heights(blocks));
+        assertTrue(blocks.stream().allMatch(block -> block.getId().getSignedLongId() == block.getHeight()));
+        assertEquals(7, requests.get());
+    }
+
+    @Test
+    public void testNodeOnOtherFork() {
+        AtomicInteger forkedRequests = new AtomicInteger();
+        ChainDownloader downloader = new ChainDownloader(10, 1, node(new AtomicInteger()), node(forkedRequests, 0, FORK));
+        List<Block> blocks = downloader.download(100, 149, false).toList().blockingGet();
+        assertEquals(range(100, 149), heights(blocks));
+        assertTrue(blocks.stream().allMatch(block -> block.getId().getSignedLongId() == block.getHeight()));
+        assertEquals(2, forkedRequests.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowSizeTooLarge() {
+        new ChainDownloader(ChainDownloader.MAX_WINDOW_SIZE + 1, 1, node(new AtomicInteger()));
+    }
+}
@@ -0,0 +1,106 @@
+package uzc.kit.test;
+
+import uzc.kit.service.impl.PagedFlowable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class PagedFlowableTest {
+    private static final int ITEMS = 25;
+
+    private final List<Integer> fetchedPages = Collections.synchronizedList(new ArrayList<>());
+
+    private Single<Integer[]> fetchPage(int firstIndex, int lastIndex) {
+        return Single.fromCallable(() -> {
+            fetchedPages.add(firstIndex);
+            return IntStream.rangeClosed(firstIndex, Math.min(lastIndex, ITEMS - 1))
+                    .boxed()
+                    .toArray(Integer[]::new);
+        });
+    }
+
+    @Test
+    public void testAllItemsInOrder() {
+        List<Integer> expected = IntStream.range(0, ITEMS).boxed().collect(Collectors.toList());
+        assertEquals(expected, PagedFlowable.create(10, false, this::fetchPage).toList().blockingGet());
+        assertEquals(expected, PagedFlowable.create(10, true, this::fetchPage).toList().blockingGet());
+        assertEquals(expected, PagedFlowable.create(1, true, this::fetchPage).toList().blockingGet());
+    }
+
+    @Test
+    public void testFullLastPage() {
+        assertEquals(ITEMS, (long) PagedFlowable.create(5, false, this::fetchPage).count().blockingGet());
+        // A full page might not be the last, so it takes an empty page to end the stream
+        assertEquals(Arrays.asList(0, 5, 10, 15, 20, 25), fetchedPages);
+    }
+
+    @Test
+    public void testFetchesOnDemand() {
+        TestSubscriber<Integer> subscriber = PagedFlowable.create(10, false, this::fetchPage).test(10);
+        subscriber.awaitCount(10);
+        assertEquals(Collections.singletonList(0), fetchedPages);
+
+        subscriber.requestMore(1);
+        subscriber.awaitCount(11);
+        assertEquals(Arrays.asList(0, 10), fetchedPages);
+        subscriber.dispose();
+    }
+
+    @Test
+    public void testPrefetch() {
+        TestSubscriber<Integer> subscriber = PagedFlowable.create(10, true, this::fetchPage).test(1);
+        subscriber.awaitCount(1);
+        assertEquals(Arrays.asList(0, 10), fetchedPages);
+        subscriber.dispose();
+    }
+
+    @Test
+    public void testError() {
+        IOException error = new IOException("Node unavailable");
+        PagedFlowable.<Integer>create(10, false, (firstIndex, lastIndex) -> firstIndex == 0 ? fetchPage(firstIndex, lastIndex) : Single.error(error))
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertValueCount(10)
+                .assertError(error);
+    }
+
+    @Test
+    public void testDisposeWhilePageInFlight() throws InterruptedException {
+        List<Throwable> undeliverable = Collections.synchronizedList(new ArrayList<>());
+        RxJavaPlugins.setErrorHandler(undeliverable::add);
+        try {
+            CountDownLatch fetching = new CountDownLatch(1);
+            CountDownLatch cancelled = new CountDownLatch(1);
+            Disposable subscription = PagedFlowable.<Integer>create(10, false, (firstIndex, lastIndex) -> Single.<Integer[]>never()
+                    .doOnSubscribe(disposable -> fetching.countDown())
+                    .doOnDispose(cancelled::countDown))
+                    .subscribe(item -> {}, error -> {});
+            assertTrue(fetching.await(5, TimeUnit.SECONDS));
+            subscription.dispose();
+            // The page request is cancelled, and the interruption of the waiting thread does not end up as an error
+            assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(Collections.emptyList(), undeliverable);
+        } finally {
+            RxJavaPlugins.reset();
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package uzc.kit.test;
 
 import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.ec.SigningKey;
+import uzc.kit.entity.SignedMessage;
 import uzc.kit.entity.UzcEncryptedMessage;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
 @RunWith(JUnit4.class)
 public class UzcCryptoTest { // TODO more unit tests
@@ -37,4 +51,94 @@ public class UzcCryptoTest { // TODO more unit tests
         byte[] signature = UzcCrypto.getInstance().sign(myMessage, myPrivateKey);
         Assert.assertTrue(UzcCrypto.getInstance().verify(signature, myMessage, myPublic, true));
     }
+
+    @Test
+    public void TestSignWithSigningKey() {
+        byte[] myMessage = "A Message".getBytes(StandardCharsets.UTF_8);
+        byte[] myPrivateKey = UzcCrypto.getInstance().getPrivateKey("example1");
+        SigningKey signingKey = UzcCrypto.getInstance().getSigningKey("example1");
+        Assert.assertArrayEquals(myPrivateKey, signingKey.getPrivateKey());
+        Assert.assertArrayEquals(UzcCrypto.getInstance().getPublicKey(myPrivateKey), signingKey.getPublicKey());
+        Assert.assertArrayEquals(UzcCrypto.getInstance().sign(myMessage, myPrivateKey), UzcCrypto.getInstance().sign(myMessage, signingKey));
+    }
+
+    @Test
+    public void TestVerifyBatch() {
+        SigningKey signingKey = UzcCrypto.getInstance().getSigningKey("example1");
+        List<SignedMessage> signedMessages = new ArrayList<>();
+        BitSet expected = new BitSet();
+        for (int i = 0; i < 50; i++) {
+            byte[] message = ("Message " + i).getBytes(StandardCharsets.UTF_8);
+            byte[] signature = UzcCrypto.getInstance().sign(message, signingKey);
+            if (i % 7 == 0) {
+                signature[i % 32] ^= 1; // Corrupt every 7th signature
+            } else {
+                expected.set(i);
+            }
+            signedMessages.add(new SignedMessage(message, signature, signingKey.getPublicKey()));
+        }
+        // Malformed entries are invalid without failing the rest of the batch
+        byte[] message = "Malformed".getBytes(StandardCharsets.UTF_8);
+        byte[] signature = UzcCrypto.getInstance().sign(message, signingKey);
+        signedMessages.add(new SignedMessage(message, Arrays.copyOf(signature, 32), signingKey.getPublicKey()));
+        signedMessages.add(new SignedMessage(message, signature, Arrays.copyOf(signingKey.getPublicKey(), 31)));
+        signedMessages.add(new SignedMessage(message, signature, signingKey.getPublicKey()));
+        expected.set(signedMessages.size() - 1);
+        Assert.assertEquals(expected, UzcCrypto.getInstance().verifyBatch(signedMessages));
+        Assert.assertEquals(expected, UzcCrypto.getInstance().verifyBatch(signedMessages, false));
+    }
+
+    @Test
+    public void TestEncryptMessageStream() throws IOException {
+        byte[] message = new byte[100000];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte) (i % 251);
+        }
+        byte[] myPublicKey = UzcCrypto.getInstance().getPublicKey("example1");
+        byte[] theirPublicKey = UzcCrypto.getInstance().getPublicKey("example2");
+
+        ByteArrayOutputStream encryptedData = new ByteArrayOutputStream();
+        byte[] nonce = UzcCrypto.getInstance().encryptMessage(new ByteArrayInputStream(message), encryptedData, "example1", theirPublicKey);
+        UzcEncryptedMessage uzcEncryptedMessage = new UzcEncryptedMessage(encryptedData.toByteArray(), nonce, false);
+        Assert.assertArrayEquals(message, UzcCrypto.getInstance().decryptMessage(uzcEncryptedMessage, "example2", myPublicKey));
+
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        UzcCrypto.getInstance().decryptMessage(new ByteArrayInputStream(uzcEncryptedMessage.getData()), nonce, decrypted, "example2", myPublicKey);
+        Assert.assertArrayEquals(message, decrypted.toByteArray());
+    }
+
+    @Test
+    public void TestAesJdkAndBouncyCastle() throws GeneralSecurityException {
+        byte[] plaintext = "A message that is longer than one block".getBytes(StandardCharsets.UTF_8);
+        byte[] key = UzcCrypto.getInstance().getSharedSecret("example1", UzcCrypto.getInstance().getPublicKey("example2"));
+        byte[] nonce = new byte[32];
+        nonce[0] = 1;
+        try {
+            for (boolean useJdkAes : new boolean[]{false, true}) {
+                Assert.assertEquals(useJdkAes, UzcCrypto.getInstance().setUseJdkAes(useJdkAes));
+                // Both paths must give exactly the bytes of the reference cipher for the IV that they chose
+                byte[] encrypted = UzcCrypto.getInstance().aesEncrypt(plaintext, key.clone(), nonce);
+                Assert.assertArrayEquals(referenceAesEncrypt(plaintext, key, nonce, Arrays.copyOf(encrypted, 16)), encrypted);
+                Assert.assertArrayEquals(plaintext, UzcCrypto.getInstance().aesDecrypt(encrypted, key.clone(), nonce));
+
+                UzcEncryptedMessage message = UzcCrypto.getInstance().encryptBytesMessage(plaintext, "example1", UzcCrypto.getInstance().getPublicKey("example2"));
+                Assert.assertArrayEquals(plaintext, UzcCrypto.getInstance().decryptMessage(message, "example2", UzcCrypto.getInstance().getPublicKey("example1")));
+            }
+        } finally {
+            UzcCrypto.getInstance().setUseJdkAes(false);
+        }
+    }
+
+    private static byte[] referenceAesEncrypt(byte[] plaintext, byte[] key, byte[] nonce, byte[] iv) throws GeneralSecurityException {
+        byte[] nonceKey = key.clone();
+        for (int i = 0; i < 32; i++) {
+            nonceKey[i] ^= nonce[i];
+        }
+        Cipher aes = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        aes.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(MessageDigest.getInstance("SHA-256").digest(nonceKey), "AES"), new IvParameterSpec(iv));
+        byte[] ciphertext = aes.doFinal(plaintext);
+        byte[] result = Arrays.copyOf(iv, iv.length + ciphertext.length);
+        System.arraycopy(ciphertext, 0, result, iv.length, ciphertext.length);
+        return result;
+    }
 }
@@ -14,8 +14,10 @@ import org.junit.Test;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -80,6 +82,18 @@ public abstract class UzcNodeServiceTest {
         Transaction[] accountTransactionsResponse = RxTestUtils.testSingle(uzcNodeService.getAccountTransactions(TestVariables.EXAMPLE_ACCOUNT_ID));
     }
 
+    @Test
+    public void testUzcServiceGetAccountTransactionsPaged() {
+        Transaction[] accountTransactionsResponse = RxTestUtils.testSingle(uzcNodeService.getAccountTransactions(TestVariables.EXAMPLE_ACCOUNT_ID, 0, 9));
+        assertTrue(accountTransactionsResponse.length <= 10);
+        UzcID[] accountTransactionIDsResponse = RxTestUtils.testSingle(uzcNodeService.getAccountTransactionIDs(TestVariables.EXAMPLE_ACCOUNT_ID, 0, 9));
+        assertEquals(accountTransactionsResponse.length, accountTransactionIDsResponse.length);
+
+        List<Transaction> pagedTransactions = RxTestUtils.testSingle(uzcNodeService.getAccountTransactionsPaged(TestVariables.EXAMPLE_ACCOUNT_ID, 10, true).take(25).toList());
+        List<UzcID> pagedTransactionIDs = RxTestUtils.testSingle(uzcNodeService.getAccountTransactionIDsPaged(TestVariables.EXAMPLE_ACCOUNT_ID, 10, false).take(25).toList());
+        assertEquals(pagedTransactionIDs, pagedTransactions.stream().map(Transaction::getId).collect(Collectors.toList()));
+    }
+
     @Test
     public void testUzcServiceGetAccountWithRewardRecipient() {
         UzcAddress[] accountsWithRewardRecipientResponse = RxTestUtils.testSingle(uzcNodeService.getAccountsWithRewardRecipient(TestVariables.EXAMPLE_POOL_ACCOUNT_ID));
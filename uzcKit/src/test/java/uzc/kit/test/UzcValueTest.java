@@ -10,6 +10,8 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(JUnit4.class)
 public class UzcValueTest {
@@ -152,4 +154,44 @@ public class UzcValueTest {
         assertEquals(UzcValue.fromUzc(2), UzcValue.max(UzcValue.fromUzc(1), UzcValue.fromUzc(2)));
         assertEquals(UzcValue.fromUzc(-1), UzcValue.max(UzcValue.fromUzc(-1), UzcValue.fromUzc(-2)));
     }
+
+    @Test
+    public void testLongValue() {
+        assertEquals(123456789L, UzcValue.fromPlanck(123456789).longValue());
+        assertEquals(-123456789L, UzcValue.fromUzc(-1.23456789).longValue());
+        assertEquals(Long.MAX_VALUE, UzcValue.fromPlanck(Long.MAX_VALUE).longValueExact());
+        assertTrue(UzcValue.fromPlanck(Long.MIN_VALUE).fitsInLong());
+    }
+
+    @Test
+    public void testOverflow() {
+        UzcValue max = UzcValue.fromPlanck(Long.MAX_VALUE);
+        UzcValue min = UzcValue.fromPlanck(Long.MIN_VALUE);
+        BigInteger bigMax = BigInteger.valueOf(Long.MAX_VALUE);
+        BigInteger bigMin = BigInteger.valueOf(Long.MIN_VALUE);
+
+        UzcValue sum = max.add(UzcValue.fromPlanck(1));
+        assertFalse(sum.fitsInLong());
+        assertEquals(bigMax.add(BigInteger.ONE), sum.toPlanck());
+        assertEquals(bigMin.subtract(BigInteger.ONE), min.subtract(UzcValue.fromPlanck(1)).toPlanck());
+        assertEquals(bigMax.multiply(BigInteger.valueOf(3)), max.multiply(3).toPlanck());
+        assertEquals(bigMin.negate(), min.divide(-1).toPlanck());
+        assertEquals(bigMin.negate(), min.abs().toPlanck());
+        assertEquals(new BigInteger("100000000000000000000"), UzcValue.fromPlanck("100000000000000000000").toPlanck());
+
+        // Values that come back into range use the long representation again
+        assertTrue(sum.subtract(UzcValue.fromPlanck(1)).fitsInLong());
+        assertEquals(max, sum.subtract(UzcValue.fromPlanck(1)));
+        assertEquals(max.hashCode(), sum.subtract(UzcValue.fromPlanck(1)).hashCode());
+        assertEquals(max, UzcValue.fromPlanck(bigMax));
+
+        assertTrue(sum.compareTo(max) > 0);
+        assertTrue(max.compareTo(sum) < 0);
+        assertEquals(sum, UzcValue.max(max, sum));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testLongValueExactOverflow() {
+        UzcValue.fromPlanck(Long.MAX_VALUE).add(UzcValue.fromPlanck(1)).longValueExact();
+    }
 }
@@ -0,0 +1,57 @@
+package uzc.kit.test.crypto.ec;
+
+import uzc.kit.crypto.UzcCrypto;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Key generation uses a fixed-base table, so these check it against known answers and against the Montgomery ladder
+ * used for key agreement.
+ */
+@RunWith(JUnit4.class)
+public class Curve25519Test {
+    private static final byte[] BASE_POINT = new byte[32];
+
+    static {
+        BASE_POINT[0] = 9;
+    }
+
+    @Test
+    public void testKeygenRfc7748() {
+        // RFC 7748 section 6.1
+        assertArrayEquals(Hex.decode("8520f0098930a754748b7ddcb43ef75a0dbf3a0d26381af4eba4a98eaa9b4e6a"), UzcCrypto.getInstance().getPublicKey(Hex.decode("77076d0a7318a57d3c16c17251b26645df4c2f87ebc0992ab177fba51db92c2a")));
+        assertArrayEquals(Hex.decode("de9edb7d7b7dc1b4d35b61c2ece435373f8343c85b78674dadfc7e146f882b4f"), UzcCrypto.getInstance().getPublicKey(Hex.decode("5dab087e624a8a4b79e17f8b83800ee66f3bb1292618b6fd1c2f8b27ff88e0eb")));
+    }
+
+    @Test
+    public void testKeygenKnownPassphrase() {
+        // Calculated with the Montgomery ladder before key generation used the fixed-base table
+        assertArrayEquals(Hex.decode("eb25abeee39e46697b1d0bf24706dfd58dd8829b3c5f65d114b6b66a86e89120"), UzcCrypto.getInstance().getPublicKey("example1"));
+        // The signature depends on the signing key that key generation also outputs
+        assertArrayEquals(Hex.decode("d47e03695cc49a18a3779d288be7db400cafd554a4ad2b6c18e34e67a8f7e6029c7218ee1a0d24b6df6642e36d7bc730a5a454e41cb88049f8ac7355f3964572"), UzcCrypto.getInstance().sign("Test message", "example1"));
+    }
+
+    @Test
+    public void testKeygenMatchesLadder() {
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            byte[] privateKey = new byte[32];
+            random.nextBytes(privateKey);
+            privateKey[31] &= 0x7F;
+            privateKey[31] |= 0x40;
+            privateKey[0] &= 0xF8;
+            byte[] publicKey = UzcCrypto.getInstance().getPublicKey(privateKey.clone());
+            assertArrayEquals(UzcCrypto.getInstance().getSharedSecret(privateKey, BASE_POINT), publicKey);
+            byte[] message = Integer.toString(i).getBytes(StandardCharsets.UTF_8);
+            assertTrue(UzcCrypto.getInstance().verify(UzcCrypto.getInstance().sign(message, privateKey), message, publicKey, true));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package uzc.kit.test.crypto.ec;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.ec.SharedSecretCache;
+import uzc.kit.crypto.ec.SigningKey;
+import uzc.kit.entity.UzcEncryptedMessage;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class SharedSecretCacheTest {
+    private static final byte[] publicKey1 = UzcCrypto.getInstance().getPublicKey("example1");
+    private static final byte[] publicKey2 = UzcCrypto.getInstance().getPublicKey("example2");
+    private static final byte[] publicKey3 = UzcCrypto.getInstance().getPublicKey("example3");
+
+    @After
+    public void tearDown() {
+        UzcCrypto.getInstance().setSharedSecretCache(null);
+    }
+
+    @Test
+    public void testSharedSecretCacheGet() {
+        SharedSecretCache cache = new SharedSecretCache(1);
+        byte[] secret = cache.get(publicKey1, publicKey2, () -> new byte[]{1, 2, 3});
+        Arrays.fill(secret, (byte) 0); // Must not affect the cached secret
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get(publicKey1, publicKey2, () -> new byte[]{4, 5, 6}));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.get(publicKey1, publicKey3, () -> new byte[]{7, 8, 9}); // Evicts (1, 2)
+        assertEquals(1, cache.size());
+        assertArrayEquals(new byte[]{4, 5, 6}, cache.get(publicKey1, publicKey2, () -> new byte[]{4, 5, 6}));
+        assertEquals(3, cache.getMissCount());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSharedSecretCacheEncryptedMessages() {
+        UzcCrypto uzcCrypto = UzcCrypto.getInstance();
+        byte[] expected = uzcCrypto.getSharedSecret("example1", publicKey2);
+        SharedSecretCache cache = new SharedSecretCache(16);
+        uzcCrypto.setSharedSecretCache(cache);
+
+        SigningKey mySigningKey = uzcCrypto.getSigningKey("example1");
+        SigningKey theirSigningKey = uzcCrypto.getSigningKey("example2");
+        assertArrayEquals(expected, uzcCrypto.getSharedSecret("example1", publicKey2));
+        assertArrayEquals(expected, uzcCrypto.getSharedSecret(mySigningKey, publicKey2));
+
+        UzcEncryptedMessage message = uzcCrypto.encryptTextMessage("Test message", mySigningKey, publicKey2);
+        assertEquals("Test message", new String(uzcCrypto.decryptMessage(message, theirSigningKey, publicKey1)));
+        assertEquals("Test message", new String(uzcCrypto.decryptMessage(message, "example1", publicKey2)));
+        assertEquals(2, cache.getMissCount()); // One for each direction
+        assertEquals(3, cache.getHitCount());
+    }
+}
@@ -0,0 +1,83 @@
+package uzc.kit.test.crypto.hash;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.hash.shabal.Shabal256;
+import uzc.kit.crypto.hash.shabal.Shabal256Lanes;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class Shabal256Test {
+    private static final byte[] exampleInput = UzcCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0614755c9456e3137");
+    private static final byte[] exampleDigest = UzcCrypto.getInstance().parseHexString("3d3941a3d148627ea9f1a00f41674f652e1283db37b1317c9bb340efa99f1ac0");
+
+    @Test
+    public void testShabal256Digest() {
+        Shabal256 shabal256 = new Shabal256();
+        shabal256.update(exampleInput);
+        assertArrayEquals(exampleDigest, shabal256.digest());
+    }
+
+    @Test
+    public void testShabal256DigestIntoArray() {
+        Shabal256 shabal256 = new Shabal256();
+        byte[] out = new byte[40];
+        shabal256.update(exampleInput);
+        shabal256.digestInto(out, 5);
+        assertArrayEquals(exampleDigest, Arrays.copyOfRange(out, 5, 37));
+        // Digest must have been reset
+        shabal256.update(exampleInput);
+        assertArrayEquals(exampleDigest, shabal256.digest());
+    }
+
+    @Test
+    public void testShabal256DigestIntoBuffer() {
+        Shabal256 shabal256 = new Shabal256();
+        ByteBuffer out = ByteBuffer.allocateDirect(40);
+        shabal256.update(exampleInput);
+        shabal256.digestInto(out, 3);
+        assertEquals(0, out.position());
+        byte[] result = new byte[32];
+        out.position(3);
+        out.get(result);
+        assertArrayEquals(exampleDigest, result);
+    }
+
+    @Test
+    public void testShabal256DigestToLong() {
+        Shabal256 shabal256 = new Shabal256();
+        shabal256.update(exampleInput);
+        assertEquals(UzcCrypto.getInstance().bytesToLong(exampleDigest), shabal256.digestToLong());
+    }
+
+    @Test
+    public void testShabal256LanesMatchesShabal256() {
+        Random random = new Random(0);
+        for (int lanes : new int[] {1, 4, 8}) {
+            Shabal256Lanes shabal256Lanes = new Shabal256Lanes(lanes);
+            byte[][] inputs = new byte[lanes][1000];
+            byte[][] outputs = new byte[lanes][32];
+            for (byte[] input : inputs) {
+                random.nextBytes(input);
+            }
+            // Uneven updates to exercise the partial block buffer
+            shabal256Lanes.update(inputs, 0, 13);
+            shabal256Lanes.update(inputs, 13, 200);
+            shabal256Lanes.update(inputs, 213, 787);
+            shabal256Lanes.digestInto(outputs, 0);
+            for (int l = 0; l < lanes; l++) {
+                Shabal256 shabal256 = new Shabal256();
+                shabal256.update(inputs[l]);
+                assertArrayEquals(shabal256.digest(), outputs[l]);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package uzc.kit.test.crypto.plot;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.plot.PlotCalculator;
+import uzc.kit.crypto.plot.impl.PlotCalculatorImpl;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.ForkJoinPool;
+
+@RunWith(JUnit4.class)
+public class PlotCalculatorImplScalarTest extends PlotCalculatorTest {
+    @Override
+    protected PlotCalculator getPlotCalculator() {
+        return new PlotCalculatorImpl(() -> UzcCrypto.getInstance().getShabal256(), ForkJoinPool.commonPool(), 1);
+    }
+}
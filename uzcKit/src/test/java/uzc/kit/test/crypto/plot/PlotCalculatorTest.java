@@ -1,6 +1,10 @@
 package uzc.kit.test.crypto.plot;
 
 import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.hash.shabal.Shabal256;
+import uzc.kit.crypto.plot.DeadlineBatch;
+import uzc.kit.crypto.plot.Deadlines;
+import uzc.kit.crypto.plot.MiningRound;
 import uzc.kit.crypto.plot.PlotCalculator;
 import uzc.kit.test.TestVariables;
 import org.junit.Before;
@@ -9,6 +13,10 @@ import org.junit.Test;
 import java.math.BigInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public abstract class PlotCalculatorTest {
     private static final byte[] exampleGenSig = UzcCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0");
@@ -33,6 +41,24 @@ public abstract class PlotCalculatorTest {
     @Test
     public void testPlotCalculatorCalculateScoop() {
         assertEquals(3696, plotCalculator.calculateScoop(exampleGenSig, exampleHeight));
+        for (int height = 0; height < 1000; height++) {
+            Shabal256 shabal256 = new Shabal256();
+            shabal256.update(exampleGenSig);
+            shabal256.update(UzcCrypto.getInstance().longToBytes(height));
+            assertEquals(new BigInteger(1, shabal256.digest()).mod(BigInteger.valueOf(4096)).intValue(), plotCalculator.calculateScoop(exampleGenSig, height));
+        }
+    }
+
+    @Test
+    public void testPlotCalculatorGetMiningRound() {
+        MiningRound round = plotCalculator.getMiningRound(exampleGenSig, exampleHeight, exampleBaseTarget);
+        assertEquals(3696, round.getScoop());
+        assertSame(round, plotCalculator.getMiningRound(exampleGenSig.clone(), exampleHeight, exampleBaseTarget));
+        MiningRound nextRound = plotCalculator.getMiningRound(exampleGenSig, exampleHeight + 1, exampleBaseTarget);
+        assertNotSame(round, nextRound);
+        assertSame(round, plotCalculator.getMiningRound(exampleGenSig, exampleHeight, exampleBaseTarget));
+        assertEquals(BigInteger.valueOf(190678252334964L), plotCalculator.calculateDeadline(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), 0, round, 2));
+        assertEquals(190678252334964L, plotCalculator.calculateDeadlines(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), 0, 1, round, 2).getDeadlines()[0]);
     }
 
     @Test
@@ -50,4 +76,40 @@ public abstract class PlotCalculatorTest {
         // Scoop data is the generation signature repeated - not intended to be actual scoop data for the purpose of this test. It is twice as long as the gensig as this is the expected scoop size.
         assertEquals(new BigInteger("16142911724569013009"), plotCalculator.calculateHit(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), 0, exampleGenSig, UzcCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d06ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0")));
     }
+
+    @Test
+    public void testPlotCalculatorCalculateHitLong() {
+        long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+        assertEquals("11245277265433361116", Deadlines.toString(plotCalculator.calculateHitLong(accountId, 0, exampleGenSig, 0, 1)));
+        assertEquals("18324085073558450598", Deadlines.toString(plotCalculator.calculateHitLong(accountId, 0, exampleGenSig, 0, 2)));
+        assertEquals(new BigInteger("16142911724569013009"), Deadlines.toBigInteger(plotCalculator.calculateHitLong(accountId, 0, exampleGenSig, UzcCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d06ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0"))));
+        MiningRound round = plotCalculator.getMiningRound(exampleGenSig, exampleHeight, exampleBaseTarget);
+        assertEquals(76595641219705L, plotCalculator.calculateDeadlineLong(accountId, 0, exampleGenSig, round.getScoop(), exampleBaseTarget, 1));
+        assertEquals(190678252334964L, plotCalculator.calculateDeadlineLong(accountId, 0, round, 2));
+        assertEquals(plotCalculator.calculateHit(accountId, 0, round, 2), Deadlines.toBigInteger(plotCalculator.calculateHitLong(accountId, 0, round, 2)));
+    }
+
+    @Test
+    public void testDeadlinesCompare() {
+        long big = new BigInteger("18324085073558450598").longValue(); // Negative as a signed long
+        assertTrue(Deadlines.isBetter(1, big));
+        assertFalse(Deadlines.isBetter(big, 1));
+        assertTrue(Deadlines.isBetter(big, -1));
+        assertEquals(1, Deadlines.best(big, 1));
+        assertTrue(Deadlines.compare(big, 1) > 0);
+        assertTrue(Deadlines.isWithin(1, 1));
+    }
+
+    @Test
+    public void testPlotCalculatorCalculateDeadlines() {
+        int scoop = plotCalculator.calculateScoop(exampleGenSig, exampleHeight);
+        DeadlineBatch batch = plotCalculator.calculateDeadlines(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), 0, 10, exampleGenSig, scoop, exampleBaseTarget, 2);
+        assertEquals(10, batch.getCount());
+        assertEquals(190678252334964L, batch.getDeadlines()[0]);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(plotCalculator.calculateDeadline(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), i, exampleGenSig, scoop, exampleBaseTarget, 2).longValue(), batch.getDeadlines()[i]);
+            assertTrue(Long.compareUnsigned(batch.getBestDeadline(), batch.getDeadlines()[i]) <= 0);
+        }
+        assertEquals(batch.getBestDeadline(), batch.getDeadlines()[(int) batch.getBestNonce()]);
+    }
 }
@@ -0,0 +1,190 @@
+package uzc.kit.test.crypto.plot;
+
+import uzc.kit.crypto.plot.PlotConverter;
+import uzc.kit.crypto.plot.PlotFile;
+import uzc.kit.crypto.plot.impl.PlotterImpl;
+import uzc.kit.test.TestVariables;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(JUnit4.class)
+public class PlotConverterTest {
+    private static final long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+    private static final long startNonce = 1000;
+    private static final int nonces = 3;
+    private static final int windowSize = 2 * PlotFile.SCOOP_SIZE;
+
+    private Path directory;
+    private byte[] poc2Data;
+    private byte[] poc1Data;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("uzckit");
+        Path poc2Path = new PlotterImpl().plot(directory, accountId, startNonce, nonces);
+        poc2Data = Files.readAllBytes(poc2Path);
+        Files.delete(poc2Path);
+        // The PoC2 shuffle is its own inverse, so undoing it gives the optimized PoC1 data
+        poc1Data = poc2Data.clone();
+        for (int scoop = 0; scoop < PlotFile.SCOOPS_PER_NONCE / 2; scoop++) {
+            for (int nonce = 0; nonce < nonces; nonce++) {
+                int a = (scoop * nonces + nonce) * PlotFile.SCOOP_SIZE + 32;
+                int b = ((PlotFile.SCOOPS_PER_NONCE - 1 - scoop) * nonces + nonce) * PlotFile.SCOOP_SIZE + 32;
+                System.arraycopy(poc2Data, b, poc1Data, a, 32);
+                System.arraycopy(poc2Data, a, poc1Data, b, 32);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testPlotConverterConvertInPlace() throws IOException {
+        Path poc1Path = directory.resolve(accountId + "_" + startNonce + "_" + nonces + "_" + nonces);
+        Files.write(poc1Path, poc1Data);
+        Path poc2Path = PlotConverter.convertInPlace(poc1Path, ForkJoinPool.commonPool(), windowSize);
+        assertEquals(accountId + "_" + startNonce + "_" + nonces, poc2Path.getFileName().toString());
+        assertFalse(Files.exists(poc1Path));
+        assertArrayEquals(poc2Data, Files.readAllBytes(poc2Path));
+    }
+
+    /**
+     * Set up the files left behind by a conversion that was interrupted while swapping the first window
+     * @param swapped The number of the first window's two halves that had already been swapped in the plot file
+     * @param journalComplete Whether the journal of the first window had been completely written
+     */
+    private Path interruptedConversion(int swapped, boolean journalComplete) throws IOException {
+        return interruptedConversion(1, windowSize, swapped, journalComplete, true);
+    }
+
+    /**
+     * Set up the files left behind by a conversion that was interrupted while swapping its first step
+     * @param units The number of windows in the first step
+     * @param window The window size
+     * @param swapped The number of the step's window halves that had already been swapped in the plot file
+     * @param journalComplete Whether the journal of the step had been completely written
+     * @param progress Whether the progress file had been written
+     */
+    private Path interruptedConversion(int units, int window, int swapped, boolean journalComplete, boolean progress) throws IOException {
+        Path poc1Path = directory.resolve(accountId + "_" + startNonce + "_" + nonces + "_" + nonces);
+        int regionSize = nonces * PlotFile.SCOOP_SIZE;
+        int windowsPerRegion = (regionSize + window - 1) / window;
+        ByteBuffer journal = ByteBuffer.allocate(8 + 4 + 4 + 2 * units * window + 8);
+        journal.putLong(0).putInt(units).putInt(window);
+        byte[] plot = poc1Data.clone();
+        for (int unit = 0; unit < units; unit++) {
+            int position = (unit % windowsPerRegion) * window;
+            int length = Math.min(window, regionSize - position);
+            int a = (unit / windowsPerRegion) * regionSize + position;
+            int b = (PlotFile.SCOOPS_PER_NONCE - 1 - unit / windowsPerRegion) * regionSize + position;
+            journal.put(poc1Data, a, length).put(poc1Data, b, length);
+            if (swapped > 2 * unit) System.arraycopy(poc2Data, a, plot, a, length);
+            if (swapped > 2 * unit + 1) System.arraycopy(poc2Data, b, plot, b, length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(journal.array(), 0, journal.position());
+        journal.putLong(journalComplete ? crc.getValue() : crc.getValue() + 1);
+        Files.write(directory.resolve(poc1Path.getFileName() + ".journal"), Arrays.copyOf(journal.array(), journal.position()));
+        if (progress) {
+            Files.write(directory.resolve(poc1Path.getFileName() + ".progress"), ("0 " + window).getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(poc1Path, plot);
+        return poc1Path;
+    }
+
+    @Test
+    public void testPlotConverterConvertInPlaceResume() throws IOException {
+        for (int swapped = 0; swapped <= 2; swapped++) {
+            Path poc2Path = PlotConverter.convertInPlace(interruptedConversion(swapped, true), ForkJoinPool.commonPool(), windowSize);
+            assertArrayEquals(poc2Data, Files.readAllBytes(poc2Path));
+            Files.delete(poc2Path);
+        }
+    }
+
+    @Test
+    public void testPlotConverterConvertInPlaceResumeIncompleteJournal() throws IOException {
+        // The plot file is not changed until the journal is complete
+        Path poc2Path = PlotConverter.convertInPlace(interruptedConversion(0, false), ForkJoinPool.commonPool(), windowSize);
+        assertArrayEquals(poc2Data, Files.readAllBytes(poc2Path));
+        assertFalse(Files.exists(directory.resolve(accountId + "_" + startNonce + "_" + nonces + "_" + nonces + ".journal")));
+    }
+
+    @Test
+    public void testPlotConverterConvertInPlaceResumeOtherParallelism() throws IOException {
+        // Interrupted with a step of 3 windows, resumed with a pool that takes 1 window per step
+        ForkJoinPool forkJoinPool = new ForkJoinPool(1);
+        try {
+            for (int swapped = 0; swapped <= 6; swapped++) {
+                Path poc2Path = PlotConverter.convertInPlace(interruptedConversion(3, windowSize, swapped, true, true), forkJoinPool, windowSize);
+                assertArrayEquals(poc2Data, Files.readAllBytes(poc2Path));
+                Files.delete(poc2Path);
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPlotConverterConvertInPlaceResumeOtherWindowSize() throws IOException {
+        // Interrupted during the first step, before its window size was recorded, and resumed with another window size
+        for (int swapped = 0; swapped <= 2; swapped++) {
+            Path poc2Path = PlotConverter.convertInPlace(interruptedConversion(1, windowSize, swapped, true, false), ForkJoinPool.commonPool(), 3 * windowSize);
+            assertArrayEquals(poc2Data, Files.readAllBytes(poc2Path));
+            Files.delete(poc2Path);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testPlotConverterConvertInPlaceJournalMismatch() throws IOException {
+        Path poc1Path = interruptedConversion(1, windowSize, 1, true, true);
+        // The progress file records another window size than the journal
+        Files.write(directory.resolve(poc1Path.getFileName() + ".progress"), ("0 " + 3 * windowSize).getBytes(StandardCharsets.UTF_8));
+        PlotConverter.convertInPlace(poc1Path, ForkJoinPool.commonPool(), windowSize);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPlotConverterConvertInPlaceNotOptimized() throws IOException {
+        PlotConverter.convertInPlace(directory.resolve(accountId + "_" + startNonce + "_" + nonces + "_1"));
+    }
+
+    @Test
+    public void testPlotConverterConvertStaggered() throws IOException {
+        // Stagger 1: every nonce is stored whole, one after the other
+        byte[] staggeredData = new byte[poc1Data.length];
+        for (int scoop = 0; scoop < PlotFile.SCOOPS_PER_NONCE; scoop++) {
+            for (int nonce = 0; nonce < nonces; nonce++) {
+                System.arraycopy(poc1Data, (scoop * nonces + nonce) * PlotFile.SCOOP_SIZE, staggeredData, nonce * PlotFile.NONCE_SIZE + scoop * PlotFile.SCOOP_SIZE, PlotFile.SCOOP_SIZE);
+            }
+        }
+        Path poc1Path = directory.resolve(accountId + "_" + startNonce + "_" + nonces + "_1");
+        Files.write(poc1Path, staggeredData);
+        Path poc2Path = PlotConverter.convert(poc1Path, directory, ForkJoinPool.commonPool(), windowSize);
+        assertArrayEquals(staggeredData, Files.readAllBytes(poc1Path));
+        assertArrayEquals(poc2Data, Files.readAllBytes(poc2Path));
+    }
+}
@@ -0,0 +1,77 @@
+package uzc.kit.test.crypto.plot;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.plot.PlotFile;
+import uzc.kit.test.TestVariables;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class PlotFileTest {
+    private static final byte[] exampleGenSig = UzcCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0");
+    private static final long exampleBaseTarget = 70312;
+    private static final long startNonce = 1000;
+    private static final int nonces = 3;
+
+    private Path directory;
+    private Path plotPath;
+    private byte[] plotData;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("uzckit");
+        plotPath = directory.resolve(Long.toUnsignedString(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId()) + "_" + startNonce + "_" + nonces);
+        // Random data is fine as the reader does not check that the nonces are valid
+        plotData = new byte[nonces * PlotFile.NONCE_SIZE];
+        new Random(0).nextBytes(plotData);
+        Files.write(plotPath, plotData);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(plotPath);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testPlotFileOpen() throws IOException {
+        try (PlotFile plotFile = PlotFile.open(plotPath)) {
+            assertEquals(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), plotFile.getAccountId());
+            assertEquals(startNonce, plotFile.getStartNonce());
+            assertEquals(nonces, plotFile.getNonces());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPlotFileOpenInvalidName() throws IOException {
+        PlotFile.open(directory.resolve("1_2_3_4"));
+    }
+
+    @Test
+    public void testPlotFileScan() throws IOException {
+        int scoop = 1234;
+        long[] deadlines = new long[nonces];
+        try (PlotFile plotFile = PlotFile.open(plotPath)) {
+            // Read size of one scoop to force one window per nonce
+            plotFile.scan(scoop, exampleGenSig, exampleBaseTarget, PlotFile.SCOOP_SIZE, (nonce, hit, deadline) -> deadlines[(int) (nonce - startNonce)] = deadline);
+        }
+        for (int i = 0; i < nonces; i++) {
+            int offset = (scoop * nonces + i) * PlotFile.SCOOP_SIZE;
+            byte[] scoopData = Arrays.copyOfRange(plotData, offset, offset + PlotFile.SCOOP_SIZE);
+            long expected = UzcCrypto.getInstance().calculateHit(TestVariables.EXAMPLE_ACCOUNT_ID, startNonce + i, exampleGenSig, scoopData).divide(BigInteger.valueOf(exampleBaseTarget)).longValue();
+            assertEquals(expected, deadlines[i]);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package uzc.kit.test.crypto.plot;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.plot.PlotFile;
+import uzc.kit.crypto.plot.Plotter;
+import uzc.kit.crypto.plot.impl.PlotterImpl;
+import uzc.kit.test.TestVariables;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class PlotterTest {
+    private static final byte[] exampleGenSig = UzcCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0");
+    private static final long exampleBaseTarget = 70312;
+    private static final long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+    private static final long startNonce = 1000;
+    private static final int nonces = 5;
+
+    private Path directory;
+    private Plotter plotter;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("uzckit");
+        // Batches of 2 with 2 lanes, so the last batch is smaller and has a scalar remainder
+        plotter = new PlotterImpl(ForkJoinPool.commonPool(), 2, 2);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testPlotterPlot() throws IOException {
+        Path path = plotter.plot(directory, accountId, startNonce, nonces);
+        assertFalse(Files.exists(directory.resolve(path.getFileName() + ".progress")));
+        checkPlot(path);
+    }
+
+    @Test
+    public void testPlotterPlotResume() throws IOException {
+        try {
+            plotter.plot(directory, accountId, startNonce, nonces, written -> {
+                throw new IllegalStateException("Stopped after " + written + " nonces");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertTrue(Files.exists(directory.resolve(accountId + "_" + startNonce + "_" + nonces + ".progress")));
+        long[] progress = new long[1];
+        Path path = plotter.plot(directory, accountId, startNonce, nonces, written -> progress[0] = written);
+        assertEquals(nonces, progress[0]);
+        checkPlot(path);
+    }
+
+    private void checkPlot(Path path) throws IOException {
+        for (int scoop : new int[]{0, 1234, 4095}) {
+            long[] deadlines = new long[nonces];
+            try (PlotFile plotFile = PlotFile.open(path)) {
+                assertEquals(nonces, plotFile.getNonces());
+                plotFile.scan(scoop, exampleGenSig, exampleBaseTarget, (nonce, hit, deadline) -> deadlines[(int) (nonce - startNonce)] = deadline);
+            }
+            for (int i = 0; i < nonces; i++) {
+                long expected = UzcCrypto.getInstance().calculateDeadline(TestVariables.EXAMPLE_ACCOUNT_ID, startNonce + i, exampleGenSig, scoop, exampleBaseTarget, 2).longValue();
+                assertEquals(expected, deadlines[i]);
+            }
+        }
+    }
+}
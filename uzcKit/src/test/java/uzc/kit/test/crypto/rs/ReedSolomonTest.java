@@ -0,0 +1,50 @@
+package uzc.kit.test.crypto.rs;
+
+import uzc.kit.crypto.rs.ReedSolomon;
+import uzc.kit.crypto.rs.ReedSolomonImpl;
+import uzc.kit.entity.UzcAddress;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class ReedSolomonTest {
+    private static final long exampleId = 7009665667967103287L;
+    private static final String exampleRs = "WEBR-T74Q-HQJY-8PUK4";
+
+    private final ReedSolomon reedSolomon = new ReedSolomonImpl();
+
+    @After
+    public void tearDown() {
+        UzcAddress.setInternCacheCapacity(0);
+    }
+
+    @Test
+    public void testReedSolomonEncodeDecode() throws ReedSolomon.DecodeException {
+        assertEquals(exampleRs, reedSolomon.encode(exampleId));
+        assertEquals(exampleId, reedSolomon.decode(exampleRs));
+        for (long value : new long[]{0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            assertEquals(value, reedSolomon.decode(reedSolomon.encode(value)));
+        }
+    }
+
+    @Test(expected = ReedSolomon.DecodeException.class)
+    public void testReedSolomonDecodeInvalid() throws ReedSolomon.DecodeException {
+        reedSolomon.decode("WEBR-T74Q-HQJY-8PUK5");
+    }
+
+    @Test
+    public void testUzcAddressInternCache() {
+        assertNotSame(UzcAddress.fromId(exampleId), UzcAddress.fromId(exampleId));
+        UzcAddress.setInternCacheCapacity(16);
+        UzcAddress address = UzcAddress.fromId(exampleId);
+        assertSame(address, UzcAddress.fromId(exampleId));
+        assertSame(address, UzcAddress.fromRs("UZC-" + exampleRs));
+        assertEquals("UZC-" + exampleRs, address.getFullAddress());
+    }
+}
@@ -0,0 +1,171 @@
+package uzc.kit.test.mining;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.plot.PlotFile;
+import uzc.kit.entity.response.MiningInfo;
+import uzc.kit.mining.DriveScan;
+import uzc.kit.mining.MiningRoundScheduler;
+import uzc.kit.service.UzcNodeService;
+import uzc.kit.test.TestVariables;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class MiningRoundSchedulerTest {
+    private static final byte[] exampleGenSig = UzcCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0");
+    private static final long exampleBaseTarget = 70312;
+    private static final int exampleHeight = 500000;
+    private static final long startNonce = 1000;
+    private static final int nonces = 3;
+
+    private final PublishSubject<MiningInfo> miningInfo = PublishSubject.create();
+    /**
+     * Counted down when the first nonce is submitted
+     */
+    private final CountDownLatch submitted = new CountDownLatch(1);
+    /**
+     * Submitting nonces blocks until this is counted down, which holds up the hashing thread that submits them
+     */
+    private final CountDownLatch releaseSubmissions = new CountDownLatch(1);
+
+    private Path directory;
+    private Path plotPath;
+    private byte[] plotData;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("uzckit");
+        plotPath = directory.resolve(Long.toUnsignedString(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId()) + "_" + startNonce + "_" + nonces);
+        // Random data is fine as the scheduler does not check that the nonces are valid
+        plotData = new byte[nonces * PlotFile.NONCE_SIZE];
+        new Random(0).nextBytes(plotData);
+        Files.write(plotPath, plotData);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        releaseSubmissions.countDown();
+        Files.deleteIfExists(plotPath);
+        Files.deleteIfExists(directory);
+    }
+
+    private UzcNodeService node() {
+        return (UzcNodeService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{UzcNodeService.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getMiningInfo":
+                    return miningInfo;
+                case "submitNonce":
+                    return Single.fromCallable(() -> {
+                        submitted.countDown();
+                        releaseSubmissions.await();
+                        return 0L;
+                    });
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private MiningRoundScheduler scheduler() {
+        // Read size of one scoop to force one window per nonce
+        return new MiningRoundScheduler(node(), null, Collections.singletonList(directory), 1, PlotFile.SCOOP_SIZE);
+    }
+
+    private static boolean driveThreadsStopped() throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < end) {
+            if (Thread.getAllStackTraces().keySet().stream().noneMatch(thread -> thread.getName().startsWith("uzckit-drive"))) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    @Test
+    public void testMiningRoundSchedulerScan() {
+        releaseSubmissions.countDown();
+        TestObserver<DriveScan> observer = scheduler().mine().test();
+        miningInfo.onNext(new MiningInfo(exampleGenSig, exampleBaseTarget, exampleHeight));
+        observer.awaitCount(1);
+        observer.dispose();
+        DriveScan scan = observer.values().get(0);
+        assertEquals(directory, scan.getDrive());
+        assertEquals(exampleHeight, scan.getHeight());
+        assertEquals(nonces, scan.getNoncesScanned());
+        assertFalse(scan.isCancelled());
+        assertNull(scan.getError());
+
+        int scoop = UzcCrypto.getInstance().calculateScoop(exampleGenSig, exampleHeight);
+        long bestDeadline = Long.MAX_VALUE;
+        for (int i = 0; i < nonces; i++) {
+            int offset = (scoop * nonces + i) * PlotFile.SCOOP_SIZE;
+            byte[] scoopData = Arrays.copyOfRange(plotData, offset, offset + PlotFile.SCOOP_SIZE);
+            bestDeadline = Math.min(bestDeadline, UzcCrypto.getInstance().calculateHit(TestVariables.EXAMPLE_ACCOUNT_ID, startNonce + i, exampleGenSig, scoopData).divide(BigInteger.valueOf(exampleBaseTarget)).longValue());
+        }
+        assertEquals(bestDeadline, scan.getBestDeadline());
+    }
+
+    @Test
+    public void testMiningRoundSchedulerNewRoundCancelsCurrent() throws InterruptedException {
+        TestObserver<DriveScan> observer = scheduler().mine().test();
+        miningInfo.onNext(new MiningInfo(exampleGenSig, exampleBaseTarget, exampleHeight));
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        // The first round is held up hashing its first window
+        miningInfo.onNext(new MiningInfo(exampleGenSig, exampleBaseTarget, exampleHeight + 1));
+        releaseSubmissions.countDown();
+        observer.awaitCount(2);
+        observer.dispose();
+        DriveScan first = observer.values().get(0);
+        assertEquals(exampleHeight, first.getHeight());
+        assertTrue(first.isCancelled());
+        assertTrue(first.getNoncesScanned() < nonces);
+        DriveScan second = observer.values().get(1);
+        assertEquals(exampleHeight + 1, second.getHeight());
+        assertFalse(second.isCancelled());
+        assertEquals(nonces, second.getNoncesScanned());
+    }
+
+    @Test
+    public void testMiningRoundSchedulerCloseWhileHashing() throws InterruptedException {
+        Disposable mining = scheduler().mine().subscribe(scan -> {}, error -> {});
+        miningInfo.onNext(new MiningInfo(exampleGenSig, exampleBaseTarget, exampleHeight));
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        // Give the drive thread time to queue the remaining windows behind the one being hashed
+        Thread.sleep(100);
+        mining.dispose();
+        assertTrue(driveThreadsStopped());
+    }
+
+    @Test
+    public void testMiningRoundSchedulerCloseBeforeFirstRound() throws InterruptedException {
+        Disposable mining = scheduler().mine().subscribe(scan -> {}, error -> {});
+        mining.dispose();
+        assertFalse(miningInfo.hasObservers());
+        assertTrue(driveThreadsStopped());
+    }
+}
@@ -0,0 +1,92 @@
+package uzc.kit.test.mining;
+
+import uzc.kit.crypto.UzcCrypto;
+import uzc.kit.crypto.hash.shabal.Shabal256;
+import uzc.kit.crypto.plot.MiningRound;
+import uzc.kit.crypto.plot.PlotCalculator;
+import uzc.kit.crypto.plot.impl.PlotCalculatorImpl;
+import uzc.kit.mining.ShareVerifier;
+import uzc.kit.test.TestVariables;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class ShareVerifierTest {
+    private static final byte[] exampleGenSig = UzcCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0");
+    private static final long exampleBaseTarget = 70312;
+    private static final int exampleHeight = 500000;
+    private static final long exampleDeadline = 190678252334964L;
+    private static final long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+
+    private ShareVerifier shareVerifier;
+    private MiningRound round;
+
+    @Before
+    public void setUp() {
+        shareVerifier = new ShareVerifier(1, 16);
+        round = UzcCrypto.getInstance().getMiningRound(exampleGenSig, exampleHeight, exampleBaseTarget);
+    }
+
+    @After
+    public void tearDown() {
+        shareVerifier.close();
+    }
+
+    @Test
+    public void testShareVerifierSubmit() throws Exception {
+        assertTrue(shareVerifier.submit(accountId, 0, exampleDeadline, round).get());
+        assertFalse(shareVerifier.submit(accountId, 0, exampleDeadline + 1, round).get());
+        assertEquals(1, shareVerifier.getVerifiedCount());
+        assertEquals(1, shareVerifier.getDeduplicatedCount());
+        assertEquals(0, shareVerifier.getQueueDepth());
+    }
+
+    @Test
+    public void testShareVerifierStaleHeight() throws Exception {
+        MiningRound nextRound = UzcCrypto.getInstance().getMiningRound(exampleGenSig, exampleHeight + 1, exampleBaseTarget);
+        shareVerifier.submit(accountId, 0, exampleDeadline, nextRound).get();
+        CompletableFuture<Boolean> stale = shareVerifier.submit(accountId, 0, exampleDeadline, round);
+        try {
+            stale.get();
+            fail();
+        } catch (CancellationException e) {
+            // Expected
+        }
+        assertEquals(1, shareVerifier.getCancelledCount());
+    }
+
+    @Test
+    public void testShareVerifierFailureNotCached() throws Exception {
+        shareVerifier.close();
+        // Fails the first calculation, then calculates normally
+        PlotCalculator plotCalculator = new PlotCalculatorImpl(Shabal256::new);
+        AtomicInteger calculations = new AtomicInteger();
+        shareVerifier = new ShareVerifier((PlotCalculator) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PlotCalculator.class}, (proxy, method, args) -> {
+            if (calculations.incrementAndGet() == 1) throw new IllegalStateException("Calculation failed");
+            return method.invoke(plotCalculator, args);
+        }), 1, 16);
+        try {
+            shareVerifier.submit(accountId, 0, exampleDeadline, round).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(shareVerifier.submit(accountId, 0, exampleDeadline, round).get());
+        assertEquals(2, calculations.get());
+        assertEquals(0, shareVerifier.getDeduplicatedCount());
+    }
+}